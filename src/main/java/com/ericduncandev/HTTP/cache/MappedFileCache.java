@@ -0,0 +1,221 @@
+package com.ericduncandev.HTTP.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serving tier for the hot set of small and medium static files.
+ * A file is memory-mapped once it has been requested {@code promoteThreshold} times, after which
+ * every response slices the mapping straight into the socket write: no heap copy and no
+ * open/read syscalls per request. Mappings are reference counted so a file that changes on disk
+ * or gets evicted is only unmapped after the last in-flight response using it has been written.
+ */
+public final class MappedFileCache implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(MappedFileCache.class);
+    // bounds the access-frequency table; it is simply reset when full so stale counts decay
+    private static final int MAX_TRACKED_PATHS = 10_000;
+
+    private final long maxFileSize;
+    private volatile long budgetBytes;
+    private final int promoteThreshold;
+    private final Map<Path, MappedFile> mapped = new ConcurrentHashMap<>();
+    private final Map<Path, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final AtomicLong mappedBytes = new AtomicLong();
+
+    public MappedFileCache(long maxFileSize, long budgetBytes, int promoteThreshold) {
+        this.maxFileSize = maxFileSize;
+        this.budgetBytes = budgetBytes;
+        this.promoteThreshold = promoteThreshold;
+    }
+
+    /**
+     * Returns an acquired mapping of the file, or null when the file belongs to the regular read tier
+     * (too large, empty, or not requested often enough yet). Callers must {@link MappedFile#release()}
+     * a non-null result once the response has been written.
+     */
+    public MappedFile acquire(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        return acquire(path, attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Like {@link #acquire(Path)}, for callers that already know the file's size and modification
+     * time (in milliseconds) and want to skip the stat.
+     */
+    public MappedFile acquire(Path path, long size, long lastModified) throws IOException {
+        if (size == 0 || size > maxFileSize || size > budgetBytes) {
+            return null;
+        }
+
+        MappedFile current = mapped.get(path);
+        if (current != null) {
+            if (current.size == size && current.lastModified == lastModified) {
+                if (current.retain()) {
+                    current.lastAccess = System.nanoTime();
+                    return current;
+                }
+            } else {
+                logger.debug("Mapped file {} changed on disk, remapping", path);
+                retire(path, current);
+            }
+        }
+
+        if (!isHot(path)) {
+            return null;
+        }
+        return map(path, size, lastModified);
+    }
+
+    private boolean isHot(Path path) {
+        if (hits.size() >= MAX_TRACKED_PATHS) {
+            hits.clear();
+        }
+        return hits.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet() >= promoteThreshold;
+    }
+
+    private MappedFile map(Path path, long size, long lastModified) throws IOException {
+        Arena arena = Arena.ofShared();
+        MemorySegment segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != size) {
+                // the file was replaced after the caller looked it up; mapping past its end would fault
+                arena.close();
+                return null;
+            }
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+
+        MappedFile created = new MappedFile(arena, segment.asByteBuffer(), size, lastModified);
+        MappedFile existing = mapped.putIfAbsent(path, created);
+        if (existing != null) {
+            // another thread mapped it first; use theirs if it is still live
+            created.release();
+            return existing.retain() ? existing : null;
+        }
+
+        hits.remove(path);
+        mappedBytes.addAndGet(size);
+        logger.debug("Mapped {} ({} bytes) into the hot tier", path, size);
+        evictOverBudget(path);
+        return created.retain() ? created : null;
+    }
+
+    // evicts least recently used mappings until the budget holds, never touching the entry just added
+    private void evictOverBudget(Path keep) {
+        while (mappedBytes.get() > budgetBytes) {
+            Map.Entry<Path, MappedFile> oldest = null;
+            for (Map.Entry<Path, MappedFile> entry : mapped.entrySet()) {
+                if (!entry.getKey().equals(keep)
+                        && (oldest == null || entry.getValue().lastAccess < oldest.getValue().lastAccess)) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            retire(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    /**
+     * Drops the mapping for a path, e.g. after the file has been overwritten or deleted.
+     */
+    public void invalidate(Path path) {
+        MappedFile current = mapped.get(path);
+        if (current != null) {
+            retire(path, current);
+        }
+        hits.remove(path);
+    }
+
+    private void retire(Path path, MappedFile file) {
+        if (mapped.remove(path, file)) {
+            mappedBytes.addAndGet(-file.size);
+            // drop the cache's own reference; unmapping happens once readers are done
+            file.release();
+        }
+    }
+
+    /**
+     * Changes the budget at runtime, evicting least recently used mappings if it shrank.
+     */
+    public void setBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evictOverBudget(null);
+    }
+
+    public long mappedBytes() {
+        return mappedBytes.get();
+    }
+
+    @Override
+    public void close() {
+        mapped.forEach(this::retire);
+        hits.clear();
+    }
+
+    /**
+     * A reference-counted read-only mapping. The cache holds one reference for as long as the
+     * entry is cached; each response holds one while it is being written.
+     */
+    public static final class MappedFile {
+        private final Arena arena;
+        private final ByteBuffer buffer;
+        private final long size;
+        private final long lastModified;
+        private final AtomicInteger refs = new AtomicInteger(1);
+        private volatile long lastAccess = System.nanoTime();
+
+        private MappedFile(Arena arena, ByteBuffer buffer, long size, long lastModified) {
+            this.arena = arena;
+            this.buffer = buffer;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return an independent view of the mapping, positioned at the start of the file
+         */
+        public ByteBuffer buffer() {
+            return buffer.duplicate();
+        }
+
+        public long size() {
+            return size;
+        }
+
+        private boolean retain() {
+            int count;
+            do {
+                count = refs.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!refs.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        public void release() {
+            if (refs.decrementAndGet() == 0) {
+                arena.close();
+            }
+        }
+    }
+}
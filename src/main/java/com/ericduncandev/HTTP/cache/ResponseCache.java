@@ -0,0 +1,297 @@
+package com.ericduncandev.HTTP.cache;
+
+import com.ericduncandev.HTTP.core.ServerConfig;
+import com.ericduncandev.HTTP.factory.ResponseFactory;
+import com.ericduncandev.HTTP.interfaces.IResponseWriter;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.HTTPResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Opt-in micro-cache for generated GET responses, keyed by method, URI and the configured
+ * {@code Vary} request headers.
+ * <p>
+ * Entries are fresh for a short TTL and may then be served stale for a further window while a
+ * single background refresh runs. Misses are coalesced: concurrent requests for a key that is not
+ * cached wait for the one handler execution already in flight and share its response, so a burst
+ * of misses after a flush or deploy reaches the handler once.
+ * <p>
+ * Only complete responses with heap bodies are stored. Memory-mapped bodies are already served
+ * without copies and must not outlive their mapping, and streamed responses cannot be replayed;
+ * both pass through uncached.
+ */
+public final class ResponseCache implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ResponseCache.class);
+    private static final long WAIT_TIMEOUT_MILLIS = 30_000;
+
+    private volatile long ttlNanos;
+    private volatile long staleNanos;
+    private final int maxEntries;
+    private final int maxBodySize;
+    private final List<String> varyHeaders;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<HTTPResponse>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService revalidator = Executors.newFixedThreadPool(2,
+            Thread.ofPlatform().name("cache-revalidate-", 0).daemon().factory());
+
+    public ResponseCache(ServerConfig config) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(config.getResponseCacheTtlMillis());
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(config.getResponseCacheStaleMillis());
+        this.maxEntries = config.getResponseCacheMaxEntries();
+        this.maxBodySize = config.getResponseCacheMaxBodySize();
+        this.varyHeaders = config.getResponseCacheVaryHeaders();
+    }
+
+    /**
+     * Changes the TTL and stale window at runtime; entries already cached age by the new values.
+     */
+    public void setLifetimes(long ttlMillis, long staleMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+    }
+
+    public boolean accepts(HTTPRequest req) {
+        return req.method().equals("GET") && !hasNoCache(req.headers().get(HTTPHeaders.CACHE_CONTROL));
+    }
+
+    /**
+     * Answers the request from the cache, or runs the handler at most once per key and caches its response.
+     * @param handler writes the response for the request to the writer it is given
+     */
+    public void serve(HTTPRequest req, IResponseWriter client, Consumer<IResponseWriter> handler) {
+        String key = key(req);
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (now - entry.storedAt < ttlNanos) {
+                answer(req, client, entry.response);
+                return;
+            }
+            if (now - entry.storedAt < ttlNanos + staleNanos) {
+                answer(req, client, entry.response);
+                refreshInBackground(key, req, handler);
+                return;
+            }
+            entries.remove(key, entry);
+        }
+
+        CompletableFuture<HTTPResponse> leader = new CompletableFuture<>();
+        CompletableFuture<HTTPResponse> existing = inFlight.putIfAbsent(key, leader);
+        if (existing == null) {
+            load(key, req, client, handler, leader);
+            return;
+        }
+        HTTPResponse shared = await(existing);
+        if (shared != null) {
+            answer(req, client, shared);
+        } else {
+            // the leader's response could not be shared (streamed, uncacheable, or failed)
+            handler.accept(client);
+        }
+    }
+
+    // a client revalidating its copy gets a 304 for a cached body with the same ETag, as the handler would answer
+    private static void answer(HTTPRequest req, IResponseWriter client, HTTPResponse response) {
+        String etag = response.getHeaders().get(HTTPHeaders.ETAG);
+        String ifNoneMatch = req.headers().get(HTTPHeaders.IF_NONE_MATCH);
+        if (response.getStatusCode() == 200 && etag != null && ifNoneMatch != null
+                && (ifNoneMatch.equals("*") || ifNoneMatch.contains(etag))) {
+            client.write(ResponseFactory.notModified(etag));
+            return;
+        }
+        client.write(response);
+    }
+
+    private void load(String key, HTTPRequest req, IResponseWriter client,
+                      Consumer<IResponseWriter> handler, CompletableFuture<HTTPResponse> leader) {
+        CapturingWriter capture = new CapturingWriter(client);
+        HTTPResponse cacheable = null;
+        try {
+            handler.accept(capture);
+            if (capture.response != null) {
+                cacheable = toCacheable(capture.response);
+                if (cacheable != null) {
+                    store(key, req.path(), cacheable);
+                }
+                client.write(capture.response);
+            }
+        } finally {
+            inFlight.remove(key, leader);
+            leader.complete(cacheable);
+        }
+    }
+
+    private void refreshInBackground(String key, HTTPRequest req, Consumer<IResponseWriter> handler) {
+        CompletableFuture<HTTPResponse> refresh = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, refresh) != null) {
+            return;
+        }
+        try {
+            revalidator.execute(() -> {
+                try {
+                    CapturingWriter capture = new CapturingWriter(null);
+                    handler.accept(capture);
+                    HTTPResponse cacheable = capture.response == null ? null : toCacheable(capture.response);
+                    if (cacheable != null) {
+                        store(key, req.path(), cacheable);
+                    } else {
+                        entries.remove(key);
+                    }
+                    refresh.complete(cacheable);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to revalidate {}", key, e);
+                    refresh.complete(null);
+                } finally {
+                    inFlight.remove(key, refresh);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, refresh);
+            refresh.complete(null);
+        }
+    }
+
+    private static HTTPResponse await(CompletableFuture<HTTPResponse> future) {
+        try {
+            return future.get(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private HTTPResponse toCacheable(HTTPResponse response) {
+        int status = response.getStatusCode();
+        if (status != 200 && status != 301 && status != 404) {
+            return null;
+        }
+        HTTPHeaders headers = response.getHeaders();
+        String cacheControl = headers.get(HTTPHeaders.CACHE_CONTROL);
+        if (headers.contains(HTTPHeaders.SET_COOKIE) || hasNoCache(cacheControl)
+                || (cacheControl != null && cacheControl.contains("private"))) {
+            return null;
+        }
+        ByteBuffer body = response.getBody();
+        if (body.remaining() > maxBodySize) {
+            return null;
+        }
+        return response;
+    }
+
+    private static boolean hasNoCache(String cacheControl) {
+        return cacheControl != null && (cacheControl.contains("no-store") || cacheControl.contains("no-cache"));
+    }
+
+    private void store(String key, String path, HTTPResponse response) {
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            evict();
+        }
+        entries.put(key, new Entry(path, response, System.nanoTime()));
+    }
+
+    // drops expired entries, then the oldest until there is room
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(e -> now - e.storedAt >= ttlNanos + staleNanos);
+        while (entries.size() >= maxEntries) {
+            Map.Entry<String, Entry> oldest = null;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                if (oldest == null || candidate.getValue().storedAt < oldest.getValue().storedAt) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            entries.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    /**
+     * Drops every cached response for the path, whatever its query string or varying headers.
+     * Changing a directory's index.html also drops the responses cached for the directory itself.
+     */
+    public void invalidate(String path) {
+        String directory = path.endsWith("/index.html") ? path.substring(0, path.length() - "index.html".length()) : null;
+        entries.values().removeIf(e -> e.path.equals(path)
+                || (directory != null && (e.path.equals(directory) || e.path.equals(directory.substring(0, directory.length() - 1)))));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private String key(HTTPRequest req) {
+        StringBuilder key = new StringBuilder(req.method().length() + req.uri().length() + 32);
+        key.append(req.method()).append(' ').append(req.uri());
+        for (String name : varyHeaders) {
+            String value = req.headers().get(name);
+            key.append('\0').append(value == null ? "" : value);
+        }
+        return key.toString();
+    }
+
+    @Override
+    public void close() {
+        revalidator.shutdownNow();
+        entries.clear();
+    }
+
+    private record Entry(String path, HTTPResponse response, long storedAt) {
+    }
+
+    /**
+     * Holds on to a complete heap response instead of sending it; mapped and streamed responses go
+     * straight to the client (or nowhere, for background refreshes) and leave nothing to cache.
+     */
+    private static final class CapturingWriter implements IResponseWriter {
+        private final IResponseWriter client;
+        private HTTPResponse response;
+
+        CapturingWriter(IResponseWriter client) {
+            this.client = client;
+        }
+
+        @Override
+        public void write(HTTPResponse response) {
+            if (response.getBody().isDirect()) {
+                // mapped bodies are only valid until the handler releases them, so they are sent right away
+                if (client != null) {
+                    client.write(response);
+                }
+                return;
+            }
+            this.response = response;
+        }
+
+        @Override
+        public WritableByteChannel beginStreaming(int statusCode, HTTPHeaders headers) throws IOException {
+            if (client == null) {
+                throw new IOException("Streamed responses cannot be revalidated");
+            }
+            return client.beginStreaming(statusCode, headers);
+        }
+    }
+}
@@ -1,19 +1,46 @@
 package com.ericduncandev.HTTP.core;
 
+import com.ericduncandev.HTTP.cache.MappedFileCache;
+import com.ericduncandev.HTTP.cache.ResponseCache;
+import com.ericduncandev.HTTP.http2.Http2Connection;
+import com.ericduncandev.HTTP.index.WebRootIndex;
+import com.ericduncandev.HTTP.jfr.AdmissionRejectEvent;
+import com.ericduncandev.HTTP.jfr.ConnectionAcceptEvent;
+import com.ericduncandev.HTTP.limit.Bulkhead;
+import com.ericduncandev.HTTP.limit.Bulkheads;
+import com.ericduncandev.HTTP.limit.RateLimiter;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.parser.Http1ResponseWriter;
 import com.ericduncandev.HTTP.parser.HTTPParser;
+import com.ericduncandev.HTTP.proxy.ProxyRouter;
+import com.ericduncandev.HTTP.sse.EventBroadcaster;
+import com.ericduncandev.HTTP.storage.GroupCommitter;
+import com.ericduncandev.HTTP.storage.ResumableUploads;
+import com.ericduncandev.HTTP.storage.UploadStore;
+import com.ericduncandev.HTTP.tls.TLSChannel;
+import com.ericduncandev.HTTP.tls.TLSContextFactory;
+import com.ericduncandev.HTTP.tls.TLSMetrics;
 import com.ericduncandev.HTTP.interfaces.IHTTPServer;
 import com.ericduncandev.HTTP.factory.ResponseFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -22,14 +49,79 @@ public final class HTTPServer implements IHTTPServer, AutoCloseable {
     private static final AtomicInteger activeConnections = new AtomicInteger(0);
 
     private final ServerConfig config;
-    private final ExecutorService executorService;
+    // connection workers read request heads; the requests themselves run in the context's bulkheads
+    private final ThreadPoolExecutor executorService;
+    private final LiveConfig liveConfig;
     private final AtomicBoolean running;
-    private ServerSocket serverSocket;
+    private final ServerContext context;
+    private final TLSContextFactory tlsContext;
+    private final TLSMetrics tlsMetrics = new TLSMetrics();
+    // released once start() has bound its listeners, or failed to
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile ServerSocketChannel serverChannel;
+    private volatile ServerSocketChannel httpsChannel;
 
     public HTTPServer(ServerConfig config) {
         this.config = config;
-        this.executorService = Executors.newFixedThreadPool(config.getThreadPoolSize());
+        this.executorService = newWorkerPool(config.getThreadPoolSize());
         this.running = new AtomicBoolean(false);
+        MappedFileCache mappedFiles = new MappedFileCache(config.getMappedFileMaxSize(),
+                config.getMappedCacheBudget(), config.getMappedPromoteThreshold());
+        GroupCommitter groupCommitter = config.isDurableUploads()
+                ? new GroupCommitter(config.getGroupCommitIntervalMillis(), config.getGroupCommitMaxBatch())
+                : null;
+        UploadStore uploadStore = new UploadStore(Path.of(config.getUploadRoot()),
+                config.isUploadDeduplication(), groupCommitter);
+        ResponseCache responseCache = config.isResponseCacheEnabled() ? new ResponseCache(config) : null;
+        // sessions live beside the upload store's other in-progress content
+        ResumableUploads resumableUploads = config.getResumableUploadPath() != null
+                ? new ResumableUploads(Path.of(config.getUploadRoot(), ".resumable"), config.getResumableUploadMaxSize(),
+                        config.getResumableUploadExpiryMillis())
+                : null;
+        Path webRootPath = Path.of(config.getWebRoot());
+        WebRootIndex webRoot = new WebRootIndex(webRootPath, config.getWebRootManifest() != null
+                ? Path.of(config.getWebRootManifest()) : WebRootIndex.defaultManifest(webRootPath),
+                config.getWebRootIndexValidityMillis());
+        // with the default roots the upload root lies inside webRoot, and its in-progress content with it
+        webRoot.exclude(uploadStore.getTempDirectory());
+        if (resumableUploads != null) {
+            webRoot.exclude(resumableUploads.getDirectory());
+        }
+        webRoot.load();
+        ProxyRouter proxyRouter = new ProxyRouter(config);
+        Bulkheads bulkheads = new Bulkheads(config);
+        this.liveConfig = new LiveConfig(config);
+        liveConfig.addListener(settings -> {
+            resize(executorService, settings.threadPoolSize());
+            mappedFiles.setBudget(settings.mappedCacheBudget());
+            webRoot.setValidityMillis(settings.webRootIndexValidityMillis());
+            proxyRouter.setTimeouts(settings.proxyConnectTimeoutMillis(), settings.proxyReadTimeoutMillis());
+            bulkheads.resize(settings);
+            if (responseCache != null) {
+                responseCache.setLifetimes(settings.responseCacheTtlMillis(), settings.responseCacheStaleMillis());
+            }
+        });
+        liveConfig.start();
+        this.context = new ServerContext(config, liveConfig, webRoot, mappedFiles, uploadStore, groupCommitter,
+                proxyRouter, responseCache, RateLimiter.isEnabled(config) ? new RateLimiter(config) : null,
+                resumableUploads, config.getEventStreamPath() != null ? new EventBroadcaster(config) : null,
+                bulkheads);
+        this.tlsContext = config.getHttpsPort() > 0 ? new TLSContextFactory(config) : null;
+    }
+
+    private static ThreadPoolExecutor newWorkerPool(int size) {
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    // busy workers above a reduced size finish their current connection before they exit
+    private static void resize(ThreadPoolExecutor pool, int size) {
+        if (size > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
     }
 
     public HTTPServer() {
@@ -39,65 +131,286 @@ public final class HTTPServer implements IHTTPServer, AutoCloseable {
     public void start() {
         logger.info("Starting HTTP Server on port {}", config.getPort());
         try {
-            serverSocket = new ServerSocket(config.getPort());
+            // channel-backed sockets let responses write mapped files without copying them onto the heap
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(config.getPort()));
+            if (tlsContext != null) {
+                logger.info("Starting HTTPS listener on port {}", config.getHttpsPort());
+                httpsChannel = ServerSocketChannel.open();
+                httpsChannel.bind(new InetSocketAddress(config.getHttpsPort()));
+            }
             running.set(true);
+            started.countDown();
 
-            while (running.get()) {
-                try {
-                    Socket clientSocket = serverSocket.accept();
-                    executorService.submit(() -> handleClient(clientSocket));
-                } catch (IOException e) {
-                    if (running.get()) {
-                        logger.error("Error accepting client connection", e);
-                    }
-                }
+            if (httpsChannel != null) {
+                Thread.ofPlatform().name("https-acceptor").start(() -> acceptLoop(httpsChannel, true));
             }
+            acceptLoop(serverChannel, false);
         } catch (IOException e) {
             logger.error("Could not start server on port {}: {}", config.getPort(), e);
+            started.countDown();
             throw new ServerInitializationException("Failed to start server", e);
         }
     }
 
-    private void handleClient(Socket clientSocket) {
-        if (activeConnections.get() >= config.getMaxConnections()) {
-            try (PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
-                ResponseFactory.serviceUnavailable().writeTo(out);
+    private void acceptLoop(ServerSocketChannel listener, boolean secure) {
+        while (running.get()) {
+            try {
+                SocketChannel clientChannel = listener.accept();
+                long acceptedAt = System.nanoTime();
+                if (context.rateLimiter() != null && !admitConnection(clientChannel, secure)) {
+                    continue;
+                }
+                executorService.submit(() -> handleClient(clientChannel, secure, acceptedAt));
             } catch (IOException e) {
-                logger.error("Error sending service unavailable response", e);
+                if (running.get()) {
+                    logger.error("Error accepting client connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the per-client connection rate on the acceptor thread, so a limited client never
+     * occupies a worker. Plaintext clients get a 429; TLS clients are closed, since answering them
+     * would take a handshake.
+     */
+    private boolean admitConnection(SocketChannel clientChannel, boolean secure) {
+        try {
+            long retryAfter = context.rateLimiter().admitConnection(clientAddress(clientChannel));
+            if (retryAfter == 0) {
+                return true;
             }
-            return;
+            if (!secure) {
+                // a fresh socket's send buffer takes the small response without blocking
+                ResponseFactory.tooManyRequests(retryAfter).writeTo(clientChannel);
+            }
+        } catch (IOException e) {
+            logger.debug("Error rate limiting client connection", e);
+        }
+        try {
+            clientChannel.close();
+        } catch (IOException e) {
+            logger.error("Error closing client socket", e);
         }
+        return false;
+    }
+
+    private static InetAddress clientAddress(SocketChannel clientChannel) throws IOException {
+        return ((InetSocketAddress) clientChannel.getRemoteAddress()).getAddress();
+    }
+
+    private void handleClient(SocketChannel clientChannel, boolean secure, long acceptedAt) {
+        ConnectionAcceptEvent accept = new ConnectionAcceptEvent();
+        accept.begin();
+        long queueTime = System.nanoTime() - acceptedAt;
+        ByteChannel connection = clientChannel;
+        boolean counted = false;
+        boolean handedOff = false;
+        boolean h2 = false;
+        try {
+            // the slot is taken before the handshake, so connections over the limit cost no TLS work
+            int maxConnections = liveConfig.current().maxConnections();
+            int active = activeConnections.incrementAndGet();
+            counted = true;
+            if (active > maxConnections) {
+                AdmissionRejectEvent reject = new AdmissionRejectEvent();
+                if (reject.shouldCommit()) {
+                    reject.remoteAddress = String.valueOf(clientChannel.getRemoteAddress());
+                    reject.activeConnections = active - 1;
+                    reject.maxConnections = maxConnections;
+                    reject.commit();
+                }
+                // TLS clients are just closed, since answering them would take the handshake
+                if (!secure) {
+                    ResponseFactory.serviceUnavailable().writeTo(connection);
+                }
+                return;
+            }
+            if (secure) {
+                // the handshake runs on the worker thread so a slow client never stalls the acceptor
+                TLSChannel tls = new TLSChannel(clientChannel, tlsContext.createEngine(), tlsMetrics);
+                connection = tls;
+                tls.handshake();
+                h2 = "h2".equals(tls.getApplicationProtocol());
+            }
+            accept.end();
+            if (accept.shouldCommit()) {
+                accept.remoteAddress = String.valueOf(clientChannel.getRemoteAddress());
+                accept.secure = secure;
+                accept.queueTime = queueTime;
+                accept.commit();
+            }
+
+            InetAddress client = clientAddress(clientChannel);
+            InputStream raw = secure ? Channels.newInputStream(connection) : clientChannel.socket().getInputStream();
+            boolean h2c = !secure && config.isH2cEnabled();
+            if (h2c) {
+                PushbackInputStream pushback = new PushbackInputStream(raw, Http2Connection.PREFACE.length);
+                h2 = Http2Connection.detectPreface(pushback);
+                raw = pushback;
+            } else if (h2) {
+                byte[] preface = raw.readNBytes(Http2Connection.PREFACE.length);
+                if (!Arrays.equals(preface, Http2Connection.PREFACE)) {
+                    logger.warn("Client negotiated h2 without sending the connection preface");
+                    return;
+                }
+            }
+            if (h2) {
+                new Http2Connection(raw, connection, client, context).serve();
+                return;
+            }
 
-        activeConnections.incrementAndGet();
-        try (
-                BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-                PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)
-        ) {
-            HTTPParser httpParser = new HTTPParser(in, out);
-            httpParser.parseRequest();
+            // HTTP/1.1 serves one request per connection; HTTP/2 checks each stream as it opens
+            if (context.rateLimiter() != null) {
+                long retryAfter = context.rateLimiter().admitRequest(client);
+                if (retryAfter > 0) {
+                    ResponseFactory.tooManyRequests(retryAfter).writeTo(connection);
+                    return;
+                }
+            }
+
+            BufferedInputStream in = new BufferedInputStream(raw);
+            Http1ResponseWriter writer = new Http1ResponseWriter(connection);
+            HTTPParser httpParser = new HTTPParser(in, writer, context, h2c);
+            HTTPParser.RequestHead head = httpParser.readHead();
+            if (head == null) {
+                return;
+            }
+            if (httpParser.isUpgrade(head)) {
+                httpParser.finishRequest(head);
+                HTTPRequest upgrade = httpParser.getUpgradeRequest();
+                if (upgrade != null) {
+                    // HTTP/2 carries on from the buffered stream, in case the preface arrived with the request
+                    ResponseFactory.switchingProtocols("h2c").writeTo(connection);
+                    new Http2Connection(in, connection, client, context).serveUpgrade(upgrade);
+                }
+                return;
+            }
+
+            // the body is read and the request handled in its class's pool, which then owns the connection
+            ByteChannel owned = connection;
+            Bulkhead bulkhead = context.bulkheads().forRequest(head.method(), head.headers(),
+                    context.proxyRouter().match(head.path()) != null);
+            handedOff = bulkhead.trySubmit(() -> {
+                try {
+                    httpParser.finishRequest(head);
+                } finally {
+                    if (writer.isDetached()) {
+                        // an event stream now owns the connection, without holding this thread
+                        activeConnections.decrementAndGet();
+                    } else {
+                        release(owned, true);
+                    }
+                }
+            });
+            if (!handedOff) {
+                logger.warn("{} pool is full; rejecting {} {}", bulkhead.getName(), head.method(), head.uri());
+                ResponseFactory.serviceUnavailable().writeTo(connection);
+            }
         } catch (IOException e) {
             logger.error("Error handling client request", e);
         } finally {
-            try {
-                clientSocket.close();
-            } catch (IOException e) {
-                logger.error("Error closing client socket", e);
+            if (!handedOff) {
+                release(connection, counted);
             }
+        }
+    }
+
+    private static void release(ByteChannel connection, boolean counted) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            logger.error("Error closing client socket", e);
+        }
+        if (counted) {
             activeConnections.decrementAndGet();
         }
     }
 
+    /**
+     * Waits for {@link #start}, which blocks in its accept loop, to bind its listeners.
+     * @return true once the server accepts connections; false if it failed to bind, was stopped or did not start in time
+     */
+    public boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException {
+        return started.await(timeout, unit) && running.get();
+    }
+
+    /**
+     * @return the port the server is bound to, which tells the one picked when it was configured with port 0
+     */
+    public int getPort() {
+        ServerSocketChannel channel = serverChannel;
+        return channel != null ? channel.socket().getLocalPort() : config.getPort();
+    }
+
+    /**
+     * @return the port the HTTPS listener is bound to, or 0 when TLS is disabled
+     */
+    public int getHttpsPort() {
+        ServerSocketChannel channel = httpsChannel;
+        return channel != null ? channel.socket().getLocalPort() : config.getHttpsPort();
+    }
+
+    /**
+     * @return handshake and resumption counters for the HTTPS listener
+     */
+    public TLSMetrics getTlsMetrics() {
+        return tlsMetrics;
+    }
+
+    /**
+     * @return the runtime-tunable settings, which can also be changed programmatically through {@link LiveConfig#apply}
+     */
+    public LiveConfig getLiveConfig() {
+        return liveConfig;
+    }
+
+    /**
+     * @return the per-class worker pools, with their concurrency and rejection counters
+     */
+    public Bulkheads getBulkheads() {
+        return context.bulkheads();
+    }
+
+    /**
+     * @return the event stream broadcaster, or null if no event stream is configured
+     */
+    public EventBroadcaster getEvents() {
+        return context.events();
+    }
+
     public void stop() {
         logger.info("Shutting down HTTP Server");
         running.set(false);
         try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+            if (httpsChannel != null && httpsChannel.isOpen()) {
+                httpsChannel.close();
             }
         } catch (IOException e) {
             logger.error("Error closing server socket", e);
         }
+        liveConfig.close();
         executorService.shutdown();
+        context.bulkheads().close();
+        context.webRoot().close();
+        context.mappedFiles().close();
+        context.proxyRouter().close();
+        if (context.groupCommitter() != null) {
+            context.groupCommitter().close();
+        }
+        if (context.responseCache() != null) {
+            context.responseCache().close();
+        }
+        if (context.resumableUploads() != null) {
+            context.resumableUploads().close();
+        }
+        if (context.events() != null) {
+            context.events().close();
+        }
     }
 
     @Override
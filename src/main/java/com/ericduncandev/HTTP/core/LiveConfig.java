@@ -0,0 +1,170 @@
+package com.ericduncandev.HTTP.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the current {@link RuntimeSettings} and replaces them when the runtime config file changes.
+ * <p>
+ * The file holds overrides of the startup configuration, keyed by the ServerConfig builder names; a
+ * key removed from the file falls back to its startup value. A file that fails to parse or validate is
+ * rejected as a whole and the running settings stay in place. Accepted changes are published as a new
+ * snapshot through a single volatile write, so hot paths read them without locking, and are then
+ * handed to the registered listeners, which resize pools and caches in place without dropping
+ * in-flight work.
+ */
+public final class LiveConfig implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(LiveConfig.class);
+    // editors often truncate and then write, so events are allowed to settle before the file is read
+    private static final long SETTLE_MILLIS = 100;
+
+    private final RuntimeSettings startup;
+    private final Path file;
+    private final List<Consumer<RuntimeSettings>> listeners = new CopyOnWriteArrayList<>();
+    private volatile RuntimeSettings current;
+    private WatchService watchService;
+
+    public LiveConfig(ServerConfig config) {
+        this.startup = RuntimeSettings.from(config);
+        this.current = startup;
+        this.file = config.getRuntimeConfigFile() == null ? null
+                : Path.of(config.getRuntimeConfigFile()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * @return the latest published settings
+     */
+    public RuntimeSettings current() {
+        return current;
+    }
+
+    /**
+     * Registers a listener that is called with every newly published snapshot.
+     */
+    public void addListener(Consumer<RuntimeSettings> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Applies the config file if there is one and starts watching it for changes.
+     */
+    public void start() {
+        if (file == null) {
+            return;
+        }
+        reload();
+        try {
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.error("Cannot watch runtime config {}; changes will not be reloaded", file, e);
+            return;
+        }
+        Thread.ofPlatform().name("config-watcher").daemon().start(this::watch);
+        logger.info("Watching runtime config {}", file);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    Thread.sleep(SETTLE_MILLIS);
+                    drain();
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Runtime config watcher stopped");
+        }
+    }
+
+    private void drain() {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    /**
+     * Reads the config file and applies it; a missing file restores the startup settings.
+     * @return whether new settings were published
+     */
+    public boolean reload() {
+        Properties overrides = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            overrides.load(reader);
+        } catch (NoSuchFileException e) {
+            logger.info("Runtime config {} is missing; using startup settings", file);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Could not read runtime config {}: {}", file, e.getMessage());
+            return false;
+        }
+        try {
+            return apply(overrides);
+        } catch (IllegalArgumentException e) {
+            logger.error("Rejected runtime config {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Publishes the startup settings overlaid with the given overrides, unless nothing changed.
+     * @return whether new settings were published
+     * @throws IllegalArgumentException if an override is unknown or invalid; nothing is applied then
+     */
+    public synchronized boolean apply(Properties overrides) {
+        RuntimeSettings previous = current;
+        RuntimeSettings next = startup.with(overrides, previous.version() + 1);
+        if (next.sameValues(previous)) {
+            return false;
+        }
+        current = next;
+        for (Consumer<RuntimeSettings> listener : listeners) {
+            try {
+                listener.accept(next);
+            } catch (RuntimeException e) {
+                logger.error("Failed to apply runtime settings version {}", next.version(), e);
+            }
+        }
+        logger.info("Applied runtime settings version {}: {}", next.version(), next);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.error("Error closing runtime config watcher", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.ericduncandev.HTTP.core;
+
+import java.util.Properties;
+
+/**
+ * Immutable snapshot of the settings that may change while the server runs.
+ * Every accepted change produces a new snapshot with the next version number; readers hold on to
+ * the snapshot they started with, so they never see half of an update.
+ */
+public record RuntimeSettings(long version, int threadPoolSize, int maxConnections, long mappedCacheBudget,
+                              long responseCacheTtlMillis, long responseCacheStaleMillis,
+                              long webRootIndexValidityMillis, int proxyConnectTimeoutMillis,
+                              int proxyReadTimeoutMillis, int bulkheadStaticThreads, int bulkheadStaticQueue,
+                              int bulkheadUploadThreads, int bulkheadUploadQueue, int bulkheadMutationThreads,
+                              int bulkheadMutationQueue, int bulkheadProxyThreads, int bulkheadProxyQueue) {
+
+    /**
+     * @return the startup values from the server configuration, as version 0
+     */
+    public static RuntimeSettings from(ServerConfig config) {
+        return new RuntimeSettings(0, config.getThreadPoolSize(), config.getMaxConnections(),
+                config.getMappedCacheBudget(), config.getResponseCacheTtlMillis(),
+                config.getResponseCacheStaleMillis(), config.getWebRootIndexValidityMillis(),
+                config.getProxyConnectTimeoutMillis(), config.getProxyReadTimeoutMillis(),
+                config.getBulkheadStaticThreads(), config.getBulkheadStaticQueue(), config.getBulkheadUploadThreads(),
+                config.getBulkheadUploadQueue(), config.getBulkheadMutationThreads(), config.getBulkheadMutationQueue(),
+                config.getBulkheadProxyThreads(), config.getBulkheadProxyQueue());
+    }
+
+    /**
+     * Overlays the given properties, keyed by the ServerConfig builder names, on this snapshot.
+     * Every property is validated before anything is applied.
+     * @throws IllegalArgumentException if a key is unknown or a value is not a valid number for it
+     */
+    public RuntimeSettings with(Properties overrides, long version) {
+        int threadPoolSize = this.threadPoolSize;
+        int maxConnections = this.maxConnections;
+        long mappedCacheBudget = this.mappedCacheBudget;
+        long responseCacheTtlMillis = this.responseCacheTtlMillis;
+        long responseCacheStaleMillis = this.responseCacheStaleMillis;
+        long webRootIndexValidityMillis = this.webRootIndexValidityMillis;
+        int proxyConnectTimeoutMillis = this.proxyConnectTimeoutMillis;
+        int proxyReadTimeoutMillis = this.proxyReadTimeoutMillis;
+        int bulkheadStaticThreads = this.bulkheadStaticThreads;
+        int bulkheadStaticQueue = this.bulkheadStaticQueue;
+        int bulkheadUploadThreads = this.bulkheadUploadThreads;
+        int bulkheadUploadQueue = this.bulkheadUploadQueue;
+        int bulkheadMutationThreads = this.bulkheadMutationThreads;
+        int bulkheadMutationQueue = this.bulkheadMutationQueue;
+        int bulkheadProxyThreads = this.bulkheadProxyThreads;
+        int bulkheadProxyQueue = this.bulkheadProxyQueue;
+        for (String key : overrides.stringPropertyNames()) {
+            String value = overrides.getProperty(key).trim();
+            switch (key) {
+                case "threadPoolSize" -> threadPoolSize = (int) parse(key, value, 1, 10_000);
+                case "maxConnections" -> maxConnections = (int) parse(key, value, 1, Integer.MAX_VALUE);
+                case "mappedCacheBudget" -> mappedCacheBudget = parse(key, value, 0, Long.MAX_VALUE);
+                case "responseCacheTtlMillis" -> responseCacheTtlMillis = parse(key, value, 0, Long.MAX_VALUE);
+                case "responseCacheStaleMillis" -> responseCacheStaleMillis = parse(key, value, 0, Long.MAX_VALUE);
+                case "webRootIndexValidityMillis" -> webRootIndexValidityMillis = parse(key, value, 0, Long.MAX_VALUE);
+                case "proxyConnectTimeoutMillis" -> proxyConnectTimeoutMillis = (int) parse(key, value, 0, Integer.MAX_VALUE);
+                case "proxyReadTimeoutMillis" -> proxyReadTimeoutMillis = (int) parse(key, value, 0, Integer.MAX_VALUE);
+                case "bulkheadStaticThreads" -> bulkheadStaticThreads = (int) parse(key, value, 1, 10_000);
+                case "bulkheadStaticQueue" -> bulkheadStaticQueue = (int) parse(key, value, 1, Integer.MAX_VALUE);
+                case "bulkheadUploadThreads" -> bulkheadUploadThreads = (int) parse(key, value, 1, 10_000);
+                case "bulkheadUploadQueue" -> bulkheadUploadQueue = (int) parse(key, value, 1, Integer.MAX_VALUE);
+                case "bulkheadMutationThreads" -> bulkheadMutationThreads = (int) parse(key, value, 1, 10_000);
+                case "bulkheadMutationQueue" -> bulkheadMutationQueue = (int) parse(key, value, 1, Integer.MAX_VALUE);
+                case "bulkheadProxyThreads" -> bulkheadProxyThreads = (int) parse(key, value, 1, 10_000);
+                case "bulkheadProxyQueue" -> bulkheadProxyQueue = (int) parse(key, value, 1, Integer.MAX_VALUE);
+                default -> throw new IllegalArgumentException("%s is not a runtime-tunable setting".formatted(key));
+            }
+        }
+        return new RuntimeSettings(version, threadPoolSize, maxConnections, mappedCacheBudget,
+                responseCacheTtlMillis, responseCacheStaleMillis, webRootIndexValidityMillis,
+                proxyConnectTimeoutMillis, proxyReadTimeoutMillis, bulkheadStaticThreads, bulkheadStaticQueue,
+                bulkheadUploadThreads, bulkheadUploadQueue, bulkheadMutationThreads, bulkheadMutationQueue,
+                bulkheadProxyThreads, bulkheadProxyQueue);
+    }
+
+    /**
+     * @return whether both snapshots hold the same values, whatever their versions
+     */
+    public boolean sameValues(RuntimeSettings other) {
+        return equals(new RuntimeSettings(version, other.threadPoolSize, other.maxConnections,
+                other.mappedCacheBudget, other.responseCacheTtlMillis, other.responseCacheStaleMillis,
+                other.webRootIndexValidityMillis, other.proxyConnectTimeoutMillis, other.proxyReadTimeoutMillis,
+                other.bulkheadStaticThreads, other.bulkheadStaticQueue, other.bulkheadUploadThreads,
+                other.bulkheadUploadQueue, other.bulkheadMutationThreads, other.bulkheadMutationQueue,
+                other.bulkheadProxyThreads, other.bulkheadProxyQueue));
+    }
+
+    private static long parse(String key, String value, long min, long max) {
+        long parsed;
+        try {
+            parsed = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("%s must be a number, got '%s'".formatted(key, value));
+        }
+        if (parsed < min || parsed > max) {
+            throw new IllegalArgumentException("%s must be between %d and %d, got %d".formatted(key, min, max, parsed));
+        }
+        return parsed;
+    }
+}
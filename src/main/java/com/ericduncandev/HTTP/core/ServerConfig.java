@@ -1,18 +1,149 @@
 package com.ericduncandev.HTTP.core;
 
 import com.ericduncandev.HTTP.interfaces.IServerConfig;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public final class ServerConfig implements IServerConfig {
     private int port;
     private final int threadPoolSize;
     private final int maxConnections;
     private final String webRoot;
+    private final long mappedFileMaxSize;
+    private final long mappedCacheBudget;
+    private final int mappedPromoteThreshold;
+    private final String uploadRoot;
+    private final boolean uploadDeduplication;
+    private final boolean durableUploads;
+    private final long groupCommitIntervalMillis;
+    private final int groupCommitMaxBatch;
+    private final Map<String, List<String>> proxyRoutes;
+    private final int proxyConnectTimeoutMillis;
+    private final int proxyReadTimeoutMillis;
+    private final int proxyEjectAfterFailures;
+    private final long proxyEjectMillis;
+    private final int httpsPort;
+    private final String keyStorePath;
+    private final String keyStorePassword;
+    private final String keyStoreType;
+    private final List<String> tlsProtocols;
+    private final List<String> tlsCipherSuites;
+    private final List<String> tlsApplicationProtocols;
+    private final int tlsSessionCacheSize;
+    private final int tlsSessionTimeoutSeconds;
+    private final boolean tlsSessionTickets;
+    private final boolean h2cEnabled;
+    private final int http2MaxConcurrentStreams;
+    private final int http2HeaderTableSize;
+    private final int http2MaxRequestBody;
+    private final boolean responseCacheEnabled;
+    private final long responseCacheTtlMillis;
+    private final long responseCacheStaleMillis;
+    private final int responseCacheMaxEntries;
+    private final int responseCacheMaxBodySize;
+    private final List<String> responseCacheVaryHeaders;
+    private final String webRootManifest;
+    private final long webRootIndexValidityMillis;
+    private final String runtimeConfigFile;
+    private final int rateLimitConnectionsPerSecond;
+    private final int rateLimitConnectionBurst;
+    private final int rateLimitRequestsPerSecond;
+    private final int rateLimitRequestBurst;
+    private final int rateLimitMaxClients;
+    private final int bulkheadStaticThreads;
+    private final int bulkheadStaticQueue;
+    private final int bulkheadUploadThreads;
+    private final int bulkheadUploadQueue;
+    private final int bulkheadMutationThreads;
+    private final int bulkheadMutationQueue;
+    private final int bulkheadProxyThreads;
+    private final int bulkheadProxyQueue;
+    private final long maxRequestBodySize;
+    private final int maxRequestHeaderSize;
+    private final int requestBodyMemoryThreshold;
+    private final String requestBodySpillDirectory;
+    private final String resumableUploadPath;
+    private final long resumableUploadMaxSize;
+    private final long resumableUploadExpiryMillis;
+    private final String eventStreamPath;
+    private final int eventRingCapacity;
+    private final int eventMaxSubscribers;
+    private final long eventKeepAliveMillis;
+    private final long eventSlowConsumerMillis;
+    private final String batchPath;
+    private final int batchMaxFiles;
 
     public static class Builder implements IServerConfig.IBuilder {
         private int port = 80;
         private int threadPoolSize = 100;
         private int maxConnections = 400;
         private String webRoot = "./";
+        private long mappedFileMaxSize = 1024 * 1024;
+        private long mappedCacheBudget = 64L * 1024 * 1024;
+        private int mappedPromoteThreshold = 3;
+        private String uploadRoot = "./uploads";
+        private boolean uploadDeduplication = false;
+        private boolean durableUploads = false;
+        private long groupCommitIntervalMillis = 5;
+        private int groupCommitMaxBatch = 64;
+        private final Map<String, List<String>> proxyRoutes = new LinkedHashMap<>();
+        private int proxyConnectTimeoutMillis = 2000;
+        private int proxyReadTimeoutMillis = 30000;
+        private int proxyEjectAfterFailures = 3;
+        private long proxyEjectMillis = 10000;
+        private int httpsPort = 0;
+        private String keyStorePath = null;
+        private String keyStorePassword = "";
+        private String keyStoreType = "PKCS12";
+        private List<String> tlsProtocols = List.of("TLSv1.3", "TLSv1.2");
+        private List<String> tlsCipherSuites = List.of();
+        private List<String> tlsApplicationProtocols = List.of("http/1.1");
+        private int tlsSessionCacheSize = 20000;
+        private int tlsSessionTimeoutSeconds = 86400;
+        private boolean tlsSessionTickets = true;
+        private boolean h2cEnabled = true;
+        private int http2MaxConcurrentStreams = 100;
+        private int http2HeaderTableSize = 4096;
+        private int http2MaxRequestBody = 16 * 1024 * 1024;
+        private boolean responseCacheEnabled = false;
+        private long responseCacheTtlMillis = 1000;
+        private long responseCacheStaleMillis = 10_000;
+        private int responseCacheMaxEntries = 1024;
+        private int responseCacheMaxBodySize = 256 * 1024;
+        private List<String> responseCacheVaryHeaders = List.of(HTTPHeaders.ACCEPT, HTTPHeaders.ACCEPT_ENCODING);
+        private String webRootManifest = null;
+        private long webRootIndexValidityMillis = 2000;
+        private String runtimeConfigFile = null;
+        private int rateLimitConnectionsPerSecond = 0;
+        private int rateLimitConnectionBurst = 20;
+        private int rateLimitRequestsPerSecond = 0;
+        private int rateLimitRequestBurst = 50;
+        private int rateLimitMaxClients = 65_536;
+        private int bulkheadStaticThreads = 64;
+        private int bulkheadStaticQueue = 1024;
+        private int bulkheadUploadThreads = 8;
+        private int bulkheadUploadQueue = 64;
+        private int bulkheadMutationThreads = 16;
+        private int bulkheadMutationQueue = 256;
+        private int bulkheadProxyThreads = 32;
+        private int bulkheadProxyQueue = 256;
+        private long maxRequestBodySize = 100L * 1024 * 1024;
+        private int maxRequestHeaderSize = 16 * 1024;
+        private int requestBodyMemoryThreshold = 64 * 1024;
+        private String requestBodySpillDirectory = null;
+        private String resumableUploadPath = null;
+        private long resumableUploadMaxSize = 10L * 1024 * 1024 * 1024;
+        private long resumableUploadExpiryMillis = 24 * 60 * 60 * 1000L;
+        private String eventStreamPath = null;
+        private int eventRingCapacity = 1024;
+        private int eventMaxSubscribers = 10_000;
+        private long eventKeepAliveMillis = 15_000;
+        private long eventSlowConsumerMillis = 10_000;
+        private String batchPath = null;
+        private int batchMaxFiles = 64;
 
         public Builder port(int port) {
             this.port = port;
@@ -34,6 +165,321 @@ public final class ServerConfig implements IServerConfig {
             return this;
         }
 
+        public Builder mappedFileMaxSize(long bytes) {
+            this.mappedFileMaxSize = bytes;
+            return this;
+        }
+
+        public Builder mappedCacheBudget(long bytes) {
+            this.mappedCacheBudget = bytes;
+            return this;
+        }
+
+        public Builder mappedPromoteThreshold(int requests) {
+            this.mappedPromoteThreshold = requests;
+            return this;
+        }
+
+        public Builder uploadRoot(String root) {
+            this.uploadRoot = root;
+            return this;
+        }
+
+        public Builder uploadDeduplication(boolean enabled) {
+            this.uploadDeduplication = enabled;
+            return this;
+        }
+
+        public Builder durableUploads(boolean enabled) {
+            this.durableUploads = enabled;
+            return this;
+        }
+
+        public Builder groupCommitIntervalMillis(long millis) {
+            this.groupCommitIntervalMillis = millis;
+            return this;
+        }
+
+        public Builder groupCommitMaxBatch(int size) {
+            this.groupCommitMaxBatch = size;
+            return this;
+        }
+
+        public Builder proxyRoute(String prefix, String... upstreams) {
+            this.proxyRoutes.put(prefix, List.of(upstreams));
+            return this;
+        }
+
+        public Builder proxyConnectTimeoutMillis(int millis) {
+            this.proxyConnectTimeoutMillis = millis;
+            return this;
+        }
+
+        public Builder proxyReadTimeoutMillis(int millis) {
+            this.proxyReadTimeoutMillis = millis;
+            return this;
+        }
+
+        public Builder proxyEjectAfterFailures(int failures) {
+            this.proxyEjectAfterFailures = failures;
+            return this;
+        }
+
+        public Builder proxyEjectMillis(long millis) {
+            this.proxyEjectMillis = millis;
+            return this;
+        }
+
+        public Builder httpsPort(int port) {
+            this.httpsPort = port;
+            return this;
+        }
+
+        public Builder keyStorePath(String path) {
+            this.keyStorePath = path;
+            return this;
+        }
+
+        public Builder keyStorePassword(String password) {
+            this.keyStorePassword = password;
+            return this;
+        }
+
+        public Builder keyStoreType(String type) {
+            this.keyStoreType = type;
+            return this;
+        }
+
+        public Builder tlsProtocols(String... protocols) {
+            this.tlsProtocols = List.of(protocols);
+            return this;
+        }
+
+        public Builder tlsCipherSuites(String... suites) {
+            this.tlsCipherSuites = List.of(suites);
+            return this;
+        }
+
+        public Builder tlsApplicationProtocols(String... protocols) {
+            this.tlsApplicationProtocols = List.of(protocols);
+            return this;
+        }
+
+        public Builder tlsSessionCacheSize(int size) {
+            this.tlsSessionCacheSize = size;
+            return this;
+        }
+
+        public Builder tlsSessionTimeoutSeconds(int seconds) {
+            this.tlsSessionTimeoutSeconds = seconds;
+            return this;
+        }
+
+        public Builder tlsSessionTickets(boolean enabled) {
+            this.tlsSessionTickets = enabled;
+            return this;
+        }
+
+        public Builder h2cEnabled(boolean h2cEnabled) {
+            this.h2cEnabled = h2cEnabled;
+            return this;
+        }
+
+        public Builder http2MaxConcurrentStreams(int http2MaxConcurrentStreams) {
+            this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+            return this;
+        }
+
+        public Builder http2HeaderTableSize(int http2HeaderTableSize) {
+            this.http2HeaderTableSize = http2HeaderTableSize;
+            return this;
+        }
+
+        public Builder http2MaxRequestBody(int http2MaxRequestBody) {
+            this.http2MaxRequestBody = http2MaxRequestBody;
+            return this;
+        }
+
+        public Builder responseCacheEnabled(boolean enabled) {
+            this.responseCacheEnabled = enabled;
+            return this;
+        }
+
+        public Builder responseCacheTtlMillis(long millis) {
+            this.responseCacheTtlMillis = millis;
+            return this;
+        }
+
+        public Builder responseCacheStaleMillis(long millis) {
+            this.responseCacheStaleMillis = millis;
+            return this;
+        }
+
+        public Builder responseCacheMaxEntries(int maxEntries) {
+            this.responseCacheMaxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder responseCacheMaxBodySize(int maxBodySize) {
+            this.responseCacheMaxBodySize = maxBodySize;
+            return this;
+        }
+
+        public Builder responseCacheVaryHeaders(String... headers) {
+            this.responseCacheVaryHeaders = List.of(headers);
+            return this;
+        }
+
+        public Builder webRootManifest(String path) {
+            this.webRootManifest = path;
+            return this;
+        }
+
+        public Builder webRootIndexValidityMillis(long millis) {
+            this.webRootIndexValidityMillis = millis;
+            return this;
+        }
+
+        public Builder runtimeConfigFile(String path) {
+            this.runtimeConfigFile = path;
+            return this;
+        }
+
+        public Builder rateLimitConnectionsPerSecond(int rate) {
+            this.rateLimitConnectionsPerSecond = rate;
+            return this;
+        }
+
+        public Builder rateLimitConnectionBurst(int burst) {
+            this.rateLimitConnectionBurst = burst;
+            return this;
+        }
+
+        public Builder rateLimitRequestsPerSecond(int rate) {
+            this.rateLimitRequestsPerSecond = rate;
+            return this;
+        }
+
+        public Builder rateLimitRequestBurst(int burst) {
+            this.rateLimitRequestBurst = burst;
+            return this;
+        }
+
+        public Builder rateLimitMaxClients(int clients) {
+            this.rateLimitMaxClients = clients;
+            return this;
+        }
+
+        public Builder bulkheadStaticThreads(int threads) {
+            this.bulkheadStaticThreads = threads;
+            return this;
+        }
+
+        public Builder bulkheadStaticQueue(int capacity) {
+            this.bulkheadStaticQueue = capacity;
+            return this;
+        }
+
+        public Builder bulkheadUploadThreads(int threads) {
+            this.bulkheadUploadThreads = threads;
+            return this;
+        }
+
+        public Builder bulkheadUploadQueue(int capacity) {
+            this.bulkheadUploadQueue = capacity;
+            return this;
+        }
+
+        public Builder bulkheadMutationThreads(int threads) {
+            this.bulkheadMutationThreads = threads;
+            return this;
+        }
+
+        public Builder bulkheadMutationQueue(int capacity) {
+            this.bulkheadMutationQueue = capacity;
+            return this;
+        }
+
+        public Builder bulkheadProxyThreads(int threads) {
+            this.bulkheadProxyThreads = threads;
+            return this;
+        }
+
+        public Builder bulkheadProxyQueue(int capacity) {
+            this.bulkheadProxyQueue = capacity;
+            return this;
+        }
+
+        public Builder maxRequestBodySize(long bytes) {
+            this.maxRequestBodySize = bytes;
+            return this;
+        }
+
+        public Builder maxRequestHeaderSize(int bytes) {
+            this.maxRequestHeaderSize = bytes;
+            return this;
+        }
+
+        public Builder requestBodyMemoryThreshold(int bytes) {
+            this.requestBodyMemoryThreshold = bytes;
+            return this;
+        }
+
+        public Builder requestBodySpillDirectory(String path) {
+            this.requestBodySpillDirectory = path;
+            return this;
+        }
+
+        public Builder resumableUploadPath(String path) {
+            this.resumableUploadPath = path;
+            return this;
+        }
+
+        public Builder resumableUploadMaxSize(long bytes) {
+            this.resumableUploadMaxSize = bytes;
+            return this;
+        }
+
+        public Builder resumableUploadExpiryMillis(long millis) {
+            this.resumableUploadExpiryMillis = millis;
+            return this;
+        }
+
+        public Builder eventStreamPath(String path) {
+            this.eventStreamPath = path;
+            return this;
+        }
+
+        public Builder eventRingCapacity(int frames) {
+            this.eventRingCapacity = frames;
+            return this;
+        }
+
+        public Builder eventMaxSubscribers(int subscribers) {
+            this.eventMaxSubscribers = subscribers;
+            return this;
+        }
+
+        public Builder eventKeepAliveMillis(long millis) {
+            this.eventKeepAliveMillis = millis;
+            return this;
+        }
+
+        public Builder eventSlowConsumerMillis(long millis) {
+            this.eventSlowConsumerMillis = millis;
+            return this;
+        }
+
+        public Builder batchPath(String path) {
+            this.batchPath = path;
+            return this;
+        }
+
+        public Builder batchMaxFiles(int files) {
+            this.batchMaxFiles = files;
+            return this;
+        }
+
         public ServerConfig build() {
             return new ServerConfig(this);
         }
@@ -44,6 +490,69 @@ public final class ServerConfig implements IServerConfig {
         this.threadPoolSize = builder.threadPoolSize;
         this.maxConnections = builder.maxConnections;
         this.webRoot = builder.webRoot;
+        this.mappedFileMaxSize = builder.mappedFileMaxSize;
+        this.mappedCacheBudget = builder.mappedCacheBudget;
+        this.mappedPromoteThreshold = builder.mappedPromoteThreshold;
+        this.uploadRoot = builder.uploadRoot;
+        this.uploadDeduplication = builder.uploadDeduplication;
+        this.durableUploads = builder.durableUploads;
+        this.groupCommitIntervalMillis = builder.groupCommitIntervalMillis;
+        this.groupCommitMaxBatch = builder.groupCommitMaxBatch;
+        this.proxyRoutes = Map.copyOf(builder.proxyRoutes);
+        this.proxyConnectTimeoutMillis = builder.proxyConnectTimeoutMillis;
+        this.proxyReadTimeoutMillis = builder.proxyReadTimeoutMillis;
+        this.proxyEjectAfterFailures = builder.proxyEjectAfterFailures;
+        this.proxyEjectMillis = builder.proxyEjectMillis;
+        this.httpsPort = builder.httpsPort;
+        this.keyStorePath = builder.keyStorePath;
+        this.keyStorePassword = builder.keyStorePassword;
+        this.keyStoreType = builder.keyStoreType;
+        this.tlsProtocols = builder.tlsProtocols;
+        this.tlsCipherSuites = builder.tlsCipherSuites;
+        this.tlsApplicationProtocols = builder.tlsApplicationProtocols;
+        this.tlsSessionCacheSize = builder.tlsSessionCacheSize;
+        this.tlsSessionTimeoutSeconds = builder.tlsSessionTimeoutSeconds;
+        this.tlsSessionTickets = builder.tlsSessionTickets;
+        this.h2cEnabled = builder.h2cEnabled;
+        this.http2MaxConcurrentStreams = builder.http2MaxConcurrentStreams;
+        this.http2HeaderTableSize = builder.http2HeaderTableSize;
+        this.http2MaxRequestBody = builder.http2MaxRequestBody;
+        this.responseCacheEnabled = builder.responseCacheEnabled;
+        this.responseCacheTtlMillis = builder.responseCacheTtlMillis;
+        this.responseCacheStaleMillis = builder.responseCacheStaleMillis;
+        this.responseCacheMaxEntries = builder.responseCacheMaxEntries;
+        this.responseCacheMaxBodySize = builder.responseCacheMaxBodySize;
+        this.responseCacheVaryHeaders = builder.responseCacheVaryHeaders;
+        this.webRootManifest = builder.webRootManifest;
+        this.webRootIndexValidityMillis = builder.webRootIndexValidityMillis;
+        this.runtimeConfigFile = builder.runtimeConfigFile;
+        this.rateLimitConnectionsPerSecond = builder.rateLimitConnectionsPerSecond;
+        this.rateLimitConnectionBurst = builder.rateLimitConnectionBurst;
+        this.rateLimitRequestsPerSecond = builder.rateLimitRequestsPerSecond;
+        this.rateLimitRequestBurst = builder.rateLimitRequestBurst;
+        this.rateLimitMaxClients = builder.rateLimitMaxClients;
+        this.bulkheadStaticThreads = builder.bulkheadStaticThreads;
+        this.bulkheadStaticQueue = builder.bulkheadStaticQueue;
+        this.bulkheadUploadThreads = builder.bulkheadUploadThreads;
+        this.bulkheadUploadQueue = builder.bulkheadUploadQueue;
+        this.bulkheadMutationThreads = builder.bulkheadMutationThreads;
+        this.bulkheadMutationQueue = builder.bulkheadMutationQueue;
+        this.bulkheadProxyThreads = builder.bulkheadProxyThreads;
+        this.bulkheadProxyQueue = builder.bulkheadProxyQueue;
+        this.maxRequestBodySize = builder.maxRequestBodySize;
+        this.maxRequestHeaderSize = builder.maxRequestHeaderSize;
+        this.requestBodyMemoryThreshold = builder.requestBodyMemoryThreshold;
+        this.requestBodySpillDirectory = builder.requestBodySpillDirectory;
+        this.resumableUploadPath = builder.resumableUploadPath;
+        this.resumableUploadMaxSize = builder.resumableUploadMaxSize;
+        this.resumableUploadExpiryMillis = builder.resumableUploadExpiryMillis;
+        this.eventStreamPath = builder.eventStreamPath;
+        this.eventRingCapacity = builder.eventRingCapacity;
+        this.eventMaxSubscribers = builder.eventMaxSubscribers;
+        this.eventKeepAliveMillis = builder.eventKeepAliveMillis;
+        this.eventSlowConsumerMillis = builder.eventSlowConsumerMillis;
+        this.batchPath = builder.batchPath;
+        this.batchMaxFiles = builder.batchMaxFiles;
     }
 
     // Getters
@@ -51,6 +560,69 @@ public final class ServerConfig implements IServerConfig {
     public int getThreadPoolSize() { return threadPoolSize; }
     public int getMaxConnections() { return maxConnections; }
     public String getWebRoot() { return webRoot; }
+    public long getMappedFileMaxSize() { return mappedFileMaxSize; }
+    public long getMappedCacheBudget() { return mappedCacheBudget; }
+    public int getMappedPromoteThreshold() { return mappedPromoteThreshold; }
+    public String getUploadRoot() { return uploadRoot; }
+    public boolean isUploadDeduplication() { return uploadDeduplication; }
+    public boolean isDurableUploads() { return durableUploads; }
+    public long getGroupCommitIntervalMillis() { return groupCommitIntervalMillis; }
+    public int getGroupCommitMaxBatch() { return groupCommitMaxBatch; }
+    public Map<String, List<String>> getProxyRoutes() { return proxyRoutes; }
+    public int getProxyConnectTimeoutMillis() { return proxyConnectTimeoutMillis; }
+    public int getProxyReadTimeoutMillis() { return proxyReadTimeoutMillis; }
+    public int getProxyEjectAfterFailures() { return proxyEjectAfterFailures; }
+    public long getProxyEjectMillis() { return proxyEjectMillis; }
+    public int getHttpsPort() { return httpsPort; }
+    public String getKeyStorePath() { return keyStorePath; }
+    public String getKeyStorePassword() { return keyStorePassword; }
+    public String getKeyStoreType() { return keyStoreType; }
+    public List<String> getTlsProtocols() { return tlsProtocols; }
+    public List<String> getTlsCipherSuites() { return tlsCipherSuites; }
+    public List<String> getTlsApplicationProtocols() { return tlsApplicationProtocols; }
+    public int getTlsSessionCacheSize() { return tlsSessionCacheSize; }
+    public int getTlsSessionTimeoutSeconds() { return tlsSessionTimeoutSeconds; }
+    public boolean isTlsSessionTickets() { return tlsSessionTickets; }
+    public boolean isH2cEnabled() { return h2cEnabled; }
+    public int getHttp2MaxConcurrentStreams() { return http2MaxConcurrentStreams; }
+    public int getHttp2HeaderTableSize() { return http2HeaderTableSize; }
+    public int getHttp2MaxRequestBody() { return http2MaxRequestBody; }
+    public boolean isResponseCacheEnabled() { return responseCacheEnabled; }
+    public long getResponseCacheTtlMillis() { return responseCacheTtlMillis; }
+    public long getResponseCacheStaleMillis() { return responseCacheStaleMillis; }
+    public int getResponseCacheMaxEntries() { return responseCacheMaxEntries; }
+    public int getResponseCacheMaxBodySize() { return responseCacheMaxBodySize; }
+    public List<String> getResponseCacheVaryHeaders() { return responseCacheVaryHeaders; }
+    public String getWebRootManifest() { return webRootManifest; }
+    public long getWebRootIndexValidityMillis() { return webRootIndexValidityMillis; }
+    public String getRuntimeConfigFile() { return runtimeConfigFile; }
+    public int getRateLimitConnectionsPerSecond() { return rateLimitConnectionsPerSecond; }
+    public int getRateLimitConnectionBurst() { return rateLimitConnectionBurst; }
+    public int getRateLimitRequestsPerSecond() { return rateLimitRequestsPerSecond; }
+    public int getRateLimitRequestBurst() { return rateLimitRequestBurst; }
+    public int getRateLimitMaxClients() { return rateLimitMaxClients; }
+    public int getBulkheadStaticThreads() { return bulkheadStaticThreads; }
+    public int getBulkheadStaticQueue() { return bulkheadStaticQueue; }
+    public int getBulkheadUploadThreads() { return bulkheadUploadThreads; }
+    public int getBulkheadUploadQueue() { return bulkheadUploadQueue; }
+    public int getBulkheadMutationThreads() { return bulkheadMutationThreads; }
+    public int getBulkheadMutationQueue() { return bulkheadMutationQueue; }
+    public int getBulkheadProxyThreads() { return bulkheadProxyThreads; }
+    public int getBulkheadProxyQueue() { return bulkheadProxyQueue; }
+    public long getMaxRequestBodySize() { return maxRequestBodySize; }
+    public int getMaxRequestHeaderSize() { return maxRequestHeaderSize; }
+    public int getRequestBodyMemoryThreshold() { return requestBodyMemoryThreshold; }
+    public String getRequestBodySpillDirectory() { return requestBodySpillDirectory; }
+    public String getResumableUploadPath() { return resumableUploadPath; }
+    public long getResumableUploadMaxSize() { return resumableUploadMaxSize; }
+    public long getResumableUploadExpiryMillis() { return resumableUploadExpiryMillis; }
+    public String getEventStreamPath() { return eventStreamPath; }
+    public int getEventRingCapacity() { return eventRingCapacity; }
+    public int getEventMaxSubscribers() { return eventMaxSubscribers; }
+    public long getEventKeepAliveMillis() { return eventKeepAliveMillis; }
+    public long getEventSlowConsumerMillis() { return eventSlowConsumerMillis; }
+    public String getBatchPath() { return batchPath; }
+    public int getBatchMaxFiles() { return batchMaxFiles; }
 
     // Setters
     public void setPort(int port) {
@@ -0,0 +1,25 @@
+package com.ericduncandev.HTTP.core;
+
+import com.ericduncandev.HTTP.cache.MappedFileCache;
+import com.ericduncandev.HTTP.cache.ResponseCache;
+import com.ericduncandev.HTTP.index.WebRootIndex;
+import com.ericduncandev.HTTP.limit.Bulkheads;
+import com.ericduncandev.HTTP.limit.RateLimiter;
+import com.ericduncandev.HTTP.proxy.ProxyRouter;
+import com.ericduncandev.HTTP.sse.EventBroadcaster;
+import com.ericduncandev.HTTP.storage.GroupCommitter;
+import com.ericduncandev.HTTP.storage.ResumableUploads;
+import com.ericduncandev.HTTP.storage.UploadStore;
+
+/**
+ * Server-wide components shared by every connection.
+ * groupCommitter is null unless durable uploads are enabled, responseCache unless micro-caching is,
+ * rateLimiter unless a rate limit is configured, and resumableUploads and events unless an endpoint for them is.
+ * Requests run on the worker pool {@code bulkheads} picks for them.
+ * Settings that can change at runtime are read from {@code liveConfig} rather than {@code config}.
+ */
+public record ServerContext(ServerConfig config, LiveConfig liveConfig, WebRootIndex webRoot, MappedFileCache mappedFiles,
+                            UploadStore uploadStore, GroupCommitter groupCommitter, ProxyRouter proxyRouter,
+                            ResponseCache responseCache, RateLimiter rateLimiter, ResumableUploads resumableUploads,
+                            EventBroadcaster events, Bulkheads bulkheads) {
+}
@@ -0,0 +1,230 @@
+package com.ericduncandev.HTTP.factory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming writer for the JSON the server produces itself: error bodies, upload summaries and events.
+ * Values are encoded as UTF-8, with JSON escaping, straight into one growing byte array that becomes
+ * the response body, so no object tree or intermediate string is built. Separators are inserted
+ * automatically; the caller is responsible for balancing {@code begin} and {@code end} calls and for
+ * following each {@link #name} with exactly one value. Output is compact. Instances are not thread-safe.
+ */
+public final class JsonWriter {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    private byte[] buffer;
+    private int count;
+    // whether the next value opens its container, or directly follows a name; neither takes a comma
+    private boolean first = true;
+    private boolean afterName;
+
+    public JsonWriter() {
+        this(128);
+    }
+
+    /**
+     * @param capacity the expected size of the output in bytes; the buffer grows past it if needed
+     */
+    public JsonWriter(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        write('{');
+        first = true;
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        write('}');
+        first = false;
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        write('[');
+        first = true;
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        write(']');
+        first = false;
+        return this;
+    }
+
+    /**
+     * Writes a member name; the next call must write its value.
+     */
+    public JsonWriter name(String name) {
+        beforeValue();
+        string(name);
+        write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * @param value the string, or null for a JSON null
+     */
+    public JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            write(NULL);
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return this;
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        write(value ? TRUE : FALSE);
+        return this;
+    }
+
+    public JsonWriter nullValue() {
+        beforeValue();
+        write(NULL);
+        return this;
+    }
+
+    /**
+     * @return the output, without copying it; the writer must not be used afterwards
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, count);
+    }
+
+    /**
+     * @return a copy of the output
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, count, StandardCharsets.UTF_8);
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+        } else if (first) {
+            first = false;
+        } else {
+            write(',');
+        }
+    }
+
+    private void string(String value) {
+        int length = value.length();
+        // the common case of ASCII without escapes needs this plus the quotes; anything else grows as it goes
+        ensureCapacity(length + 2);
+        buffer[count++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                ensureCapacity(1);
+                buffer[count++] = (byte) c;
+            } else if (c < 0x80) {
+                escape(c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[count++] = (byte) (0xC0 | c >> 6);
+                buffer[count++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(4);
+                buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate has no UTF-8 encoding; String.getBytes substitutes it the same way
+                ensureCapacity(1);
+                buffer[count++] = '?';
+            } else {
+                ensureCapacity(3);
+                buffer[count++] = (byte) (0xE0 | c >> 12);
+                buffer[count++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[count++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        write('"');
+    }
+
+    private void escape(char c) {
+        char shorthand = switch (c) {
+            case '"' -> '"';
+            case '\\' -> '\\';
+            case '\b' -> 'b';
+            case '\f' -> 'f';
+            case '\n' -> 'n';
+            case '\r' -> 'r';
+            case '\t' -> 't';
+            default -> 0;
+        };
+        if (shorthand != 0) {
+            ensureCapacity(2);
+            buffer[count++] = '\\';
+            buffer[count++] = (byte) shorthand;
+        } else {
+            ensureCapacity(6);
+            buffer[count++] = '\\';
+            buffer[count++] = 'u';
+            buffer[count++] = '0';
+            buffer[count++] = '0';
+            buffer[count++] = HEX[c >> 4];
+            buffer[count++] = HEX[c & 0xF];
+        }
+    }
+
+    private void write(int b) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + extra));
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package com.ericduncandev.HTTP.factory;
 
 import com.ericduncandev.HTTP.interfaces.IResponseFactory;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
 import com.ericduncandev.HTTP.model.HTTPResponse;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.json.JSONObject;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 
 public final class ResponseFactory {
     private static final String DEFAULT_PROTOCOL = "HTTP/1.1";
+    private static final String TUS_VERSION = "1.0.0";
     private static final Logger logger = LogManager.getLogger(ResponseFactory.class);
 
 
@@ -28,6 +34,68 @@ public final class ResponseFactory {
                 .build();
     }
 
+    /**
+     * Creates a 200 OK response whose body is served from a buffer, such as a memory-mapped file.
+     * @param body The response body buffer, positioned at its first byte
+     * @param contentType The MIME type of the content
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse ok(ByteBuffer body, String contentType) {
+        logger.debug("200 OK");
+        return new HTTPResponse.Builder()
+                .statusCode(200)
+                .body(body)
+                .contentType(contentType)
+                .build();
+    }
+
+    /**
+     * Creates a 200 OK response for a static file, with validators for conditional requests.
+     * @param body The file contents, positioned at the first byte
+     * @param contentType The MIME type of the content
+     * @param etag The entity tag of this version of the file
+     * @param lastModified The file's modification time in milliseconds since the epoch
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse ok(ByteBuffer body, String contentType, String etag, long lastModified) {
+        logger.debug("200 OK");
+        return new HTTPResponse.Builder()
+                .statusCode(200)
+                .body(body)
+                .contentType(contentType)
+                .header(HTTPHeaders.ETAG, etag)
+                .header(HTTPHeaders.LAST_MODIFIED, httpDate(lastModified))
+                .build();
+    }
+
+    /**
+     * Creates a 304 Not Modified response for a conditional request whose cached copy is current.
+     * @param etag The entity tag the client's copy matched
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse notModified(String etag) {
+        logger.debug("304 Not Modified");
+        return new HTTPResponse.Builder()
+                .statusCode(304)
+                .header(HTTPHeaders.ETAG, etag)
+                .build();
+    }
+
+    // the {"error", "message"} object every JSON error response carries
+    private static ByteBuffer errorBody(String error, String message) {
+        return new JsonWriter(message == null ? 64 : 64 + message.length())
+                .beginObject()
+                .name("error").value(error)
+                .name("message").value(message)
+                .endObject()
+                .toByteBuffer();
+    }
+
+    private static String httpDate(long epochMillis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+    }
+
     /**
      * Creates a 201 Created response with body, content type, and location.
      * @param body The response body as byte array
@@ -45,6 +113,23 @@ public final class ResponseFactory {
                 .build();
     }
 
+    /**
+     * Creates a 201 Created response whose body is served from a buffer, such as a {@link JsonWriter}'s output.
+     * @param body The response body buffer, positioned at its first byte
+     * @param contentType The MIME type of the content
+     * @param location The URI of the created resource
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse created(ByteBuffer body, String contentType, String location) {
+        logger.debug("201 Created");
+        return new HTTPResponse.Builder()
+                .statusCode(201)
+                .contentType(contentType)
+                .location(location)
+                .body(body)
+                .build();
+    }
+
     /**
      * Creates a 204 No Content response with content location.
      * @param contentLocation The location of the content
@@ -80,13 +165,9 @@ public final class ResponseFactory {
      */
     public static HTTPResponse badRequest(String message) {
         logger.warn("400 Bad Request");
-        JSONObject errorJson = new JSONObject();
-        errorJson.put("error", "Bad Request");
-        errorJson.put("message", message);
-
         return new HTTPResponse.Builder()
                 .statusCode(400)
-                .body(errorJson.toString().getBytes())
+                .body(errorBody("Bad Request", message))
                 .contentType("application/json")
                 .build();
     }
@@ -99,15 +180,10 @@ public final class ResponseFactory {
      */
     public static HTTPResponse forbidden(String message) {
         logger.warn("403 Forbidden");
-        JSONObject errorJson = new JSONObject();
-        errorJson.put("error", "InsufficientPermissions");
-        errorJson.put("message", message);
-
-
         return new HTTPResponse.Builder()
                 .statusCode(403)
                 .contentType("application/json")
-                .body(errorJson.toString().getBytes())
+                .body(errorBody("InsufficientPermissions", message))
                 .build();
 
 
@@ -136,13 +212,9 @@ public final class ResponseFactory {
      */
     public static HTTPResponse serverError(String message) {
         logger.error("500 Internal Server Error");
-        JSONObject errorJson = new JSONObject();
-        errorJson.put("error", "Server error");
-        errorJson.put("message", message);
-
         return new HTTPResponse.Builder()
                 .statusCode(500)
-                .body(errorJson.toString().getBytes())
+                .body(errorBody("Server error", message))
                 .contentType("application/json")
                 .build();
     }
@@ -162,6 +234,34 @@ public final class ResponseFactory {
                 .build();
     }
 
+    /**
+     * Creates a 502 Bad Gateway response with error message, used when an upstream fails.
+     * @param message The error message
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse badGateway(String message) {
+        logger.error("502 Bad Gateway");
+        return new HTTPResponse.Builder()
+                .statusCode(502)
+                .body(errorBody("Bad gateway", message))
+                .contentType("application/json")
+                .build();
+    }
+
+    /**
+     * Creates a 501 Not Implemented response with error message, for a feature the connection cannot carry.
+     * @param message The error message
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse notImplemented(String message) {
+        logger.warn("501 Not Implemented");
+        return new HTTPResponse.Builder()
+                .statusCode(501)
+                .body(errorBody("Not implemented", message))
+                .contentType("application/json")
+                .build();
+    }
+
     /**
      * Creates a 503 Service Unavailable response.
      * @return HTTPResponse object
@@ -176,7 +276,180 @@ public final class ResponseFactory {
                 .statusCode(503)
                 .body(body.getBytes(StandardCharsets.UTF_8))
                 .contentType("text/html")
-                .header("Retry-After", "60")  // Suggests client to retry after 60 seconds
+                .header(HTTPHeaders.RETRY_AFTER, "60")  // Suggests client to retry after 60 seconds
+                .build();
+    }
+
+    /**
+     * Creates a 405 Method Not Allowed response.
+     * @param allowed The methods the server does support, for the Allow header
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse methodNotAllowed(String allowed) {
+        logger.warn("405 Method Not Allowed");
+        return new HTTPResponse.Builder()
+                .statusCode(405)
+                .header(HTTPHeaders.ALLOW, allowed)
+                .body(errorBody("Method not allowed", "Supported methods are %s".formatted(allowed)))
+                .contentType("application/json")
+                .build();
+    }
+
+    /**
+     * Creates a 417 Expectation Failed response, for an Expect header other than 100-continue.
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse expectationFailed() {
+        logger.warn("417 Expectation Failed");
+        return new HTTPResponse.Builder()
+                .statusCode(417)
+                .body(errorBody("Expectation failed", "Only the 100-continue expectation is supported"))
+                .contentType("application/json")
+                .build();
+    }
+
+    /**
+     * Creates a 413 Content Too Large response.
+     * @param maxBytes The largest body the server accepts
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse payloadTooLarge(long maxBytes) {
+        logger.warn("413 Content Too Large");
+        return new HTTPResponse.Builder()
+                .statusCode(413)
+                .body(errorBody("Content too large", "Request body exceeds %d bytes".formatted(maxBytes)))
+                .contentType("application/json")
+                .build();
+    }
+
+    /**
+     * Creates a 431 Request Header Fields Too Large response.
+     * @param maxBytes The largest request line and header section the server accepts
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse requestHeaderFieldsTooLarge(int maxBytes) {
+        logger.warn("431 Request Header Fields Too Large");
+        return new HTTPResponse.Builder()
+                .statusCode(431)
+                .body(errorBody("Request header fields too large", "Request line and headers exceed %d bytes".formatted(maxBytes)))
+                .contentType("application/json")
+                .build();
+    }
+
+    /**
+     * Creates a 429 Too Many Requests response.
+     * @param retryAfterSeconds The number of seconds the client should wait before retrying
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse tooManyRequests(long retryAfterSeconds) {
+        // debug rather than error: a client being limited would otherwise flood the log as well
+        logger.debug("429 Too Many Requests");
+        String body = "<html><body>" +
+                "<h1>429 Too Many Requests</h1>" +
+                "<p>Too many requests from this address. Retry after %d seconds.</p>".formatted(retryAfterSeconds) +
+                "</body></html>";
+        return new HTTPResponse.Builder()
+                .statusCode(429)
+                .body(body.getBytes(StandardCharsets.UTF_8))
+                .contentType("text/html")
+                .header(HTTPHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .build();
+    }
+
+    /**
+     * Creates a 409 Conflict response, for a request that does not fit the resource's current state.
+     * @param message The error message
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse conflict(String message) {
+        logger.warn("409 Conflict");
+        return new HTTPResponse.Builder()
+                .statusCode(409)
+                .body(errorBody("Conflict", message))
+                .contentType("application/json")
+                .build();
+    }
+
+    /**
+     * Creates a 415 Unsupported Media Type response.
+     * @param message The error message
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse unsupportedMediaType(String message) {
+        logger.warn("415 Unsupported Media Type");
+        return new HTTPResponse.Builder()
+                .statusCode(415)
+                .body(errorBody("Unsupported media type", message))
+                .contentType("application/json")
+                .build();
+    }
+
+    /**
+     * Creates a 201 Created response for a new resumable upload session.
+     * @param location The URI chunks of the upload are sent to
+     * @param expiresAt When the session expires without further chunks, in milliseconds since the epoch
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse uploadCreated(String location, long expiresAt) {
+        logger.debug("201 Created");
+        return new HTTPResponse.Builder()
+                .statusCode(201)
+                .location(location)
+                .header(HTTPHeaders.TUS_RESUMABLE, TUS_VERSION)
+                .header(HTTPHeaders.UPLOAD_EXPIRES, httpDate(expiresAt))
+                .build();
+    }
+
+    /**
+     * Creates a bodiless response reporting how far a resumable upload has got: 200 for a HEAD request
+     * asking where to resume, 204 for an accepted chunk.
+     * @param statusCode The HTTP status code
+     * @param offset The number of bytes received so far
+     * @param length The total length of the upload
+     * @param expiresAt When the session expires, in milliseconds since the epoch, or 0 once it is complete
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse uploadProgress(int statusCode, long offset, long length, long expiresAt) {
+        logger.debug("{} upload at {} of {}", statusCode, offset, length);
+        HTTPResponse.Builder builder = new HTTPResponse.Builder()
+                .statusCode(statusCode)
+                .header(HTTPHeaders.TUS_RESUMABLE, TUS_VERSION)
+                .header(HTTPHeaders.UPLOAD_OFFSET, String.valueOf(offset))
+                .header(HTTPHeaders.UPLOAD_LENGTH, String.valueOf(length))
+                // offsets change with every chunk, so they must never be answered from a cache
+                .header(HTTPHeaders.CACHE_CONTROL, "no-store");
+        if (expiresAt > 0) {
+            builder.header(HTTPHeaders.UPLOAD_EXPIRES, httpDate(expiresAt));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a 204 No Content response describing the resumable upload protocol the server speaks.
+     * @param maxSize The largest upload the server accepts
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse uploadOptions(long maxSize) {
+        logger.debug("204 No Content");
+        return new HTTPResponse.Builder()
+                .statusCode(204)
+                .header(HTTPHeaders.TUS_RESUMABLE, TUS_VERSION)
+                .header(HTTPHeaders.TUS_VERSION, TUS_VERSION)
+                .header(HTTPHeaders.TUS_EXTENSION, "creation,expiration,termination")
+                .header(HTTPHeaders.TUS_MAX_SIZE, String.valueOf(maxSize))
+                .build();
+    }
+
+    /**
+     * Creates a 101 Switching Protocols response accepting an upgrade.
+     * @param protocol The protocol the connection switches to
+     * @return HTTPResponse object
+     */
+    public static HTTPResponse switchingProtocols(String protocol) {
+        return new HTTPResponse.Builder()
+                .statusCode(101)
+                .header(HTTPHeaders.CONNECTION, "Upgrade")
+                .header(HTTPHeaders.UPGRADE, protocol)
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.ericduncandev.HTTP.http2;
+
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes HPACK header blocks (RFC 7541) for one connection. The dynamic table never grows beyond
+ * the size this server advertised in SETTINGS_HEADER_TABLE_SIZE, whatever the peer asks for.
+ */
+final class HpackDecoder {
+    private final HpackTable table;
+    private final int maxTableSize;
+    private final int maxHeaderListSize;
+
+    HpackDecoder(int maxTableSize, int maxHeaderListSize) {
+        this.table = new HpackTable(maxTableSize);
+        this.maxTableSize = maxTableSize;
+        this.maxHeaderListSize = maxHeaderListSize;
+    }
+
+    /**
+     * Decodes a complete header block. Header names are kept exactly as sent, pseudo-headers included.
+     * The whole block is always consumed so the dynamic table stays in step with the encoder, even
+     * when the decoded list ends up too large.
+     * @throws Http2Exception with COMPRESSION_ERROR for malformed blocks, or ENHANCE_YOUR_CALM (stream id 0,
+     *         to be filled in by the caller) when the list exceeds the advertised maximum size
+     */
+    HTTPHeaders decode(byte[] block, int offset, int length) throws Http2Exception {
+        HTTPHeaders headers = new HTTPHeaders();
+        int[] position = {offset};
+        int end = offset + length;
+        long listSize = 0;
+        boolean headerSeen = false;
+        while (position[0] < end) {
+            int b = block[position[0]] & 0xff;
+            String name;
+            String value;
+            if ((b & 0x80) != 0) {
+                // indexed header field
+                int index = decodeInteger(block, position, end, 7);
+                name = table.name(index);
+                value = table.value(index);
+            } else if ((b & 0x40) != 0) {
+                // literal with incremental indexing
+                int index = decodeInteger(block, position, end, 6);
+                name = index == 0 ? decodeString(block, position, end) : table.name(index);
+                value = decodeString(block, position, end);
+                table.add(name, value);
+            } else if ((b & 0x20) != 0) {
+                // dynamic table size update, only allowed before the first header of a block
+                if (headerSeen) {
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Table size update after header field");
+                }
+                int newSize = decodeInteger(block, position, end, 5);
+                if (newSize > maxTableSize) {
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR,
+                            "Table size %d exceeds the advertised %d".formatted(newSize, maxTableSize));
+                }
+                table.setMaxSize(newSize);
+                continue;
+            } else {
+                // literal without indexing (0000) or never indexed (0001)
+                int index = decodeInteger(block, position, end, 4);
+                name = index == 0 ? decodeString(block, position, end) : table.name(index);
+                value = decodeString(block, position, end);
+            }
+            headerSeen = true;
+            listSize += HpackTable.entrySize(name, value);
+            if (listSize <= maxHeaderListSize) {
+                headers.add(name, value);
+            }
+        }
+        if (listSize > maxHeaderListSize) {
+            throw new Http2Exception(Http2Exception.ENHANCE_YOUR_CALM,
+                    "Header list exceeds %d bytes".formatted(maxHeaderListSize));
+        }
+        return headers;
+    }
+
+    private static int decodeInteger(byte[] block, int[] position, int end, int prefixBits) throws Http2Exception {
+        int mask = (1 << prefixBits) - 1;
+        int value = block[position[0]++] & mask;
+        if (value < mask) {
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (position[0] >= end) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated integer");
+            }
+            int b = block[position[0]++] & 0xff;
+            value += (b & 0x7f) << shift;
+            if (value < 0 || shift > 21) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Integer overflow");
+            }
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static String decodeString(byte[] block, int[] position, int end) throws Http2Exception {
+        if (position[0] >= end) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated string");
+        }
+        boolean huffman = (block[position[0]] & 0x80) != 0;
+        int length = decodeInteger(block, position, end, 7);
+        if (length > end - position[0]) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "String exceeds header block");
+        }
+        int start = position[0];
+        position[0] += length;
+        return huffman
+                ? Huffman.decode(block, start, length)
+                : new String(block, start, length, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,97 @@
+package com.ericduncandev.HTTP.http2;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes response header blocks for one connection. Repeated headers are sent as table indexes;
+ * values that change on every response, and credentials, are sent as literals that are never indexed
+ * so they do not churn the peer's dynamic table. Strings are Huffman coded whenever that is shorter.
+ */
+final class HpackEncoder {
+    private final HpackTable table;
+    private final int preferredTableSize;
+    private int pendingSizeUpdate = -1;
+
+    HpackEncoder(int preferredTableSize) {
+        this.preferredTableSize = preferredTableSize;
+        this.table = new HpackTable(preferredTableSize);
+    }
+
+    /**
+     * Applies the peer's SETTINGS_HEADER_TABLE_SIZE; the change is signalled at the start of the next block.
+     */
+    void setPeerMaxTableSize(int peerMaxSize) {
+        int size = Math.min(peerMaxSize, preferredTableSize);
+        if (size != table.getMaxSize()) {
+            table.setMaxSize(size);
+            pendingSizeUpdate = size;
+        }
+    }
+
+    void beginBlock(ByteArrayOutputStream out) {
+        if (pendingSizeUpdate != -1) {
+            encodeInteger(out, 0x20, 5, pendingSizeUpdate);
+            pendingSizeUpdate = -1;
+        }
+    }
+
+    /**
+     * Encodes one header; the name must already be lowercase.
+     */
+    void encode(String name, String value, ByteArrayOutputStream out) {
+        int index = table.find(name, value);
+        if (index > 0) {
+            encodeInteger(out, 0x80, 7, index);
+            return;
+        }
+        boolean sensitive = isSensitive(name);
+        if (sensitive || isVolatile(name)) {
+            // never indexed (0001) for secrets, without indexing (0000) for per-response values
+            encodeInteger(out, sensitive ? 0x10 : 0x00, 4, -index);
+        } else {
+            encodeInteger(out, 0x40, 6, -index);
+            table.add(name, value);
+        }
+        if (index == 0) {
+            encodeString(out, name);
+        }
+        encodeString(out, value);
+    }
+
+    private static boolean isSensitive(String name) {
+        return name.equals("authorization") || name.equals("set-cookie") || name.equals("cookie");
+    }
+
+    private static boolean isVolatile(String name) {
+        return name.equals("content-length") || name.equals("etag") || name.equals("last-modified")
+                || name.equals("content-location") || name.equals("location");
+    }
+
+    private static void encodeString(ByteArrayOutputStream out, String value) {
+        int huffmanLength = Huffman.encodedLength(value);
+        if (huffmanLength < value.length()) {
+            encodeInteger(out, 0x80, 7, huffmanLength);
+            Huffman.encode(value, out);
+        } else {
+            encodeInteger(out, 0x00, 7, value.length());
+            for (int i = 0; i < value.length(); i++) {
+                out.write(value.charAt(i));
+            }
+        }
+    }
+
+    private static void encodeInteger(ByteArrayOutputStream out, int flags, int prefixBits, int value) {
+        int mask = (1 << prefixBits) - 1;
+        if (value < mask) {
+            out.write(flags | value);
+            return;
+        }
+        out.write(flags | mask);
+        value -= mask;
+        while (value >= 0x80) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
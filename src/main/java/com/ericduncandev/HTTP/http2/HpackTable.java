@@ -0,0 +1,158 @@
+package com.ericduncandev.HTTP.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The HPACK index space (RFC 7541 section 2.3): the 61-entry static table followed by a dynamic
+ * table whose size is bounded in octets. Dynamic entries live in a ring of name/value slots, newest
+ * first, and the oldest are evicted whenever an insertion or a size change would exceed the bound.
+ */
+final class HpackTable {
+    static final int ENTRY_OVERHEAD = 32;
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"},
+            {":path", "/index.html"}, {":scheme", "http"}, {":scheme", "https"}, {":status", "200"},
+            {":status", "204"}, {":status", "206"}, {":status", "304"}, {":status", "400"},
+            {":status", "404"}, {":status", "500"}, {"accept-charset", ""}, {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""}, {"access-control-allow-origin", ""},
+            {"age", ""}, {"allow", ""}, {"authorization", ""}, {"cache-control", ""},
+            {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""}, {"content-length", ""},
+            {"content-location", ""}, {"content-range", ""}, {"content-type", ""}, {"cookie", ""},
+            {"date", ""}, {"etag", ""}, {"expect", ""}, {"expires", ""},
+            {"from", ""}, {"host", ""}, {"if-match", ""}, {"if-modified-since", ""},
+            {"if-none-match", ""}, {"if-range", ""}, {"if-unmodified-since", ""}, {"last-modified", ""},
+            {"link", ""}, {"location", ""}, {"max-forwards", ""}, {"proxy-authenticate", ""},
+            {"proxy-authorization", ""}, {"range", ""}, {"referer", ""}, {"refresh", ""},
+            {"retry-after", ""}, {"server", ""}, {"set-cookie", ""}, {"strict-transport-security", ""},
+            {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""},
+            {"www-authenticate", ""}
+    };
+    static final int STATIC_SIZE = STATIC_TABLE.length;
+
+    // first static index for each name, and for each exact name/value pair
+    private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+    private static final Map<String, Integer> STATIC_PAIRS = new HashMap<>();
+
+    static {
+        for (int i = STATIC_TABLE.length - 1; i >= 0; i--) {
+            STATIC_NAMES.put(STATIC_TABLE[i][0], i + 1);
+            STATIC_PAIRS.put(STATIC_TABLE[i][0] + '\0' + STATIC_TABLE[i][1], i + 1);
+        }
+    }
+
+    private String[] slots = new String[32];
+    private int head;
+    private int count;
+    private int size;
+    private int maxSize;
+
+    HpackTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    String name(int index) throws Http2Exception {
+        return entry(index, 0);
+    }
+
+    String value(int index) throws Http2Exception {
+        return entry(index, 1);
+    }
+
+    private String entry(int index, int field) throws Http2Exception {
+        if (index >= 1 && index <= STATIC_SIZE) {
+            return STATIC_TABLE[index - 1][field];
+        }
+        int dynamic = index - STATIC_SIZE - 1;
+        if (dynamic < 0 || dynamic >= count) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid header index %d".formatted(index));
+        }
+        return slots[slot(dynamic) + field];
+    }
+
+    /**
+     * @return the index of an entry with this exact name and value, or the negated index of an entry
+     *         with only this name, or 0 if neither exists
+     */
+    int find(String name, String value) {
+        Integer pair = STATIC_PAIRS.get(name + '\0' + value);
+        if (pair != null) {
+            return pair;
+        }
+        int nameOnly = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = slot(i);
+            if (slots[slot].equals(name)) {
+                if (slots[slot + 1].equals(value)) {
+                    return STATIC_SIZE + 1 + i;
+                }
+                if (nameOnly == 0) {
+                    nameOnly = -(STATIC_SIZE + 1 + i);
+                }
+            }
+        }
+        Integer staticName = STATIC_NAMES.get(name);
+        return staticName != null ? -staticName : nameOnly;
+    }
+
+    void add(String name, String value) {
+        int entrySize = entrySize(name, value);
+        if (entrySize > maxSize) {
+            // an entry larger than the table empties it and is not inserted
+            evictTo(0);
+            return;
+        }
+        evictTo(maxSize - entrySize);
+        if (count * 2 == slots.length) {
+            grow();
+        }
+        head = (head - 2 + slots.length) % slots.length;
+        slots[head] = name;
+        slots[head + 1] = value;
+        count++;
+        size += entrySize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evictTo(maxSize);
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    static int entrySize(String name, String value) {
+        return name.length() + value.length() + ENTRY_OVERHEAD;
+    }
+
+    private void evictTo(int limit) {
+        while (size > limit) {
+            int oldest = slot(count - 1);
+            size -= entrySize(slots[oldest], slots[oldest + 1]);
+            slots[oldest] = null;
+            slots[oldest + 1] = null;
+            count--;
+        }
+    }
+
+    private int slot(int position) {
+        return (head + position * 2) % slots.length;
+    }
+
+    private void grow() {
+        String[] larger = new String[slots.length * 2];
+        for (int i = 0; i < count; i++) {
+            int slot = slot(i);
+            larger[i * 2] = slots[slot];
+            larger[i * 2 + 1] = slots[slot + 1];
+        }
+        slots = larger;
+        head = 0;
+    }
+}
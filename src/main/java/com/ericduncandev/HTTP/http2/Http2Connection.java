@@ -0,0 +1,829 @@
+package com.ericduncandev.HTTP.http2;
+
+import com.ericduncandev.HTTP.core.ServerConfig;
+import com.ericduncandev.HTTP.core.ServerContext;
+import com.ericduncandev.HTTP.factory.ResponseFactory;
+import com.ericduncandev.HTTP.limit.Bulkhead;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.RequestBody;
+import com.ericduncandev.HTTP.parser.HTTPParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves one HTTP/2 connection (RFC 9113) over an established byte stream, entered either by the
+ * client preface (prior knowledge, or ALPN "h2" over TLS) or by an {@code Upgrade: h2c} request.
+ * <p>
+ * The calling thread reads frames; every complete request is dispatched to its bulkhead worker pool
+ * and handled by the same {@link HTTPParser} handlers as HTTP/1.1, writing through its {@link Http2Stream}.
+ * Frames from concurrent streams are serialized by a write lock, which also keeps HPACK encoding in
+ * wire order. DATA frames respect both the connection and the stream send windows; request bodies
+ * are acknowledged with WINDOW_UPDATEs as they are buffered, up to the configured body limit.
+ */
+public final class Http2Connection {
+    private static final Logger logger = LogManager.getLogger(Http2Connection.class);
+
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final int FRAME_HEADER_LENGTH = 9;
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int PRIORITY = 0x2;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PUSH_PROMISE = 0x5;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_PADDED = 0x8;
+    private static final int FLAG_PRIORITY = 0x20;
+
+    private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    private static final int SETTINGS_ENABLE_PUSH = 0x2;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    private static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    private static final int DEFAULT_WINDOW = 65535;
+    private static final int MAX_WINDOW = Integer.MAX_VALUE;
+    private static final int MAX_FRAME_SIZE = 16384;
+    private static final long SHUTDOWN_GRACE_MILLIS = 30_000;
+    // request headers that are meaningless or forbidden in HTTP/2 responses
+    private static final String[] CONNECTION_SPECIFIC = {
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade"
+    };
+
+    private final DataInputStream in;
+    private final WritableByteChannel out;
+    private final ServerContext context;
+    private final InetAddress client;
+    private final int maxConcurrentStreams;
+    private final long maxRequestBody;
+    private final int maxHeaderListSize;
+    private final int bodyMemoryThreshold;
+    private final Path spillDirectory;
+    private final HpackDecoder decoder;
+    private final HpackEncoder encoder;
+    private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object flowLock = new Object();
+
+    // guarded by flowLock
+    private int connectionSendWindow = DEFAULT_WINDOW;
+    private int peerInitialWindow = DEFAULT_WINDOW;
+    private volatile int peerMaxFrameSize = MAX_FRAME_SIZE;
+    private volatile boolean closed;
+
+    // reader thread only
+    private int connectionReceiveWindow = DEFAULT_WINDOW;
+    private int lastStreamId;
+    private int headerBlockStream;
+    private boolean headerBlockEndStream;
+    private ByteArrayOutputStream headerBlock;
+    private boolean settingsReceived;
+
+    public Http2Connection(InputStream in, WritableByteChannel out, InetAddress client, ServerContext context) {
+        ServerConfig config = context.config();
+        this.in = new DataInputStream(in);
+        this.out = out;
+        this.client = client;
+        this.context = context;
+        this.maxConcurrentStreams = config.getHttp2MaxConcurrentStreams();
+        this.maxRequestBody = Math.min(config.getHttp2MaxRequestBody(), config.getMaxRequestBodySize());
+        this.maxHeaderListSize = config.getMaxRequestHeaderSize();
+        this.bodyMemoryThreshold = config.getRequestBodyMemoryThreshold();
+        this.spillDirectory = config.getRequestBodySpillDirectory() == null ? null
+                : Path.of(config.getRequestBodySpillDirectory());
+        this.decoder = new HpackDecoder(config.getHttp2HeaderTableSize(), maxHeaderListSize);
+        this.encoder = new HpackEncoder(config.getHttp2HeaderTableSize());
+    }
+
+    /**
+     * Checks for the client preface one byte at a time, stopping at the first byte that differs, so an
+     * HTTP/1.1 request is never read further than needed. The bytes read are pushed back on a mismatch.
+     * @return true if the full preface was read and the connection speaks HTTP/2
+     */
+    public static boolean detectPreface(PushbackInputStream in) throws IOException {
+        for (int i = 0; i < PREFACE.length; i++) {
+            int b = in.read();
+            if (b != (PREFACE[i] & 0xff)) {
+                if (b != -1) {
+                    in.unread(b);
+                }
+                in.unread(PREFACE, 0, i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Serves the connection after the client preface has been consumed.
+     */
+    public void serve() {
+        run(null);
+    }
+
+    /**
+     * Serves a connection upgraded from HTTP/1.1, after the 101 response has been sent. The upgrading
+     * request becomes stream 1 and the client preface is still to be read.
+     * @param upgrade The request that carried {@code Upgrade: h2c}
+     */
+    public void serveUpgrade(HTTPRequest upgrade) {
+        run(upgrade);
+    }
+
+    private void run(HTTPRequest upgrade) {
+        int errorCode = Http2Exception.NO_ERROR;
+        String reason = "";
+        try {
+            if (upgrade != null) {
+                applySettingsHeader(upgrade.headers().get("HTTP2-Settings"));
+            }
+            writeSettings();
+            if (upgrade != null) {
+                readPreface();
+                Http2Stream stream = openStream(1);
+                stream.remoteClosed = true;
+                lastStreamId = 1;
+                dispatch(stream, new HTTPRequest(upgrade.method(), upgrade.uri(), "HTTP/2.0",
+                        upgrade.headers(), upgrade.body()));
+            }
+            while (!closed) {
+                readFrame();
+            }
+        } catch (Http2Exception e) {
+            logger.warn("HTTP/2 connection error: {}", e.getMessage());
+            errorCode = e.getErrorCode();
+            reason = e.getMessage();
+        } catch (EOFException e) {
+            logger.debug("HTTP/2 client closed the connection");
+        } catch (IOException e) {
+            logger.debug("HTTP/2 connection failed: {}", e.getMessage());
+            errorCode = Http2Exception.INTERNAL_ERROR;
+        } finally {
+            if (errorCode == Http2Exception.NO_ERROR) {
+                awaitStreams();
+            }
+            goAway(errorCode, reason);
+            shutdown();
+        }
+    }
+
+    private void readPreface() throws IOException {
+        byte[] preface = new byte[PREFACE.length];
+        in.readFully(preface);
+        for (int i = 0; i < PREFACE.length; i++) {
+            if (preface[i] != PREFACE[i]) {
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid connection preface");
+            }
+        }
+    }
+
+    private void readFrame() throws IOException {
+        byte[] header = new byte[FRAME_HEADER_LENGTH];
+        in.readFully(header);
+        int length = (header[0] & 0xff) << 16 | (header[1] & 0xff) << 8 | header[2] & 0xff;
+        int type = header[3] & 0xff;
+        int flags = header[4] & 0xff;
+        int streamId = readInt(header, 5) & 0x7fffffff;
+        if (length > MAX_FRAME_SIZE) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Frame of %d bytes".formatted(length));
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+
+        if (!settingsReceived && type != SETTINGS) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Expected SETTINGS after the preface");
+        }
+        if (headerBlock != null && (type != CONTINUATION || streamId != headerBlockStream)) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Header block interrupted");
+        }
+        try {
+            switch (type) {
+                case DATA -> onData(streamId, flags, payload);
+                case HEADERS -> onHeaders(streamId, flags, payload);
+                case PRIORITY -> requireLength(PRIORITY, streamId, payload, 5);
+                case RST_STREAM -> onResetStream(streamId, payload);
+                case SETTINGS -> onSettings(streamId, flags, payload);
+                case PUSH_PROMISE -> throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Clients cannot push");
+                case PING -> onPing(streamId, flags, payload);
+                case GOAWAY -> onGoAway(streamId, payload);
+                case WINDOW_UPDATE -> onWindowUpdate(streamId, payload);
+                case CONTINUATION -> onContinuation(streamId, flags, payload);
+                default -> logger.trace("Ignoring frame type {}", type);
+            }
+        } catch (Http2Exception e) {
+            if (e.getStreamId() == 0) {
+                throw e;
+            }
+            logger.debug("Resetting stream {}: {}", e.getStreamId(), e.getMessage());
+            resetStream(e.getStreamId(), e.getErrorCode());
+        }
+    }
+
+    private void onData(int streamId, int flags, byte[] payload) throws IOException {
+        if (streamId == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "DATA on stream 0");
+        }
+        // the whole frame counts against the windows, padding included
+        connectionReceiveWindow -= payload.length;
+        if (connectionReceiveWindow < 0) {
+            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Connection receive window exceeded");
+        }
+        replenishConnection(payload.length);
+
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null || stream.remoteClosed) {
+            if (streamId > lastStreamId) {
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "DATA on idle stream %d".formatted(streamId));
+            }
+            throw new Http2Exception(Http2Exception.STREAM_CLOSED, streamId, "DATA on closed stream");
+        }
+        stream.receiveWindow -= payload.length;
+        if (stream.receiveWindow < 0) {
+            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, streamId, "Stream receive window exceeded");
+        }
+        int offset = 0;
+        int dataLength = payload.length;
+        if ((flags & FLAG_PADDED) != 0) {
+            int padding = padding(streamId, payload, 1);
+            offset = 1;
+            dataLength -= 1 + padding;
+        }
+        if (stream.body().size() + dataLength > maxRequestBody) {
+            throw new Http2Exception(Http2Exception.ENHANCE_YOUR_CALM, streamId,
+                    "Request body exceeds %d bytes".formatted(maxRequestBody));
+        }
+        stream.body().write(payload, offset, dataLength);
+
+        if ((flags & FLAG_END_STREAM) != 0) {
+            stream.remoteClosed = true;
+            dispatch(stream, toRequest(stream));
+        } else if (payload.length > 0) {
+            stream.receiveWindow += payload.length;
+            writeWindowUpdate(streamId, payload.length);
+        }
+    }
+
+    private void replenishConnection(int consumed) throws IOException {
+        if (consumed > 0) {
+            connectionReceiveWindow += consumed;
+            writeWindowUpdate(0, consumed);
+        }
+    }
+
+    private void onHeaders(int streamId, int flags, byte[] payload) throws IOException {
+        if (streamId == 0 || streamId % 2 == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "HEADERS on invalid stream %d".formatted(streamId));
+        }
+        int offset = 0;
+        int end = payload.length;
+        if ((flags & FLAG_PADDED) != 0) {
+            end -= padding(0, payload, 1);
+            offset = 1;
+        }
+        if ((flags & FLAG_PRIORITY) != 0) {
+            offset += 5;
+        }
+        if (offset > end) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "HEADERS frame too short");
+        }
+        headerBlock = new ByteArrayOutputStream(Math.max(end - offset, 64));
+        headerBlock.write(payload, offset, end - offset);
+        headerBlockStream = streamId;
+        headerBlockEndStream = (flags & FLAG_END_STREAM) != 0;
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            endHeaderBlock();
+        }
+    }
+
+    private void onContinuation(int streamId, int flags, byte[] payload) throws IOException {
+        if (headerBlock == null) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "CONTINUATION without HEADERS");
+        }
+        if (headerBlock.size() + payload.length > maxHeaderListSize * 2L) {
+            throw new Http2Exception(Http2Exception.ENHANCE_YOUR_CALM, "Header block too large");
+        }
+        headerBlock.write(payload);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            endHeaderBlock();
+        }
+    }
+
+    private void endHeaderBlock() throws IOException {
+        byte[] block = headerBlock.toByteArray();
+        int streamId = headerBlockStream;
+        boolean endStream = headerBlockEndStream;
+        headerBlock = null;
+
+        HTTPHeaders headers;
+        try {
+            headers = decoder.decode(block, 0, block.length);
+        } catch (Http2Exception e) {
+            if (e.getErrorCode() == Http2Exception.ENHANCE_YOUR_CALM) {
+                // the block was fully decoded, so only this stream is affected
+                lastStreamId = Math.max(lastStreamId, streamId);
+                throw new Http2Exception(e.getErrorCode(), streamId, e.getMessage());
+            }
+            throw e;
+        }
+
+        Http2Stream existing = streams.get(streamId);
+        if (existing != null) {
+            // trailers: they end the request and are otherwise ignored
+            if (existing.remoteClosed || !endStream) {
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Unexpected HEADERS on stream %d".formatted(streamId));
+            }
+            existing.remoteClosed = true;
+            dispatch(existing, toRequest(existing));
+            return;
+        }
+        if (streamId <= lastStreamId) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Stream %d reused".formatted(streamId));
+        }
+        lastStreamId = streamId;
+        if (streams.size() >= maxConcurrentStreams) {
+            throw new Http2Exception(Http2Exception.REFUSED_STREAM, streamId, "Too many concurrent streams");
+        }
+        Http2Stream stream = openStream(streamId);
+        stream.requestHeaders = headers;
+        if (endStream) {
+            stream.remoteClosed = true;
+            dispatch(stream, toRequest(stream));
+        }
+    }
+
+    private Http2Stream openStream(int streamId) {
+        int sendWindow;
+        synchronized (flowLock) {
+            sendWindow = peerInitialWindow;
+        }
+        Http2Stream stream = new Http2Stream(streamId, this, sendWindow, DEFAULT_WINDOW,
+                new RequestBody.Buffer(bodyMemoryThreshold, maxRequestBody, spillDirectory));
+        streams.put(streamId, stream);
+        return stream;
+    }
+
+    // maps pseudo-headers onto the HTTP/1.1 request model so the existing handlers apply unchanged
+    private HTTPRequest toRequest(Http2Stream stream) throws IOException {
+        try {
+            return toRequest(stream, stream.requestHeaders);
+        } catch (Http2Exception e) {
+            // the stream is reset without being dispatched, so nothing else will release its body
+            stream.body().discard();
+            throw e;
+        }
+    }
+
+    private HTTPRequest toRequest(Http2Stream stream, HTTPHeaders fields) throws IOException {
+        HTTPHeaders headers = new HTTPHeaders();
+        String method = null;
+        String path = null;
+        String authority = null;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.name(i);
+            switch (name) {
+                case ":method" -> method = fields.value(i);
+                case ":path" -> path = fields.value(i);
+                case ":authority" -> authority = fields.value(i);
+                case ":scheme" -> {
+                }
+                default -> {
+                    if (name.startsWith(":")) {
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, stream.getId(),
+                                "Unknown pseudo-header %s".formatted(name));
+                    }
+                    headers.add(HTTPHeaders.canonicalName(name, 0, name.length()), fields.value(i));
+                }
+            }
+        }
+        if (method == null || path == null || path.isEmpty()) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, stream.getId(), "Missing :method or :path");
+        }
+        if (authority != null && !headers.contains(HTTPHeaders.HOST)) {
+            headers.add(HTTPHeaders.HOST, authority);
+        }
+        return new HTTPRequest(method, path, "HTTP/2.0", headers, stream.body().toBody());
+    }
+
+    private void dispatch(Http2Stream stream, HTTPRequest request) {
+        long retryAfter = context.rateLimiter() == null ? 0 : context.rateLimiter().admitRequest(client);
+        Bulkhead bulkhead = context.bulkheads().forRequest(request.method(), request.headers(),
+                context.proxyRouter().match(request.path()) != null);
+        boolean accepted = bulkhead.trySubmit(() -> {
+            try {
+                if (retryAfter > 0) {
+                    // written from a worker: the reader thread must stay free to receive WINDOW_UPDATEs
+                    stream.write(ResponseFactory.tooManyRequests(retryAfter));
+                    return;
+                }
+                new HTTPParser(null, stream, context, false).dispatch(request);
+                if (!stream.hasResponded() && !stream.isReset()) {
+                    // handlers that write nothing (e.g. unsupported methods) would leave the client waiting
+                    resetStream(stream.getId(), Http2Exception.INTERNAL_ERROR);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error handling stream {}", stream.getId(), e);
+                resetStream(stream.getId(), Http2Exception.INTERNAL_ERROR);
+            } finally {
+                request.body().close();
+                closeStream(stream);
+            }
+        });
+        if (!accepted) {
+            request.body().close();
+            closeStream(stream);
+            resetStream(stream.getId(), Http2Exception.REFUSED_STREAM);
+        }
+    }
+
+    private void closeStream(Http2Stream stream) {
+        streams.remove(stream.getId());
+        synchronized (flowLock) {
+            flowLock.notifyAll();
+        }
+    }
+
+    private void onResetStream(int streamId, byte[] payload) throws Http2Exception {
+        if (streamId == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "RST_STREAM on stream 0");
+        }
+        if (payload.length != 4) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "RST_STREAM must be 4 bytes");
+        }
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            stream.markReset();
+            if (!stream.remoteClosed) {
+                // never dispatched, so no handler will remove it or release its body
+                streams.remove(streamId);
+                stream.body().discard();
+            }
+            synchronized (flowLock) {
+                flowLock.notifyAll();
+            }
+        }
+    }
+
+    private void onSettings(int streamId, int flags, byte[] payload) throws IOException {
+        if (streamId != 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "SETTINGS on stream %d".formatted(streamId));
+        }
+        if ((flags & FLAG_ACK) != 0) {
+            if (payload.length != 0) {
+                throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "SETTINGS ACK with payload");
+            }
+            return;
+        }
+        applySettings(payload);
+        settingsReceived = true;
+        writeFrame(SETTINGS, FLAG_ACK, 0, ByteBuffer.allocate(0));
+    }
+
+    private void applySettingsHeader(String encoded) throws IOException {
+        if (encoded == null) {
+            return;
+        }
+        try {
+            applySettings(Base64.getUrlDecoder().decode(encoded.trim()));
+        } catch (IllegalArgumentException e) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Malformed HTTP2-Settings header");
+        }
+    }
+
+    private void applySettings(byte[] payload) throws Http2Exception {
+        if (payload.length % 6 != 0) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "SETTINGS length not a multiple of 6");
+        }
+        for (int i = 0; i < payload.length; i += 6) {
+            int identifier = (payload[i] & 0xff) << 8 | payload[i + 1] & 0xff;
+            int value = readInt(payload, i + 2);
+            switch (identifier) {
+                case SETTINGS_HEADER_TABLE_SIZE -> {
+                    writeLock.lock();
+                    try {
+                        encoder.setPeerMaxTableSize(value < 0 ? Integer.MAX_VALUE : value);
+                    } finally {
+                        writeLock.unlock();
+                    }
+                }
+                case SETTINGS_ENABLE_PUSH -> {
+                    if (value != 0 && value != 1) {
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid ENABLE_PUSH");
+                    }
+                }
+                case SETTINGS_INITIAL_WINDOW_SIZE -> {
+                    if (value < 0) {
+                        throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Initial window too large");
+                    }
+                    updateInitialWindow(value);
+                }
+                case SETTINGS_MAX_FRAME_SIZE -> {
+                    if (value < MAX_FRAME_SIZE || value > 0xffffff) {
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid MAX_FRAME_SIZE %d".formatted(value));
+                    }
+                    peerMaxFrameSize = value;
+                }
+                default -> {
+                    // MAX_CONCURRENT_STREAMS and MAX_HEADER_LIST_SIZE limit pushes and requests we never send
+                }
+            }
+        }
+    }
+
+    private void updateInitialWindow(int value) throws Http2Exception {
+        synchronized (flowLock) {
+            int delta = value - peerInitialWindow;
+            peerInitialWindow = value;
+            for (Http2Stream stream : streams.values()) {
+                if ((long) stream.sendWindow + delta > MAX_WINDOW) {
+                    throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Stream window overflow");
+                }
+                stream.sendWindow += delta;
+            }
+            flowLock.notifyAll();
+        }
+    }
+
+    private void onPing(int streamId, int flags, byte[] payload) throws IOException {
+        if (streamId != 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "PING on stream %d".formatted(streamId));
+        }
+        if (payload.length != 8) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "PING must be 8 bytes");
+        }
+        if ((flags & FLAG_ACK) == 0) {
+            writeFrame(PING, FLAG_ACK, 0, ByteBuffer.wrap(payload));
+        }
+    }
+
+    private void onGoAway(int streamId, byte[] payload) throws Http2Exception {
+        if (streamId != 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "GOAWAY on stream %d".formatted(streamId));
+        }
+        if (payload.length < 8) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "GOAWAY too short");
+        }
+        logger.debug("Client sent GOAWAY with error {}", readInt(payload, 4));
+        // in-flight streams still complete; the client closes the connection when it is done reading
+    }
+
+    private void onWindowUpdate(int streamId, byte[] payload) throws Http2Exception {
+        if (payload.length != 4) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "WINDOW_UPDATE must be 4 bytes");
+        }
+        int increment = readInt(payload, 0) & 0x7fffffff;
+        if (increment == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, streamId, "Zero window increment");
+        }
+        synchronized (flowLock) {
+            if (streamId == 0) {
+                if ((long) connectionSendWindow + increment > MAX_WINDOW) {
+                    throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Connection window overflow");
+                }
+                connectionSendWindow += increment;
+            } else {
+                Http2Stream stream = streams.get(streamId);
+                if (stream == null) {
+                    return;
+                }
+                if ((long) stream.sendWindow + increment > MAX_WINDOW) {
+                    throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, streamId, "Stream window overflow");
+                }
+                stream.sendWindow += increment;
+            }
+            flowLock.notifyAll();
+        }
+    }
+
+    private static void requireLength(int type, int streamId, byte[] payload, int length) throws Http2Exception {
+        if (payload.length != length) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, streamId,
+                    "Frame type %d must be %d bytes".formatted(type, length));
+        }
+    }
+
+    private static int padding(int streamId, byte[] payload, int minimum) throws Http2Exception {
+        if (payload.length < minimum) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Padded frame too short");
+        }
+        int padding = payload[0] & 0xff;
+        if (padding >= payload.length) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, streamId, "Padding exceeds frame");
+        }
+        return padding;
+    }
+
+    // Writing
+
+    void writeHeaders(Http2Stream stream, int statusCode, HTTPHeaders headers, boolean endStream) throws IOException {
+        if (stream.isReset()) {
+            throw new IOException("Stream %d was reset".formatted(stream.getId()));
+        }
+        writeLock.lock();
+        try {
+            ByteArrayOutputStream block = new ByteArrayOutputStream(128);
+            encoder.beginBlock(block);
+            encoder.encode(":status", String.valueOf(statusCode), block);
+            for (int i = 0; i < headers.size(); i++) {
+                String name = headers.name(i).toLowerCase(Locale.ROOT);
+                if (!isConnectionSpecific(name)) {
+                    encoder.encode(name, headers.value(i), block);
+                }
+            }
+            byte[] bytes = block.toByteArray();
+            int maxFrame = peerMaxFrameSize;
+            int offset = 0;
+            int type = HEADERS;
+            do {
+                int length = Math.min(maxFrame, bytes.length - offset);
+                boolean last = offset + length == bytes.length;
+                int flags = (last ? FLAG_END_HEADERS : 0) | (type == HEADERS && endStream ? FLAG_END_STREAM : 0);
+                writeFrame(type, flags, stream.getId(), ByteBuffer.wrap(bytes, offset, length));
+                offset += length;
+                type = CONTINUATION;
+            } while (offset < bytes.length);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static boolean isConnectionSpecific(String name) {
+        for (String candidate : CONNECTION_SPECIFIC) {
+            if (candidate.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends data as DATA frames no larger than the peer's frame size, each waiting for room in both
+     * the connection and the stream send window.
+     */
+    void writeData(Http2Stream stream, ByteBuffer data, boolean endStream) throws IOException {
+        if (!data.hasRemaining()) {
+            if (endStream) {
+                writeFrame(DATA, FLAG_END_STREAM, stream.getId(), data);
+            }
+            return;
+        }
+        while (data.hasRemaining()) {
+            int length = acquireSendWindow(stream, Math.min(data.remaining(), peerMaxFrameSize));
+            ByteBuffer frame = data.slice(data.position(), length);
+            data.position(data.position() + length);
+            writeFrame(DATA, endStream && !data.hasRemaining() ? FLAG_END_STREAM : 0, stream.getId(), frame);
+        }
+    }
+
+    private int acquireSendWindow(Http2Stream stream, int wanted) throws IOException {
+        synchronized (flowLock) {
+            while (true) {
+                if (closed || stream.isReset()) {
+                    throw new IOException("Stream %d was reset".formatted(stream.getId()));
+                }
+                int available = Math.min(connectionSendWindow, stream.sendWindow);
+                if (available > 0) {
+                    int granted = Math.min(available, wanted);
+                    connectionSendWindow -= granted;
+                    stream.sendWindow -= granted;
+                    return granted;
+                }
+                try {
+                    flowLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for flow-control window", e);
+                }
+            }
+        }
+    }
+
+    private void writeSettings() throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(6 * 4);
+        payload.putShort((short) SETTINGS_MAX_CONCURRENT_STREAMS).putInt(maxConcurrentStreams);
+        payload.putShort((short) SETTINGS_ENABLE_PUSH).putInt(0);
+        payload.putShort((short) SETTINGS_HEADER_TABLE_SIZE).putInt(context.config().getHttp2HeaderTableSize());
+        payload.putShort((short) SETTINGS_MAX_HEADER_LIST_SIZE).putInt(maxHeaderListSize);
+        writeFrame(SETTINGS, 0, 0, payload.flip());
+    }
+
+    private void writeWindowUpdate(int streamId, int increment) throws IOException {
+        writeFrame(WINDOW_UPDATE, 0, streamId, ByteBuffer.allocate(4).putInt(0, increment));
+    }
+
+    private void resetStream(int streamId, int errorCode) {
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            stream.markReset();
+            if (!stream.remoteClosed) {
+                streams.remove(streamId);
+                stream.body().discard();
+            }
+        }
+        try {
+            writeFrame(RST_STREAM, 0, streamId, ByteBuffer.allocate(4).putInt(0, errorCode));
+        } catch (IOException e) {
+            logger.debug("Could not reset stream {}: {}", streamId, e.getMessage());
+        }
+    }
+
+    private void goAway(int errorCode, String reason) {
+        byte[] debug = reason.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(8 + debug.length).putInt(lastStreamId).putInt(errorCode).put(debug);
+        try {
+            writeFrame(GOAWAY, 0, 0, payload.flip());
+        } catch (IOException e) {
+            logger.debug("Could not send GOAWAY: {}", e.getMessage());
+        }
+    }
+
+    private void writeFrame(int type, int flags, int streamId, ByteBuffer payload) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+        int length = payload.remaining();
+        header.put((byte) (length >>> 16)).put((byte) (length >>> 8)).put((byte) length)
+                .put((byte) type).put((byte) flags).putInt(streamId).flip();
+        writeLock.lock();
+        try {
+            if (out instanceof GatheringByteChannel gathering) {
+                ByteBuffer[] buffers = {header, payload};
+                while (header.hasRemaining() || payload.hasRemaining()) {
+                    gathering.write(buffers);
+                }
+            } else {
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                while (payload.hasRemaining()) {
+                    out.write(payload);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // lets in-flight handlers finish their responses before the connection closes
+    private void awaitStreams() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_GRACE_MILLIS);
+        synchronized (flowLock) {
+            while (!streams.isEmpty()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    flowLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void shutdown() {
+        closed = true;
+        for (Http2Stream stream : streams.values()) {
+            stream.markReset();
+            if (!stream.remoteClosed) {
+                stream.body().discard();
+            }
+        }
+        synchronized (flowLock) {
+            flowLock.notifyAll();
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16
+                | (bytes[offset + 2] & 0xff) << 8 | bytes[offset + 3] & 0xff;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ericduncandev.HTTP.http2;
+
+import java.io.IOException;
+
+/**
+ * A protocol violation carrying the HTTP/2 error code (RFC 9113 section 7) to report to the peer.
+ * Connection errors end the connection with GOAWAY; stream errors only reset the offending stream.
+ */
+public class Http2Exception extends IOException {
+    public static final int NO_ERROR = 0x0;
+    public static final int PROTOCOL_ERROR = 0x1;
+    public static final int INTERNAL_ERROR = 0x2;
+    public static final int FLOW_CONTROL_ERROR = 0x3;
+    public static final int STREAM_CLOSED = 0x5;
+    public static final int FRAME_SIZE_ERROR = 0x6;
+    public static final int REFUSED_STREAM = 0x7;
+    public static final int CANCEL = 0x8;
+    public static final int COMPRESSION_ERROR = 0x9;
+    public static final int ENHANCE_YOUR_CALM = 0xb;
+
+    private final int errorCode;
+    private final int streamId;
+
+    public Http2Exception(int errorCode, String message) {
+        this(errorCode, 0, message);
+    }
+
+    public Http2Exception(int errorCode, int streamId, String message) {
+        super(message);
+        this.errorCode = errorCode;
+        this.streamId = streamId;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * @return the stream to reset, or 0 if the whole connection has to be closed
+     */
+    public int getStreamId() {
+        return streamId;
+    }
+}
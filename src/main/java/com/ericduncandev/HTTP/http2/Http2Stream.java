@@ -0,0 +1,157 @@
+package com.ericduncandev.HTTP.http2;
+
+import com.ericduncandev.HTTP.interfaces.IResponseWriter;
+import com.ericduncandev.HTTP.jfr.ResponseWriteEvent;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.HTTPResponse;
+import com.ericduncandev.HTTP.model.RequestBody;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * One request/response exchange on an HTTP/2 connection. The request side is filled in by the
+ * connection's reader thread; the response side is written by the handler through
+ * {@link IResponseWriter}, which turns responses into HEADERS and flow-controlled DATA frames.
+ */
+final class Http2Stream implements IResponseWriter {
+    private static final Logger logger = LogManager.getLogger(Http2Stream.class);
+
+    private final int id;
+    private final Http2Connection connection;
+    private final RequestBody.Buffer body;
+    // guarded by the connection's flow-control lock
+    int sendWindow;
+    // reader thread only
+    int receiveWindow;
+    HTTPHeaders requestHeaders;
+    boolean remoteClosed;
+    private volatile boolean reset;
+    private volatile boolean responded;
+    private HTTPRequest request;
+    private int statusCode;
+    private long bodyBytes;
+
+    Http2Stream(int id, Http2Connection connection, int sendWindow, int receiveWindow, RequestBody.Buffer body) {
+        this.id = id;
+        this.body = body;
+        this.connection = connection;
+        this.sendWindow = sendWindow;
+        this.receiveWindow = receiveWindow;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    RequestBody.Buffer body() {
+        return body;
+    }
+
+    boolean isReset() {
+        return reset;
+    }
+
+    void markReset() {
+        reset = true;
+    }
+
+    boolean hasResponded() {
+        return responded;
+    }
+
+    @Override
+    public void write(HTTPResponse response) {
+        responded = true;
+        statusCode = response.getStatusCode();
+        ResponseWriteEvent event = new ResponseWriteEvent();
+        event.begin();
+        ByteBuffer content = response.getBody();
+        long length = content.remaining();
+        bodyBytes += length;
+        try {
+            boolean empty = !content.hasRemaining();
+            connection.writeHeaders(this, statusCode, response.getHeaders(), empty);
+            if (!empty) {
+                connection.writeData(this, content, true);
+            }
+        } catch (IOException e) {
+            logger.error("Error writing response on stream {}: {}", id, e.getMessage());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, length);
+        }
+    }
+
+    @Override
+    public void attach(HTTPRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public int statusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public long bodyBytes() {
+        return bodyBytes;
+    }
+
+    private void commit(ResponseWriteEvent event, long bytes) {
+        if (request != null) {
+            event.method = request.method();
+            event.uri = request.uri();
+        }
+        event.status = statusCode;
+        event.bytes = bytes;
+        event.commit();
+    }
+
+    @Override
+    public WritableByteChannel beginStreaming(int statusCode, HTTPHeaders headers) throws IOException {
+        responded = true;
+        this.statusCode = statusCode;
+        ResponseWriteEvent event = new ResponseWriteEvent();
+        event.begin();
+        connection.writeHeaders(this, statusCode, headers, false);
+        return new WritableByteChannel() {
+            private boolean open = true;
+            private long bytes;
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                if (!open) {
+                    throw new IOException("Stream %d body already completed".formatted(id));
+                }
+                int length = src.remaining();
+                connection.writeData(Http2Stream.this, src, false);
+                bytes += length;
+                bodyBytes += length;
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open && !reset;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (open) {
+                    open = false;
+                    connection.writeData(Http2Stream.this, ByteBuffer.allocate(0), true);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        commit(event, bytes);
+                    }
+                }
+            }
+        };
+    }
+}
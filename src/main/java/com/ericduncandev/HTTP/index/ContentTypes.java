@@ -0,0 +1,29 @@
+package com.ericduncandev.HTTP.index;
+
+/**
+ * Maps file names to the MIME types the server sends for them.
+ */
+public final class ContentTypes {
+    private ContentTypes() {
+    }
+
+    public static String forFileName(String fileName) {
+        if (fileName.endsWith(".html") || fileName.endsWith(".htm")) {
+            return "text/html";
+        } else if (fileName.endsWith(".xml")) {
+            return "application/xml";
+        } else if (fileName.endsWith(".json")) {
+            return "application/json";
+        } else if (fileName.endsWith(".css")) {
+            return "text/css";
+        } else if (fileName.endsWith(".js")) {
+            return "application/javascript";
+        } else if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
+            return "image/jpeg";
+        } else if (fileName.endsWith(".png")) {
+            return "image/png";
+        } else {
+            return "application/octet-stream"; // Default binary content type
+        }
+    }
+}
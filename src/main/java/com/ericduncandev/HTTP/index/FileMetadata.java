@@ -0,0 +1,25 @@
+package com.ericduncandev.HTTP.index;
+
+import java.nio.file.Path;
+
+/**
+ * What the server needs to answer for a file without touching the disk. The content type and ETag
+ * are derived once when the entry is indexed.
+ * @param path the absolute, normalized location under webRoot
+ * @param lastModifiedMicros the modification time in microseconds, precise enough to notice rewrites
+ * @param etag a strong validator derived from the modification time and size
+ */
+public record FileMetadata(Path path, boolean directory, long size, long lastModifiedMicros,
+                           String contentType, String etag) {
+
+    public static FileMetadata of(Path path, boolean directory, long size, long lastModifiedMicros) {
+        Path name = path.getFileName();
+        return new FileMetadata(path, directory, size, lastModifiedMicros,
+                directory ? null : ContentTypes.forFileName(name == null ? "" : name.toString()),
+                directory ? null : "\"%s-%s\"".formatted(Long.toHexString(lastModifiedMicros), Long.toHexString(size)));
+    }
+
+    public long lastModifiedMillis() {
+        return lastModifiedMicros / 1000;
+    }
+}
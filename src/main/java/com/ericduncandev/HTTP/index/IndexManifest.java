@@ -0,0 +1,112 @@
+package com.ericduncandev.HTTP.index;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The on-disk form of a {@link WebRootIndex}: a header naming the indexed root, then one record per
+ * entry holding its relative path, a directory flag, the size and the modification time.
+ * Content types and ETags are derived again on load, so records stay small. The file is read through
+ * a memory mapping and written to a temporary file that atomically replaces the previous manifest.
+ */
+final class IndexManifest {
+    private static final Logger logger = LogManager.getLogger(IndexManifest.class);
+    private static final int MAGIC = 0x57524958; // "WRIX"
+    private static final short VERSION = 1;
+    private static final byte FLAG_DIRECTORY = 1;
+
+    private IndexManifest() {
+    }
+
+    /**
+     * @return the recorded entries, or null if there is no usable manifest for this root
+     */
+    static List<FileMetadata> read(Path manifest, Path root) {
+        if (!Files.isRegularFile(manifest)) {
+            return null;
+        }
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(manifest, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena).asByteBuffer();
+            if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+                logger.warn("Ignoring manifest {} with an unknown format", manifest);
+                return null;
+            }
+            String recordedRoot = readString(in);
+            if (!recordedRoot.equals(root.toString())) {
+                logger.info("Manifest {} indexes {}, not {}; rebuilding", manifest, recordedRoot, root);
+                return null;
+            }
+            int count = in.getInt();
+            List<FileMetadata> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String relative = readString(in);
+                boolean directory = (in.get() & FLAG_DIRECTORY) != 0;
+                long size = in.getLong();
+                long lastModifiedMicros = in.getLong();
+                Path path = relative.isEmpty() ? root : root.resolve(relative);
+                entries.add(FileMetadata.of(path, directory, size, lastModifiedMicros));
+            }
+            return entries;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            logger.warn("Ignoring unreadable manifest {}: {}", manifest, e.toString());
+            return null;
+        }
+    }
+
+    static void write(Path manifest, Path root, Collection<FileMetadata> entries) throws IOException {
+        Path parent = manifest.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, ".manifest", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                writeString(out, root.toString());
+                out.writeInt(entries.size());
+                for (FileMetadata entry : entries) {
+                    writeString(out, root.relativize(entry.path()).toString());
+                    out.writeByte(entry.directory() ? FLAG_DIRECTORY : 0);
+                    out.writeLong(entry.size());
+                    out.writeLong(entry.lastModifiedMicros());
+                }
+            }
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // strings are a 2-byte length followed by UTF-8
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IOException("Path too long for manifest: %s".formatted(value));
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xffff;
+        String value = StandardCharsets.UTF_8.decode(in.slice(in.position(), length)).toString();
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,415 @@
+package com.ericduncandev.HTTP.index;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory index of every file and directory under webRoot, so that resolving a request path is a
+ * hash probe instead of a series of stats.
+ * <p>
+ * The first start walks the tree in parallel and persists the result as an {@link IndexManifest}.
+ * Later starts map the manifest and only stat directories: a directory whose modification time
+ * changed is rescanned, everything else is trusted until it is first looked up. An entry is checked
+ * against the disk again once it is older than the validity window, and a miss re-checks the nearest
+ * indexed ancestor directory so files created behind the server's back are still found.
+ * <p>
+ * All paths are resolved against webRoot and rejected with a {@link SecurityException} if they
+ * would escape it, name the manifest or enter an excluded directory; symbolic links are only followed when their target
+ * lies inside webRoot.
+ */
+public final class WebRootIndex implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(WebRootIndex.class);
+
+    private final Path root;
+    private final Path realRoot;
+    private final Path manifest;
+    private volatile long validityNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Path> excluded = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public WebRootIndex(Path root, Path manifest, long validityMillis) {
+        this.root = root.toAbsolutePath().normalize();
+        Path real;
+        try {
+            real = this.root.toRealPath();
+        } catch (IOException e) {
+            real = this.root;
+        }
+        this.realRoot = real;
+        this.manifest = manifest.toAbsolutePath().normalize();
+        this.validityNanos = TimeUnit.MILLISECONDS.toNanos(validityMillis);
+    }
+
+    /**
+     * @return where the index of the root is kept when no manifest is configured: the temp directory,
+     *         outside any webRoot, under a name derived from the root
+     */
+    public static Path defaultManifest(Path root) {
+        String name = root.toAbsolutePath().normalize().toString();
+        // a collision only costs a walk, since the manifest records the root it indexes
+        return Path.of(System.getProperty("java.io.tmpdir"), "webroot-%08x.manifest".formatted(name.hashCode()));
+    }
+
+    /**
+     * Hides a directory, such as the server's own state kept under webRoot, from requests: paths inside
+     * it are rejected like paths outside webRoot, and it is never indexed. Must be called before
+     * {@link #load}.
+     */
+    public void exclude(Path directory) {
+        excluded.add(directory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Builds the index from the manifest if one exists for this root, or by walking the tree, and
+     * persists the result.
+     */
+    public void load() {
+        long started = System.nanoTime();
+        if (!Files.isDirectory(root)) {
+            logger.warn("webRoot {} is not a directory; nothing will be served", root);
+            return;
+        }
+        List<FileMetadata> recorded = IndexManifest.read(manifest, root);
+        String source;
+        if (recorded == null) {
+            walk(root);
+            dirty.set(true);
+            source = "walk";
+        } else {
+            for (FileMetadata metadata : recorded) {
+                entries.put(key(metadata.path()), Entry.unverified(metadata));
+            }
+            validateDirectories();
+            source = "manifest";
+        }
+        logger.info("Indexed {} entries under {} from {} in {} ms", entries.size(), root, source,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        save();
+    }
+
+    public void setValidityMillis(long validityMillis) {
+        this.validityNanos = TimeUnit.MILLISECONDS.toNanos(validityMillis);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Maps a request path onto the file system under webRoot.
+     * @throws SecurityException if the path would leave webRoot, or names the manifest or an excluded directory
+     */
+    public Path resolve(String uriPath) {
+        int start = 0;
+        while (start < uriPath.length() && uriPath.charAt(start) == '/') {
+            start++;
+        }
+        Path path;
+        try {
+            path = root.resolve(uriPath.substring(start)).normalize();
+        } catch (InvalidPathException e) {
+            throw new SecurityException("Invalid path %s".formatted(uriPath));
+        }
+        if (!path.startsWith(root)) {
+            throw new SecurityException("Path %s escapes webRoot".formatted(uriPath));
+        }
+        // a manifest under webRoot is neither served nor written, or the next start would map what a client sent
+        if (path.equals(manifest) || isExcluded(path)) {
+            throw new SecurityException("Path %s is not served".formatted(uriPath));
+        }
+        return path;
+    }
+
+    /**
+     * @return the metadata of the file or directory at the request path, or null if there is none
+     * @throws SecurityException if the path would leave webRoot
+     */
+    public FileMetadata lookup(String uriPath) {
+        Path path = resolve(uriPath);
+        String key = key(path);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.verified && System.nanoTime() - entry.verifiedAt < validityNanos) {
+                return entry.metadata;
+            }
+            return revalidate(key, path);
+        }
+        if (refreshAncestor(path)) {
+            entry = entries.get(key);
+            return entry == null ? null : entry.metadata;
+        }
+        return null;
+    }
+
+    /**
+     * Re-reads a path after the server itself created, changed or deleted it.
+     */
+    public void refresh(String uriPath) {
+        Path path = resolve(uriPath);
+        revalidate(key(path), path);
+        // creating a file changes its directory, and may have created the directories too
+        for (Path parent = path.getParent(); parent != null && parent.startsWith(root); parent = parent.getParent()) {
+            revalidate(key(parent), parent);
+        }
+    }
+
+    private FileMetadata revalidate(String key, Path path) {
+        FileMetadata current = stat(path);
+        if (current == null) {
+            if (entries.containsKey(key)) {
+                removeTree(key);
+                dirty.set(true);
+            }
+            return null;
+        }
+        Entry previous = entries.put(key, new Entry(current, System.nanoTime()));
+        if (previous == null || !sameVersion(previous.metadata, current)) {
+            dirty.set(true);
+        }
+        return current;
+    }
+
+    /**
+     * Finds the closest indexed ancestor of a missing path and rescans it if it changed.
+     * @return whether a rescan happened
+     */
+    private boolean refreshAncestor(Path path) {
+        for (Path parent = path.getParent(); parent != null && parent.startsWith(root); parent = parent.getParent()) {
+            Entry entry = entries.get(key(parent));
+            if (entry == null) {
+                continue;
+            }
+            FileMetadata current = stat(parent);
+            if (current != null && current.directory() && sameVersion(entry.metadata, current)) {
+                return false;
+            }
+            rescan(parent);
+            return true;
+        }
+        return false;
+    }
+
+    // on a warm start only directories are checked; files are verified lazily on lookup
+    private void validateDirectories() {
+        List<Path> directories = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.metadata.directory()) {
+                directories.add(entry.metadata.path());
+            }
+        }
+        directories.parallelStream().forEach(directory -> {
+            Entry entry = entries.get(key(directory));
+            FileMetadata current = stat(directory);
+            if (entry != null && (current == null || !sameVersion(entry.metadata, current))) {
+                rescan(directory);
+            }
+        });
+    }
+
+    private void rescan(Path directory) {
+        String directoryKey = key(directory);
+        FileMetadata current = stat(directory);
+        if (current == null || !current.directory()) {
+            removeTree(directoryKey);
+            if (current != null) {
+                entries.put(directoryKey, new Entry(current, System.nanoTime()));
+            }
+            dirty.set(true);
+            return;
+        }
+        entries.put(directoryKey, new Entry(current, System.nanoTime()));
+
+        Set<String> seen = new HashSet<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                FileMetadata metadata = stat(child);
+                if (metadata == null) {
+                    continue;
+                }
+                String childKey = key(child);
+                seen.add(childKey);
+                Entry previous = entries.put(childKey, new Entry(metadata, System.nanoTime()));
+                if (metadata.directory() && previous == null && !Files.isSymbolicLink(child)) {
+                    walk(child);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not rescan {}: {}", directory, e.getMessage());
+            return;
+        }
+        String prefix = directoryKey.equals("/") ? "/" : directoryKey + "/";
+        List<String> removed = new ArrayList<>();
+        for (String key : entries.keySet()) {
+            if (key.startsWith(prefix) && key.indexOf('/', prefix.length()) == -1 && !key.equals(directoryKey)
+                    && !seen.contains(key)) {
+                removed.add(key);
+            }
+        }
+        removed.forEach(this::removeTree);
+        dirty.set(true);
+        logger.debug("Rescanned {}: {} entries, {} removed", directory, seen.size(), removed.size());
+    }
+
+    private void walk(Path directory) {
+        ForkJoinPool.commonPool().invoke(new WalkTask(directory));
+    }
+
+    private final class WalkTask extends RecursiveAction {
+        private final Path directory;
+
+        private WalkTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            FileMetadata self = stat(directory);
+            if (self == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            entries.put(key(directory), new Entry(self, now));
+            List<WalkTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    FileMetadata metadata = stat(child);
+                    if (metadata == null) {
+                        continue;
+                    }
+                    if (metadata.directory()) {
+                        // symlinked directories are indexed but not descended into, which rules out cycles
+                        if (Files.isSymbolicLink(child)) {
+                            entries.put(key(child), new Entry(metadata, now));
+                        } else {
+                            subdirectories.add(new WalkTask(child));
+                        }
+                    } else {
+                        entries.put(key(child), new Entry(metadata, now));
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Could not index {}: {}", directory, e.getMessage());
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    private boolean isExcluded(Path path) {
+        for (Path directory : excluded) {
+            if (path.startsWith(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the current metadata, or null if the path is missing, not a regular file or directory,
+     *         the manifest itself, excluded, or a link leading outside webRoot
+     */
+    private FileMetadata stat(Path path) {
+        if (path.equals(manifest) || isExcluded(path)) {
+            return null;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attrs.isSymbolicLink()) {
+                if (!path.toRealPath().startsWith(realRoot)) {
+                    return null;
+                }
+                attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            }
+            if (!attrs.isDirectory() && !attrs.isRegularFile()) {
+                return null;
+            }
+            return FileMetadata.of(path, attrs.isDirectory(), attrs.isDirectory() ? 0 : attrs.size(),
+                    attrs.lastModifiedTime().to(TimeUnit.MICROSECONDS));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.debug("Could not stat {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean sameVersion(FileMetadata a, FileMetadata b) {
+        return a.directory() == b.directory() && a.size() == b.size() && a.lastModifiedMicros() == b.lastModifiedMicros();
+    }
+
+    private void removeTree(String key) {
+        entries.remove(key);
+        String prefix = key.equals("/") ? "/" : key + "/";
+        entries.keySet().removeIf(candidate -> candidate.startsWith(prefix));
+    }
+
+    private String key(Path path) {
+        if (path.equals(root)) {
+            return "/";
+        }
+        String relative = root.relativize(path).toString();
+        return "/" + (File.separatorChar == '/' ? relative : relative.replace(File.separatorChar, '/'));
+    }
+
+    /**
+     * Persists the index if it changed since it was last written.
+     */
+    public void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        List<FileMetadata> snapshot = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            snapshot.add(entry.metadata);
+        }
+        try {
+            IndexManifest.write(manifest, root, snapshot);
+            logger.debug("Wrote {} index entries to {}", snapshot.size(), manifest);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Could not write index manifest {}: {}", manifest, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        save();
+    }
+
+    // nanoTime has an arbitrary origin, so no verifiedAt value can stand for "never checked"
+    private record Entry(FileMetadata metadata, long verifiedAt, boolean verified) {
+        Entry(FileMetadata metadata, long verifiedAt) {
+            this(metadata, verifiedAt, true);
+        }
+
+        // recorded by an earlier run, so the file may have changed while the server was down
+        static Entry unverified(FileMetadata metadata) {
+            return new Entry(metadata, 0, false);
+        }
+    }
+}
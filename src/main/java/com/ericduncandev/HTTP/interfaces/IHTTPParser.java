@@ -1,5 +1,7 @@
 package com.ericduncandev.HTTP.interfaces;
 
+import com.ericduncandev.HTTP.model.HTTPRequest;
+
 public interface IHTTPParser {
     /**
      * Parses an incoming HTTP request from a client connection.
@@ -8,4 +10,11 @@ public interface IHTTPParser {
      * Supports parsing of multipart/form-data, application/json, and x-www-form-urlencoded content.
      */
     void parseRequest();
+
+    /**
+     * Routes an already parsed request to the proxy or to the handler for its method.
+     * Used directly for requests that arrive on HTTP/2 streams.
+     * @param req The request to handle
+     */
+    void dispatch(HTTPRequest req);
 }
@@ -2,6 +2,8 @@ package com.ericduncandev.HTTP.interfaces;
 
 import com.ericduncandev.HTTP.model.HTTPResponse;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface for creating HTTP response objects with various status codes and content.
  */
@@ -14,6 +16,31 @@ public interface IResponseFactory {
      */
     HTTPResponse ok(byte[] body, String contentType);
 
+    /**
+     * Creates a 200 OK response whose body is served from a buffer, such as a memory-mapped file.
+     * @param body The response body buffer, positioned at its first byte
+     * @param contentType The MIME type of the content
+     * @return HTTPResponse object
+     */
+    HTTPResponse ok(ByteBuffer body, String contentType);
+
+    /**
+     * Creates a 200 OK response for a static file, with validators for conditional requests.
+     * @param body The file contents, positioned at the first byte
+     * @param contentType The MIME type of the content
+     * @param etag The entity tag of this version of the file
+     * @param lastModified The file's modification time in milliseconds since the epoch
+     * @return HTTPResponse object
+     */
+    HTTPResponse ok(ByteBuffer body, String contentType, String etag, long lastModified);
+
+    /**
+     * Creates a 304 Not Modified response for a conditional request whose cached copy is current.
+     * @param etag The entity tag the client's copy matched
+     * @return HTTPResponse object
+     */
+    HTTPResponse notModified(String etag);
+
     /**
      * Creates a 201 Created response with body, content type, and location.
      * @param body The response body as byte array
@@ -23,6 +50,15 @@ public interface IResponseFactory {
      */
     HTTPResponse created(byte[] body, String contentType, String location);
 
+    /**
+     * Creates a 201 Created response whose body is served from a buffer, such as a JsonWriter's output.
+     * @param body The response body buffer, positioned at its first byte
+     * @param contentType The MIME type of the content
+     * @param location The URI of the created resource
+     * @return HTTPResponse object
+     */
+    HTTPResponse created(ByteBuffer body, String contentType, String location);
+
     /**
      * Creates a 204 No Content response with content location.
      * @param contentLocation The location of the content
@@ -73,9 +109,103 @@ public interface IResponseFactory {
      */
     HTTPResponse serverError(byte[] body, String contentType);
 
+    /**
+     * Creates a 502 Bad Gateway response with error message, used when an upstream fails.
+     * @param message The error message
+     * @return HTTPResponse object
+     */
+    HTTPResponse badGateway(String message);
+
+    /**
+     * Creates a 501 Not Implemented response with error message, for a feature the connection cannot carry.
+     * @param message The error message
+     * @return HTTPResponse object
+     */
+    HTTPResponse notImplemented(String message);
+
     /**
      * Creates a 503 Service Unavailable response.
      * @return HTTPResponse object
      */
     HTTPResponse serviceUnavailable();
+
+    /**
+     * Creates a 405 Method Not Allowed response.
+     * @param allowed The methods the server does support, for the Allow header
+     * @return HTTPResponse object
+     */
+    HTTPResponse methodNotAllowed(String allowed);
+
+    /**
+     * Creates a 417 Expectation Failed response, for an Expect header other than 100-continue.
+     * @return HTTPResponse object
+     */
+    HTTPResponse expectationFailed();
+
+    /**
+     * Creates a 413 Content Too Large response.
+     * @param maxBytes The largest body the server accepts
+     * @return HTTPResponse object
+     */
+    HTTPResponse payloadTooLarge(long maxBytes);
+
+    /**
+     * Creates a 431 Request Header Fields Too Large response.
+     * @param maxBytes The largest request line and header section the server accepts
+     * @return HTTPResponse object
+     */
+    HTTPResponse requestHeaderFieldsTooLarge(int maxBytes);
+
+    /**
+     * Creates a 429 Too Many Requests response.
+     * @param retryAfterSeconds The number of seconds the client should wait before retrying
+     * @return HTTPResponse object
+     */
+    HTTPResponse tooManyRequests(long retryAfterSeconds);
+
+    /**
+     * Creates a 101 Switching Protocols response accepting an upgrade.
+     * @param protocol The protocol the connection switches to, e.g. h2c
+     * @return HTTPResponse object
+     */
+    HTTPResponse switchingProtocols(String protocol);
+
+    /**
+     * Creates a 409 Conflict response, for a request that does not fit the resource's current state.
+     * @param message The error message
+     * @return HTTPResponse object
+     */
+    HTTPResponse conflict(String message);
+
+    /**
+     * Creates a 415 Unsupported Media Type response.
+     * @param message The error message
+     * @return HTTPResponse object
+     */
+    HTTPResponse unsupportedMediaType(String message);
+
+    /**
+     * Creates a 201 Created response for a new resumable upload session.
+     * @param location The URI chunks of the upload are sent to
+     * @param expiresAt When the session expires without further chunks, in milliseconds since the epoch
+     * @return HTTPResponse object
+     */
+    HTTPResponse uploadCreated(String location, long expiresAt);
+
+    /**
+     * Creates a bodiless response reporting how far a resumable upload has got.
+     * @param statusCode The HTTP status code
+     * @param offset The number of bytes received so far
+     * @param length The total length of the upload
+     * @param expiresAt When the session expires, in milliseconds since the epoch, or 0 once it is complete
+     * @return HTTPResponse object
+     */
+    HTTPResponse uploadProgress(int statusCode, long offset, long length, long expiresAt);
+
+    /**
+     * Creates a 204 No Content response describing the resumable upload protocol the server speaks.
+     * @param maxSize The largest upload the server accepts
+     * @return HTTPResponse object
+     */
+    HTTPResponse uploadOptions(long maxSize);
 }
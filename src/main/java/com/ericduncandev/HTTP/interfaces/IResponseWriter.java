@@ -0,0 +1,69 @@
+package com.ericduncandev.HTTP.interfaces;
+
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.HTTPResponse;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Sends responses for one request, independently of the protocol framing them on the wire.
+ */
+public interface IResponseWriter {
+    /**
+     * Writes a complete response, head and body. Write failures are logged, not thrown.
+     * @param response The response to send
+     */
+    void write(HTTPResponse response);
+
+    /**
+     * Sends the response head and returns a channel for a body whose length is not known up front.
+     * Closing the channel completes the response.
+     * @param statusCode The HTTP status code
+     * @param headers The response headers, without framing headers such as Transfer-Encoding
+     * @return a channel accepting the body bytes
+     */
+    WritableByteChannel beginStreaming(int statusCode, HTTPHeaders headers) throws IOException;
+
+    /**
+     * Sends the response head and hands the connection over to the caller, for a response that
+     * outlives the handler such as an event stream. The server no longer closes the connection then.
+     * @param statusCode The HTTP status code
+     * @param headers The response headers
+     * @return the connection, or null, with nothing sent, if it is not a plain socket that can be handed over
+     */
+    default SocketChannel takeOver(int statusCode, HTTPHeaders headers) throws IOException {
+        return null;
+    }
+
+    /**
+     * Sends the interim 100 Continue response that a client waiting on {@code Expect: 100-continue}
+     * needs before it sends the body. Protocols whose framing makes the interim response unnecessary
+     * may ignore it.
+     */
+    default void writeContinue() throws IOException {
+    }
+
+    /**
+     * Associates the writer with the request it answers, so that response events can name it.
+     * @param request The parsed request
+     */
+    default void attach(HTTPRequest request) {
+    }
+
+    /**
+     * @return the status code of the response sent through this writer, or 0 if none was sent yet
+     */
+    default int statusCode() {
+        return 0;
+    }
+
+    /**
+     * @return the number of response body bytes sent through this writer so far
+     */
+    default long bodyBytes() {
+        return 0;
+    }
+}
@@ -2,6 +2,9 @@ package com.ericduncandev.HTTP.interfaces;
 
 import com.ericduncandev.HTTP.core.ServerConfig;
 
+import java.util.List;
+import java.util.Map;
+
 public interface IServerConfig {
     /**
      * @return the port number the server listens on
@@ -23,6 +26,322 @@ public interface IServerConfig {
      */
     String getWebRoot();
 
+    /**
+     * @return the largest file size, in bytes, eligible for the memory-mapped serving tier
+     */
+    long getMappedFileMaxSize();
+
+    /**
+     * @return the total number of bytes that may be memory-mapped at once
+     */
+    long getMappedCacheBudget();
+
+    /**
+     * @return the number of requests for a file before it is promoted to the memory-mapped tier
+     */
+    int getMappedPromoteThreshold();
+
+    /**
+     * @return the root directory of the upload store
+     */
+    String getUploadRoot();
+
+    /**
+     * @return whether identical uploads are stored once, addressed by their content digest
+     */
+    boolean isUploadDeduplication();
+
+    /**
+     * @return whether uploads are only acknowledged once they are fsynced to disk
+     */
+    boolean isDurableUploads();
+
+    /**
+     * @return the longest time a durable write waits for others to share its group commit
+     */
+    long getGroupCommitIntervalMillis();
+
+    /**
+     * @return the number of pending writes that triggers a group commit immediately
+     */
+    int getGroupCommitMaxBatch();
+
+    /**
+     * @return the reverse-proxy routes, mapping a path prefix to its upstream host:port addresses
+     */
+    Map<String, List<String>> getProxyRoutes();
+
+    /**
+     * @return the timeout for opening a connection to an upstream
+     */
+    int getProxyConnectTimeoutMillis();
+
+    /**
+     * @return the socket read timeout for upstream responses
+     */
+    int getProxyReadTimeoutMillis();
+
+    /**
+     * @return the number of consecutive failures after which an upstream is ejected
+     */
+    int getProxyEjectAfterFailures();
+
+    /**
+     * @return how long an ejected upstream is left out of load balancing
+     */
+    long getProxyEjectMillis();
+
+    /**
+     * @return the port of the HTTPS listener, or 0 when TLS is disabled
+     */
+    int getHttpsPort();
+
+    /**
+     * @return the path of the keystore holding the server certificate
+     */
+    String getKeyStorePath();
+
+    /**
+     * @return the password of the keystore and its key
+     */
+    String getKeyStorePassword();
+
+    /**
+     * @return the keystore format, e.g. PKCS12
+     */
+    String getKeyStoreType();
+
+    /**
+     * @return the enabled TLS protocol versions
+     */
+    List<String> getTlsProtocols();
+
+    /**
+     * @return the enabled cipher suites in preference order, empty for the JDK defaults
+     */
+    List<String> getTlsCipherSuites();
+
+    /**
+     * @return the protocols offered through ALPN in preference order
+     */
+    List<String> getTlsApplicationProtocols();
+
+    /**
+     * @return the maximum number of TLS sessions cached for resumption
+     */
+    int getTlsSessionCacheSize();
+
+    /**
+     * @return how long a TLS session can be resumed
+     */
+    int getTlsSessionTimeoutSeconds();
+
+    /**
+     * @return whether stateless session tickets are issued for resumption; disabling them sets a JVM-wide
+     * system property, see {@link com.ericduncandev.HTTP.tls.TLSContextFactory}
+     */
+    boolean isTlsSessionTickets();
+
+    /**
+     * @return whether the plaintext listener accepts HTTP/2 by prior knowledge and by Upgrade: h2c
+     */
+    boolean isH2cEnabled();
+
+    /**
+     * @return the number of streams a client may have open at once on an HTTP/2 connection
+     */
+    int getHttp2MaxConcurrentStreams();
+
+    /**
+     * @return the HPACK dynamic table size in bytes, for each direction of an HTTP/2 connection
+     */
+    int getHttp2HeaderTableSize();
+
+    /**
+     * @return the largest request body buffered for an HTTP/2 stream; larger streams are reset
+     */
+    int getHttp2MaxRequestBody();
+
+    /**
+     * @return whether GET responses are micro-cached with request coalescing
+     */
+    boolean isResponseCacheEnabled();
+
+    /**
+     * @return how long a cached response is served as fresh
+     */
+    long getResponseCacheTtlMillis();
+
+    /**
+     * @return how long past its TTL a response is still served while it is revalidated in the background
+     */
+    long getResponseCacheStaleMillis();
+
+    /**
+     * @return the maximum number of cached responses
+     */
+    int getResponseCacheMaxEntries();
+
+    /**
+     * @return the largest response body that is cached
+     */
+    int getResponseCacheMaxBodySize();
+
+    /**
+     * @return the request headers that are part of the cache key
+     */
+    List<String> getResponseCacheVaryHeaders();
+
+    /**
+     * @return the file the webRoot index is persisted to between restarts, or null for one in the temp directory
+     */
+    String getWebRootManifest();
+
+    /**
+     * @return how long an indexed file's metadata is trusted before it is checked against the disk again
+     */
+    long getWebRootIndexValidityMillis();
+
+    /**
+     * @return the properties file whose runtime-tunable settings are reloaded when it changes, or null if there is none
+     */
+    String getRuntimeConfigFile();
+
+    /**
+     * @return the sustained number of new connections per second allowed from one client address, or 0 for no limit
+     */
+    int getRateLimitConnectionsPerSecond();
+
+    /**
+     * @return the number of connections a client address may open at once before its rate applies
+     */
+    int getRateLimitConnectionBurst();
+
+    /**
+     * @return the sustained number of requests per second allowed from one client address, or 0 for no limit
+     */
+    int getRateLimitRequestsPerSecond();
+
+    /**
+     * @return the number of requests a client address may send at once before its rate applies
+     */
+    int getRateLimitRequestBurst();
+
+    /**
+     * @return the number of client addresses whose rate limit state is tracked at once
+     */
+    int getRateLimitMaxClients();
+
+    /**
+     * @return the number of workers handling static GET and HEAD requests
+     */
+    int getBulkheadStaticThreads();
+
+    /**
+     * @return the number of static GET and HEAD requests that may wait for a worker before further ones are rejected with 503
+     */
+    int getBulkheadStaticQueue();
+
+    /**
+     * @return the number of workers handling uploads (PUT and multipart POST)
+     */
+    int getBulkheadUploadThreads();
+
+    /**
+     * @return the number of uploads (PUT and multipart POST) that may wait for a worker before further ones are rejected with 503
+     */
+    int getBulkheadUploadQueue();
+
+    /**
+     * @return the number of workers handling other state-changing requests
+     */
+    int getBulkheadMutationThreads();
+
+    /**
+     * @return the number of other state-changing requests that may wait for a worker before further ones are rejected with 503
+     */
+    int getBulkheadMutationQueue();
+
+    /**
+     * @return the number of workers handling requests forwarded to proxy upstreams
+     */
+    int getBulkheadProxyThreads();
+
+    /**
+     * @return the number of proxied requests that may wait for a worker before further ones are rejected with 503
+     */
+    int getBulkheadProxyQueue();
+
+    /**
+     * @return the largest request body accepted, in bytes; larger requests are answered with 413
+     */
+    long getMaxRequestBodySize();
+
+    /**
+     * @return the largest request line and header section accepted, in bytes; larger requests are answered with 431
+     */
+    int getMaxRequestHeaderSize();
+
+    /**
+     * @return the body size up to which a request body is buffered in memory; larger bodies spill to a temporary file
+     */
+    int getRequestBodyMemoryThreshold();
+
+    /**
+     * @return the directory request bodies spill to, or null for the system temporary directory
+     */
+    String getRequestBodySpillDirectory();
+
+    /**
+     * @return the URI path under which resumable upload sessions are created, or null when resumable uploads are disabled
+     */
+    String getResumableUploadPath();
+
+    /**
+     * @return the largest total length a resumable upload may announce
+     */
+    long getResumableUploadMaxSize();
+
+    /**
+     * @return how long a resumable upload session may go without a chunk before it is abandoned and removed
+     */
+    long getResumableUploadExpiryMillis();
+
+    /**
+     * @return the URI path clients subscribe to for Server-Sent Events, or null when the event stream is disabled
+     */
+    String getEventStreamPath();
+
+    /**
+     * @return how many recent events are kept for subscribers to catch up on; rounded up to a power of two
+     */
+    int getEventRingCapacity();
+
+    /**
+     * @return the most event stream subscribers served at once; further subscribers get a 503
+     */
+    int getEventMaxSubscribers();
+
+    /**
+     * @return how long a subscriber may go without data before a keep-alive comment is sent, which also detects dead peers
+     */
+    long getEventKeepAliveMillis();
+
+    /**
+     * @return how long a subscriber's socket may refuse data before the subscriber is dropped as too slow
+     */
+    long getEventSlowConsumerMillis();
+
+    /**
+     * @return the URI path of the batch fetch endpoint, which returns several static files in one multipart/mixed response, or null when it is disabled
+     */
+    String getBatchPath();
+
+    /**
+     * @return the most files one batch request may ask for
+     */
+    int getBatchMaxFiles();
+
     interface IBuilder {
         /**
          * Sets the server port number.
@@ -52,6 +371,450 @@ public interface IServerConfig {
          */
         ServerConfig.Builder webRoot(String root);
 
+        /**
+         * Sets the largest file size served from the memory-mapped tier.
+         * @param bytes the maximum file size in bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder mappedFileMaxSize(long bytes);
+
+        /**
+         * Sets the total budget for memory-mapped files.
+         * @param bytes the maximum number of mapped bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder mappedCacheBudget(long bytes);
+
+        /**
+         * Sets how many requests a file needs before it is memory-mapped.
+         * @param requests the promotion threshold
+         * @return the builder instance
+         */
+        ServerConfig.Builder mappedPromoteThreshold(int requests);
+
+        /**
+         * Sets the root directory of the upload store.
+         * @param root the path to the upload root directory
+         * @return the builder instance
+         */
+        ServerConfig.Builder uploadRoot(String root);
+
+        /**
+         * Enables content-addressed deduplication of uploads.
+         * @param enabled whether identical uploads are stored once
+         * @return the builder instance
+         */
+        ServerConfig.Builder uploadDeduplication(boolean enabled);
+
+        /**
+         * Enables durable uploads, acknowledged only after a group commit.
+         * @param enabled whether uploads are fsynced before responding
+         * @return the builder instance
+         */
+        ServerConfig.Builder durableUploads(boolean enabled);
+
+        /**
+         * Sets how long a group commit waits to collect concurrent writes.
+         * @param millis the commit window in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder groupCommitIntervalMillis(long millis);
+
+        /**
+         * Sets the batch size that triggers a group commit early.
+         * @param size the maximum number of writes per commit
+         * @return the builder instance
+         */
+        ServerConfig.Builder groupCommitMaxBatch(int size);
+
+        /**
+         * Mounts a reverse-proxy route.
+         * @param prefix the path prefix forwarded to the upstreams
+         * @param upstreams the upstream addresses as host:port
+         * @return the builder instance
+         */
+        ServerConfig.Builder proxyRoute(String prefix, String... upstreams);
+
+        /**
+         * Sets the upstream connect timeout.
+         * @param millis the timeout in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder proxyConnectTimeoutMillis(int millis);
+
+        /**
+         * Sets the upstream read timeout.
+         * @param millis the timeout in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder proxyReadTimeoutMillis(int millis);
+
+        /**
+         * Sets how many consecutive failures eject an upstream.
+         * @param failures the failure threshold
+         * @return the builder instance
+         */
+        ServerConfig.Builder proxyEjectAfterFailures(int failures);
+
+        /**
+         * Sets how long an upstream stays ejected.
+         * @param millis the ejection period in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder proxyEjectMillis(long millis);
+
+        /**
+         * Sets the HTTPS port; 0 disables the TLS listener.
+         * @param port the port number to listen on for TLS
+         * @return the builder instance
+         */
+        ServerConfig.Builder httpsPort(int port);
+
+        /**
+         * Sets the keystore holding the server certificate and key.
+         * @param path the path to the keystore file
+         * @return the builder instance
+         */
+        ServerConfig.Builder keyStorePath(String path);
+
+        /**
+         * Sets the keystore password.
+         * @param password the keystore and key password
+         * @return the builder instance
+         */
+        ServerConfig.Builder keyStorePassword(String password);
+
+        /**
+         * Sets the keystore format.
+         * @param type the keystore type
+         * @return the builder instance
+         */
+        ServerConfig.Builder keyStoreType(String type);
+
+        /**
+         * Sets the enabled TLS protocol versions.
+         * @param protocols the protocol names, e.g. TLSv1.3
+         * @return the builder instance
+         */
+        ServerConfig.Builder tlsProtocols(String... protocols);
+
+        /**
+         * Sets the enabled cipher suites in server preference order.
+         * @param suites the cipher suite names
+         * @return the builder instance
+         */
+        ServerConfig.Builder tlsCipherSuites(String... suites);
+
+        /**
+         * Sets the protocols offered through ALPN.
+         * @param protocols the ALPN protocol names
+         * @return the builder instance
+         */
+        ServerConfig.Builder tlsApplicationProtocols(String... protocols);
+
+        /**
+         * Sets the size of the server-side TLS session cache.
+         * @param size the maximum number of cached sessions
+         * @return the builder instance
+         */
+        ServerConfig.Builder tlsSessionCacheSize(int size);
+
+        /**
+         * Sets how long cached TLS sessions and tickets stay valid.
+         * @param seconds the session lifetime in seconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder tlsSessionTimeoutSeconds(int seconds);
+
+        /**
+         * Enables stateless TLS session tickets. The JDK only offers a JVM-wide switch for them, so
+         * disabling them affects every TLS endpoint in the process.
+         * @param enabled whether session tickets are issued
+         * @return the builder instance
+         */
+        ServerConfig.Builder tlsSessionTickets(boolean enabled);
+
+        /**
+         * Enables cleartext HTTP/2 on the plaintext listener.
+         * @param h2cEnabled true to accept the HTTP/2 preface and h2c upgrades
+         * @return the builder instance
+         */
+        ServerConfig.Builder h2cEnabled(boolean h2cEnabled);
+
+        /**
+         * Sets SETTINGS_MAX_CONCURRENT_STREAMS; streams beyond it are refused.
+         * @param http2MaxConcurrentStreams the per-connection stream limit
+         * @return the builder instance
+         */
+        ServerConfig.Builder http2MaxConcurrentStreams(int http2MaxConcurrentStreams);
+
+        /**
+         * Sets the HPACK dynamic table bound advertised to clients and used for responses.
+         * @param http2HeaderTableSize the table size in bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder http2HeaderTableSize(int http2HeaderTableSize);
+
+        /**
+         * Sets the largest request body accepted on an HTTP/2 stream.
+         * @param http2MaxRequestBody the limit in bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder http2MaxRequestBody(int http2MaxRequestBody);
+
+        /**
+         * Enables the micro-cache for generated GET responses.
+         * @param enabled true to cache and coalesce GET responses
+         * @return the builder instance
+         */
+        ServerConfig.Builder responseCacheEnabled(boolean enabled);
+
+        /**
+         * Sets how long cached responses stay fresh.
+         * @param millis the time to live in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder responseCacheTtlMillis(long millis);
+
+        /**
+         * Sets the stale-while-revalidate window.
+         * @param millis the window in milliseconds, 0 to disable
+         * @return the builder instance
+         */
+        ServerConfig.Builder responseCacheStaleMillis(long millis);
+
+        /**
+         * Sets the maximum number of cached responses.
+         * @param maxEntries the entry limit
+         * @return the builder instance
+         */
+        ServerConfig.Builder responseCacheMaxEntries(int maxEntries);
+
+        /**
+         * Sets the largest cacheable response body.
+         * @param maxBodySize the size in bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder responseCacheMaxBodySize(int maxBodySize);
+
+        /**
+         * Sets the request headers whose values select distinct cache entries.
+         * @param headers the header names
+         * @return the builder instance
+         */
+        ServerConfig.Builder responseCacheVaryHeaders(String... headers);
+
+        /**
+         * Sets where the webRoot index manifest is persisted. By default it is kept in the temp directory,
+         * since a manifest under webRoot is one more file requests have to be kept away from.
+         * @param path the manifest path, or null for the default
+         * @return the builder instance
+         */
+        ServerConfig.Builder webRootManifest(String path);
+
+        /**
+         * Sets how long indexed file metadata is trusted without a stat.
+         * @param millis the validity in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder webRootIndexValidityMillis(long millis);
+
+        /**
+         * Sets the properties file that runtime-tunable settings are reloaded from.
+         * @param path the file path, or null to disable reloading
+         * @return the builder instance
+         */
+        ServerConfig.Builder runtimeConfigFile(String path);
+
+        /**
+         * Sets the sustained connection rate allowed per client address.
+         * @param rate connections per second, or 0 to disable the limit
+         * @return the builder instance
+         */
+        ServerConfig.Builder rateLimitConnectionsPerSecond(int rate);
+
+        /**
+         * Sets how many connections a client address may open in a burst.
+         * @param burst the burst size
+         * @return the builder instance
+         */
+        ServerConfig.Builder rateLimitConnectionBurst(int burst);
+
+        /**
+         * Sets the sustained request rate allowed per client address.
+         * @param rate requests per second, or 0 to disable the limit
+         * @return the builder instance
+         */
+        ServerConfig.Builder rateLimitRequestsPerSecond(int rate);
+
+        /**
+         * Sets how many requests a client address may send in a burst.
+         * @param burst the burst size
+         * @return the builder instance
+         */
+        ServerConfig.Builder rateLimitRequestBurst(int burst);
+
+        /**
+         * Sets how many client addresses the rate limiter tracks at once.
+         * @param clients the maximum number of tracked addresses
+         * @return the builder instance
+         */
+        ServerConfig.Builder rateLimitMaxClients(int clients);
+
+        /**
+         * Sets the number of workers handling static GET and HEAD requests.
+         * @param threads the worker count
+         * @return the builder instance
+         */
+        ServerConfig.Builder bulkheadStaticThreads(int threads);
+
+        /**
+         * Sets how many static GET and HEAD requests may wait for a worker.
+         * @param capacity the queue capacity
+         * @return the builder instance
+         */
+        ServerConfig.Builder bulkheadStaticQueue(int capacity);
+
+        /**
+         * Sets the number of workers handling uploads (PUT and multipart POST).
+         * @param threads the worker count
+         * @return the builder instance
+         */
+        ServerConfig.Builder bulkheadUploadThreads(int threads);
+
+        /**
+         * Sets how many uploads (PUT and multipart POST) may wait for a worker.
+         * @param capacity the queue capacity
+         * @return the builder instance
+         */
+        ServerConfig.Builder bulkheadUploadQueue(int capacity);
+
+        /**
+         * Sets the number of workers handling other state-changing requests.
+         * @param threads the worker count
+         * @return the builder instance
+         */
+        ServerConfig.Builder bulkheadMutationThreads(int threads);
+
+        /**
+         * Sets how many other state-changing requests may wait for a worker.
+         * @param capacity the queue capacity
+         * @return the builder instance
+         */
+        ServerConfig.Builder bulkheadMutationQueue(int capacity);
+
+        /**
+         * Sets the number of workers handling requests forwarded to proxy upstreams, whatever their method.
+         * @param threads the worker count
+         * @return the builder instance
+         */
+        ServerConfig.Builder bulkheadProxyThreads(int threads);
+
+        /**
+         * Sets how many proxied requests may wait for a worker.
+         * @param capacity the queue capacity
+         * @return the builder instance
+         */
+        ServerConfig.Builder bulkheadProxyQueue(int capacity);
+
+        /**
+         * Sets the largest request body accepted.
+         * @param bytes the limit in bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder maxRequestBodySize(long bytes);
+
+        /**
+         * Sets the largest request line and header section accepted.
+         * @param bytes the limit in bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder maxRequestHeaderSize(int bytes);
+
+        /**
+         * Sets the body size up to which request bodies are buffered in memory.
+         * @param bytes the threshold in bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder requestBodyMemoryThreshold(int bytes);
+
+        /**
+         * Sets the directory large request bodies are spilled to.
+         * @param path the directory, or null for the system temporary directory
+         * @return the builder instance
+         */
+        ServerConfig.Builder requestBodySpillDirectory(String path);
+
+        /**
+         * Enables resumable uploads under the given URI path, e.g. {@code /files/}.
+         * @param path the endpoint path
+         * @return the builder instance
+         */
+        ServerConfig.Builder resumableUploadPath(String path);
+
+        /**
+         * Sets the largest total length of a resumable upload.
+         * @param bytes the maximum length in bytes
+         * @return the builder instance
+         */
+        ServerConfig.Builder resumableUploadMaxSize(long bytes);
+
+        /**
+         * Sets how long an idle resumable upload session is kept.
+         * @param millis the idle time in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder resumableUploadExpiryMillis(long millis);
+
+        /**
+         * Enables the Server-Sent Events stream at the given URI path, e.g. {@code /events}.
+         * @param path the event stream path
+         * @return the builder instance
+         */
+        ServerConfig.Builder eventStreamPath(String path);
+
+        /**
+         * Sets how many recent events the broadcast ring buffer holds.
+         * @param frames the number of events
+         * @return the builder instance
+         */
+        ServerConfig.Builder eventRingCapacity(int frames);
+
+        /**
+         * Sets the maximum number of concurrent event stream subscribers.
+         * @param subscribers the maximum number of subscribers
+         * @return the builder instance
+         */
+        ServerConfig.Builder eventMaxSubscribers(int subscribers);
+
+        /**
+         * Sets the keep-alive interval of idle event stream subscribers.
+         * @param millis the interval in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder eventKeepAliveMillis(long millis);
+
+        /**
+         * Sets how long a stalled event stream subscriber is kept.
+         * @param millis the stall limit in milliseconds
+         * @return the builder instance
+         */
+        ServerConfig.Builder eventSlowConsumerMillis(long millis);
+
+        /**
+         * Enables the batch fetch endpoint at the given URI path, e.g. {@code /batch}.
+         * @param path the batch endpoint path
+         * @return the builder instance
+         */
+        ServerConfig.Builder batchPath(String path);
+
+        /**
+         * Sets the maximum number of files a batch request may ask for.
+         * @param files the maximum number of files
+         * @return the builder instance
+         */
+        ServerConfig.Builder batchMaxFiles(int files);
+
         /**
          * Builds and returns a new ServerConfig instance.
          * @return a new ServerConfig instance
@@ -0,0 +1,29 @@
+package com.ericduncandev.HTTP.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A connection turned away with 503 because the server was at its connection limit.
+ */
+@Name("com.ericduncandev.HTTP.AdmissionReject")
+@Label("Admission Reject")
+@Category("HTTP Server")
+@Description("Connection rejected at the connection limit")
+@StackTrace(false)
+@Enabled(false)
+public final class AdmissionRejectEvent extends Event {
+    @Label("Remote Address")
+    public String remoteAddress;
+
+    @Label("Active Connections")
+    public int activeConnections;
+
+    @Label("Connection Limit")
+    public int maxConnections;
+}
@@ -0,0 +1,33 @@
+package com.ericduncandev.HTTP.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Time from a connection being accepted until it is admitted, covering the wait for a worker
+ * thread and the TLS handshake.
+ */
+@Name("com.ericduncandev.HTTP.ConnectionAccept")
+@Label("Connection Accept")
+@Category("HTTP Server")
+@Description("Connection queued for a worker and, for HTTPS, handshaken")
+@StackTrace(false)
+@Enabled(false)
+public final class ConnectionAcceptEvent extends Event {
+    @Label("Remote Address")
+    public String remoteAddress;
+
+    @Label("Secure")
+    public boolean secure;
+
+    @Label("Queue Time")
+    @Description("Time spent waiting for a worker thread")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueTime;
+}
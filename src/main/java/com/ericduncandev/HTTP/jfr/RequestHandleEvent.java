@@ -0,0 +1,35 @@
+package com.ericduncandev.HTTP.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Running the handler for a parsed request, including any response writes it makes.
+ */
+@Name("com.ericduncandev.HTTP.RequestHandle")
+@Label("Request Handle")
+@Category("HTTP Server")
+@Description("Proxy, cache or file handler execution for one request")
+@StackTrace(false)
+@Enabled(false)
+public final class RequestHandleEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Body Size")
+    @Description("Response body bytes the handler wrote")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,42 @@
+package com.ericduncandev.HTTP.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Reading and parsing an HTTP/1.1 request line, headers and body.
+ * The body is read by the request's worker pool, so the duration includes the queue time spent
+ * waiting for it between the two. The status is only set when the request was rejected while parsing.
+ */
+@Name("com.ericduncandev.HTTP.RequestParse")
+@Label("Request Parse")
+@Category("HTTP Server")
+@Description("Request line, headers and body read from the connection")
+@StackTrace(false)
+@Enabled(false)
+public final class RequestParseEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Queue Time")
+    @Description("Time between the headers being read and a worker starting on the body")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueTime;
+
+    @Label("Body Size")
+    @DataAmount
+    public long bytes;
+}
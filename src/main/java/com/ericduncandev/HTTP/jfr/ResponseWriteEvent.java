@@ -0,0 +1,35 @@
+package com.ericduncandev.HTTP.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Writing a response to the client. For streamed responses the event spans from the head being
+ * sent to the body channel being closed.
+ */
+@Name("com.ericduncandev.HTTP.ResponseWrite")
+@Label("Response Write")
+@Category("HTTP Server")
+@Description("Response head and body written to the connection")
+@StackTrace(false)
+@Enabled(false)
+public final class ResponseWriteEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Body Size")
+    @DataAmount
+    public long bytes;
+}
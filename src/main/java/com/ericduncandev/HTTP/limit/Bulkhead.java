@@ -0,0 +1,123 @@
+package com.ericduncandev.HTTP.limit;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A worker pool with a fixed number of threads and a bounded queue, dedicated to one class of requests.
+ * Work offered while the queue is full is refused rather than queued, so an overloaded class sheds
+ * load instead of growing latency without bound.
+ * <p>
+ * Both sizes can be changed while the pool runs. The queue itself is unbounded; the bound is kept by
+ * counting tasks that are queued or running against the threads plus the queue capacity.
+ */
+public final class Bulkhead {
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    // tasks accepted and not yet finished, queued or running
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile int threads;
+    private volatile int queueCapacity;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    public Bulkhead(String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), Thread.ofPlatform().name(name + "-", 0).factory());
+    }
+
+    /**
+     * Changes the number of workers and the queue capacity. Extra workers are stopped once idle, and
+     * tasks already queued beyond a smaller capacity still run.
+     */
+    public synchronized void resize(int threads, int queueCapacity) {
+        // the core size may never exceed the maximum, so the order depends on the direction
+        if (threads > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(threads);
+            pool.setCorePoolSize(threads);
+        } else {
+            pool.setCorePoolSize(threads);
+            pool.setMaximumPoolSize(threads);
+        }
+        this.threads = threads;
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Queues the task for a worker of this pool.
+     * @return false if the queue is full or the pool is shut down; the task will not run then
+     */
+    public boolean trySubmit(Runnable task) {
+        if (outstanding.incrementAndGet() > threads + queueCapacity) {
+            outstanding.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    outstanding.decrementAndGet();
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            outstanding.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        accepted.increment();
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getActive() {
+        return pool.getActiveCount();
+    }
+
+    public int getQueued() {
+        return pool.getQueue().size();
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "%s[active=%d, queued=%d, accepted=%d, rejected=%d, completed=%d]".formatted(name, getActive(),
+                getQueued(), getAccepted(), getRejected(), getCompleted());
+    }
+}
@@ -0,0 +1,83 @@
+package com.ericduncandev.HTTP.limit;
+
+import com.ericduncandev.HTTP.core.RuntimeSettings;
+import com.ericduncandev.HTTP.core.ServerConfig;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+
+/**
+ * Separate worker pools for cheap reads, uploads, other mutations and proxied requests, chosen from
+ * the request line and headers alone, so that static GETs never queue behind large request bodies or
+ * slow upstreams.
+ */
+public final class Bulkheads implements AutoCloseable {
+    private final Bulkhead staticReads;
+    private final Bulkhead uploads;
+    private final Bulkhead mutations;
+    private final Bulkhead proxied;
+
+    public Bulkheads(ServerConfig config) {
+        this.staticReads = new Bulkhead("static", config.getBulkheadStaticThreads(), config.getBulkheadStaticQueue());
+        this.uploads = new Bulkhead("upload", config.getBulkheadUploadThreads(), config.getBulkheadUploadQueue());
+        this.mutations = new Bulkhead("mutation", config.getBulkheadMutationThreads(), config.getBulkheadMutationQueue());
+        this.proxied = new Bulkhead("proxy", config.getBulkheadProxyThreads(), config.getBulkheadProxyQueue());
+    }
+
+    /**
+     * Applies new pool and queue sizes from a runtime settings change.
+     */
+    public void resize(RuntimeSettings settings) {
+        staticReads.resize(settings.bulkheadStaticThreads(), settings.bulkheadStaticQueue());
+        uploads.resize(settings.bulkheadUploadThreads(), settings.bulkheadUploadQueue());
+        mutations.resize(settings.bulkheadMutationThreads(), settings.bulkheadMutationQueue());
+        proxied.resize(settings.bulkheadProxyThreads(), settings.bulkheadProxyQueue());
+    }
+
+    /**
+     * @param proxied whether the request goes to a proxy route
+     * @return the pool for proxied requests, or for GET and HEAD, for PUT, PATCH and multipart POST, or
+     * for every other method
+     */
+    public Bulkhead forRequest(String method, HTTPHeaders headers, boolean proxied) {
+        if (proxied) {
+            return this.proxied;
+        }
+        return switch (method) {
+            case "GET", "HEAD" -> staticReads;
+            case "PUT", "PATCH" -> uploads;
+            case "POST" -> {
+                String contentType = headers.get(HTTPHeaders.CONTENT_TYPE);
+                yield contentType != null && contentType.startsWith("multipart/") ? uploads : mutations;
+            }
+            default -> mutations;
+        };
+    }
+
+    public Bulkhead getStaticReads() {
+        return staticReads;
+    }
+
+    public Bulkhead getUploads() {
+        return uploads;
+    }
+
+    public Bulkhead getMutations() {
+        return mutations;
+    }
+
+    public Bulkhead getProxied() {
+        return proxied;
+    }
+
+    @Override
+    public void close() {
+        staticReads.shutdown();
+        uploads.shutdown();
+        mutations.shutdown();
+        proxied.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkheads[%s, %s, %s, %s]".formatted(staticReads, uploads, mutations, proxied);
+    }
+}
@@ -0,0 +1,55 @@
+package com.ericduncandev.HTTP.limit;
+
+import com.ericduncandev.HTTP.core.ServerConfig;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client-address limits on new connections and on requests, checked before any request bytes
+ * are parsed. Either limit is disabled when its rate is configured as 0.
+ */
+public final class RateLimiter {
+    private final TokenBuckets connections;
+    private final TokenBuckets requests;
+
+    public RateLimiter(ServerConfig config) {
+        this.connections = config.getRateLimitConnectionsPerSecond() > 0
+                ? new TokenBuckets(config.getRateLimitConnectionsPerSecond(), config.getRateLimitConnectionBurst(),
+                        config.getRateLimitMaxClients())
+                : null;
+        this.requests = config.getRateLimitRequestsPerSecond() > 0
+                ? new TokenBuckets(config.getRateLimitRequestsPerSecond(), config.getRateLimitRequestBurst(),
+                        config.getRateLimitMaxClients())
+                : null;
+    }
+
+    /**
+     * @return whether either limit is configured
+     */
+    public static boolean isEnabled(ServerConfig config) {
+        return config.getRateLimitConnectionsPerSecond() > 0 || config.getRateLimitRequestsPerSecond() > 0;
+    }
+
+    /**
+     * @return 0 if the client may open another connection, otherwise the seconds it should wait
+     */
+    public long admitConnection(InetAddress client) {
+        return connections == null ? 0 : toRetryAfter(connections.tryAcquire(client));
+    }
+
+    /**
+     * @return 0 if the client may send another request, otherwise the seconds it should wait
+     */
+    public long admitRequest(InetAddress client) {
+        return requests == null ? 0 : toRetryAfter(requests.tryAcquire(client));
+    }
+
+    private static long toRetryAfter(long waitNanos) {
+        if (waitNanos == 0) {
+            return 0;
+        }
+        // Retry-After is in whole seconds, so round up rather than invite an immediate retry
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,96 @@
+package com.ericduncandev.HTTP.limit;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One token bucket per client address, with a fixed refill rate and burst size.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (the generic cell
+ * rate formulation of a token bucket): taking a token moves it one refill interval forward, and a
+ * token is available while it stays within one burst of the present. Buckets are updated with a CAS
+ * loop and no locks.
+ * <p>
+ * Buckets live in independent stripes, each capped at its share of {@code maxClients}. A stripe that
+ * fills up first drops the buckets that have refilled completely, which forgets nothing, and then,
+ * if a flood of new addresses keeps it full, arbitrary buckets until it is back under its cap.
+ */
+public final class TokenBuckets {
+    private static final int STRIPES = 16;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int stripeCapacity;
+    private final List<Map<InetAddress, AtomicLong>> stripes;
+
+    @SuppressWarnings("unchecked")
+    public TokenBuckets(int perSecond, int burst, int maxClients) {
+        if (perSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / perSecond;
+        this.burstNanos = intervalNanos * burst;
+        this.stripeCapacity = Math.max(1, maxClients / STRIPES);
+        List<Map<InetAddress, AtomicLong>> stripes = new ArrayList<>(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+        }
+        this.stripes = List.copyOf(stripes);
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be available
+     */
+    public long tryAcquire(InetAddress client) {
+        long now = System.nanoTime();
+        Map<InetAddress, AtomicLong> stripe = stripes.get((client.hashCode() * 0x9E3779B9) >>> 28);
+        AtomicLong arrival = stripe.get(client);
+        if (arrival == null) {
+            if (stripe.size() >= stripeCapacity) {
+                evict(stripe, now);
+            }
+            arrival = stripe.computeIfAbsent(client, key -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private void evict(Map<InetAddress, AtomicLong> stripe, long now) {
+        // a bucket whose arrival time has passed is full again, so dropping it changes nothing
+        stripe.values().removeIf(arrival -> arrival.get() <= now);
+        // under address spraying every bucket may be in use; trim well below the cap so the sweep is amortized
+        int target = stripeCapacity - Math.max(1, stripeCapacity / 8);
+        Iterator<AtomicLong> it = stripe.values().iterator();
+        while (stripe.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * @return the number of client addresses currently tracked
+     */
+    public int size() {
+        int size = 0;
+        for (Map<InetAddress, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+}
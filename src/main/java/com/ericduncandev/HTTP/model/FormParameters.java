@@ -0,0 +1,112 @@
+package com.ericduncandev.HTTP.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only view of decoded form or query parameters.
+ * Keeps names and values in one flat array in the order they appeared; repeated names are kept
+ * as separate entries. Names are matched exactly, as they are in form encoding.
+ */
+public final class FormParameters {
+    private static final FormParameters EMPTY = new FormParameters(new String[0], 0);
+
+    private final String[] slots;
+    private final int size;
+
+    FormParameters(String[] slots, int size) {
+        this.slots = slots;
+        this.size = size;
+    }
+
+    public static FormParameters empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the first value for the name, or null if absent
+     */
+    public String getFirst(String name) {
+        int index = indexOf(name);
+        return index == -1 ? null : slots[index * 2 + 1];
+    }
+
+    /**
+     * @return the index of the first parameter with the name, or -1 if absent
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (slots[i * 2].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return every value for the name in order, empty if absent
+     */
+    public List<String> getAll(String name) {
+        List<String> values = new ArrayList<>(1);
+        for (int i = 0; i < size; i++) {
+            if (slots[i * 2].equals(name)) {
+                values.add(slots[i * 2 + 1]);
+            }
+        }
+        return values;
+    }
+
+    public boolean contains(String name) {
+        return getFirst(name) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String name(int index) {
+        return slots[checkIndex(index) * 2];
+    }
+
+    public String value(int index) {
+        return slots[checkIndex(index) * 2 + 1];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Parameter index %d out of bounds for size %d".formatted(index, size));
+        }
+        return index;
+    }
+
+    /**
+     * Accumulates decoded pairs; used by the form decoder so the view itself stays immutable.
+     */
+    public static final class Builder {
+        private String[] slots = new String[16];
+        private int size;
+
+        public Builder add(String name, String value) {
+            if (size * 2 == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+            slots[size * 2] = name;
+            slots[size * 2 + 1] = value;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public FormParameters build() {
+            return size == 0 ? EMPTY : new FormParameters(slots, size);
+        }
+    }
+}
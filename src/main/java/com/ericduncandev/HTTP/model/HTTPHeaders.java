@@ -0,0 +1,228 @@
+package com.ericduncandev.HTTP.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Ordered, multi-valued HTTP header container.
+ * Names and values are stored in a single flat array (name at 2i, value at 2i+1) so a typical
+ * request costs one array allocation instead of a HashMap with its table and entry nodes.
+ * Lookups compare names ASCII case-insensitively in place, without building lowercase copies.
+ */
+public final class HTTPHeaders {
+    // Standard header names. The parser hands out these constants instead of fresh substrings.
+    public static final String ACCEPT = "Accept";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String ALLOW = "Allow";
+    public static final String AUTHORIZATION = "Authorization";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String CONNECTION = "Connection";
+    public static final String CONTENT_DISPOSITION = "Content-Disposition";
+    public static final String CONTENT_LENGTH = "Content-Length";
+    public static final String CONTENT_LOCATION = "Content-Location";
+    public static final String CONTENT_TYPE = "Content-Type";
+    public static final String COOKIE = "Cookie";
+    public static final String DATE = "Date";
+    public static final String ETAG = "ETag";
+    public static final String EXPECT = "Expect";
+    public static final String HOST = "Host";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String LAST_EVENT_ID = "Last-Event-ID";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String LOCATION = "Location";
+    public static final String RETRY_AFTER = "Retry-After";
+    public static final String SERVER = "Server";
+    public static final String SET_COOKIE = "Set-Cookie";
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+    public static final String UPGRADE = "Upgrade";
+    public static final String USER_AGENT = "User-Agent";
+    public static final String VARY = "Vary";
+    // resumable uploads (tus 1.0)
+    public static final String TUS_RESUMABLE = "Tus-Resumable";
+    public static final String TUS_VERSION = "Tus-Version";
+    public static final String TUS_EXTENSION = "Tus-Extension";
+    public static final String TUS_MAX_SIZE = "Tus-Max-Size";
+    public static final String UPLOAD_EXPIRES = "Upload-Expires";
+    public static final String UPLOAD_LENGTH = "Upload-Length";
+    public static final String UPLOAD_METADATA = "Upload-Metadata";
+    public static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private static final String[] STANDARD_NAMES = {
+            ACCEPT, ACCEPT_ENCODING, ALLOW, AUTHORIZATION, CACHE_CONTROL, CONNECTION, CONTENT_DISPOSITION,
+            CONTENT_LENGTH, CONTENT_LOCATION, CONTENT_TYPE, COOKIE, DATE, ETAG, EXPECT, HOST,
+            IF_MODIFIED_SINCE, IF_NONE_MATCH, LAST_EVENT_ID, LAST_MODIFIED, LOCATION, RETRY_AFTER, SERVER,
+            SET_COOKIE, TRANSFER_ENCODING, UPGRADE, USER_AGENT, VARY
+    };
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private String[] slots;
+    private int size;
+
+    public HTTPHeaders() {
+        this.slots = new String[DEFAULT_CAPACITY * 2];
+    }
+
+    public HTTPHeaders(HTTPHeaders other) {
+        this.slots = Arrays.copyOf(other.slots, Math.max(other.size * 2, DEFAULT_CAPACITY * 2));
+        this.size = other.size;
+    }
+
+    /**
+     * Returns the interned standard name matching {@code source[start, end)} ignoring ASCII case,
+     * or a new substring when the name is not a standard one.
+     */
+    public static String canonicalName(String source, int start, int end) {
+        int length = end - start;
+        for (String candidate : STANDARD_NAMES) {
+            if (candidate.length() == length && regionEqualsIgnoreCase(candidate, source, start)) {
+                return candidate;
+            }
+        }
+        return source.substring(start, end);
+    }
+
+    /**
+     * Appends a header, keeping any existing values with the same name.
+     */
+    public HTTPHeaders add(String name, String value) {
+        if (size * 2 == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+        slots[size * 2] = name;
+        slots[size * 2 + 1] = value;
+        size++;
+        return this;
+    }
+
+    /**
+     * Replaces the first header with this name in place, dropping any further values.
+     * Appends the header if it is not present.
+     */
+    public HTTPHeaders set(String name, String value) {
+        int first = indexOf(name);
+        if (first == -1) {
+            return add(name, value);
+        }
+        slots[first * 2 + 1] = value;
+        removeFrom(name, first + 1);
+        return this;
+    }
+
+    /**
+     * @return the first value for the header, or null if absent
+     */
+    public String get(String name) {
+        int index = indexOf(name);
+        return index == -1 ? null : slots[index * 2 + 1];
+    }
+
+    /**
+     * @return every value for the header in insertion order, empty if absent
+     */
+    public List<String> getAll(String name) {
+        List<String> values = new ArrayList<>(1);
+        for (int i = 0; i < size; i++) {
+            if (equalsIgnoreCase(slots[i * 2], name)) {
+                values.add(slots[i * 2 + 1]);
+            }
+        }
+        return values;
+    }
+
+    public boolean contains(String name) {
+        return indexOf(name) != -1;
+    }
+
+    public HTTPHeaders remove(String name) {
+        removeFrom(name, 0);
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String name(int index) {
+        return slots[checkIndex(index) * 2];
+    }
+
+    public String value(int index) {
+        return slots[checkIndex(index) * 2 + 1];
+    }
+
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(slots[i * 2], slots[i * 2 + 1]);
+        }
+    }
+
+    public static boolean equalsIgnoreCase(String a, String b) {
+        return a.length() == b.length() && regionEqualsIgnoreCase(a, b, 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            builder.append(slots[i * 2]).append(": ").append(slots[i * 2 + 1]).append("\r\n");
+        }
+        return builder.toString();
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (equalsIgnoreCase(slots[i * 2], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeFrom(String name, int from) {
+        int write = from;
+        for (int read = from; read < size; read++) {
+            if (!equalsIgnoreCase(slots[read * 2], name)) {
+                slots[write * 2] = slots[read * 2];
+                slots[write * 2 + 1] = slots[read * 2 + 1];
+                write++;
+            }
+        }
+        Arrays.fill(slots, write * 2, size * 2, null);
+        size = write;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Header index %d out of bounds for size %d".formatted(index, size));
+        }
+        return index;
+    }
+
+    // compares all of 'name' against 'source' starting at 'offset', folding ASCII letters only
+    private static boolean regionEqualsIgnoreCase(String name, String source, int offset) {
+        for (int i = 0; i < name.length(); i++) {
+            char a = name.charAt(i);
+            char b = source.charAt(offset + i);
+            if (a != b) {
+                if (a >= 'A' && a <= 'Z') {
+                    a += 32;
+                }
+                if (b >= 'A' && b <= 'Z') {
+                    b += 32;
+                }
+                if (a != b) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
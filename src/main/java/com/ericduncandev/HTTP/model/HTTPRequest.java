@@ -1,8 +1,21 @@
 package com.ericduncandev.HTTP.model;
 
-import java.util.Map;
+/**
+ * A parsed request. The body is never null; requests without one carry {@link RequestBody#EMPTY}.
+ */
+public record HTTPRequest(String method, String uri, String protocolVersion, HTTPHeaders headers, RequestBody body) {
 
-public record HTTPRequest(String method, String uri, String protocolVersion, Map<String, String> headers, String body) {
+    // request target without the query string
+    public String path() {
+        int queryIndex = uri.indexOf('?');
+        return queryIndex == -1 ? uri : uri.substring(0, queryIndex);
+    }
+
+    // raw query string after '?', or null if the target has none
+    public String query() {
+        int queryIndex = uri.indexOf('?');
+        return queryIndex == -1 ? null : uri.substring(queryIndex + 1);
+    }
 
     // displays request in HTTP format
     @Override
@@ -11,13 +24,12 @@ public record HTTPRequest(String method, String uri, String protocolVersion, Map
         requestBuilder.append(method).append(" ").append(uri).append(" ").append(protocolVersion).append("\r\n");
 
         // Append headers
-        for (Map.Entry<String, String> header : headers.entrySet()) {
-            requestBuilder.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
-        }
+        requestBuilder.append(headers);
 
         // Add a blank line to indicate the end of the headers
         requestBuilder.append("\r\n");
-        requestBuilder.append(body);
+        // the body may be large or binary, so only its size is shown
+        requestBuilder.append('[').append(body).append(']');
 
         return requestBuilder.toString();
     }
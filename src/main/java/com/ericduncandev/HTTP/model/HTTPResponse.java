@@ -3,42 +3,42 @@ package com.ericduncandev.HTTP.model;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
 
 public class HTTPResponse {
     private final String protocolVersion;
     private final int statusCode;
-    private final Map<String, String> headers;
-    private final byte[] body;
+    private final HTTPHeaders headers;
+    private final ByteBuffer body;
     private static final Logger logger = LogManager.getLogger(HTTPResponse.class);
 
     private HTTPResponse(Builder builder) {
         this.protocolVersion = builder.protocolVersion;
         this.statusCode = builder.statusCode;
-        this.headers = new HashMap<>(builder.headers);
+        this.headers = new HTTPHeaders(builder.headers);
         this.body = builder.body;
     }
 
     public static class Builder {
         private String protocolVersion = "HTTP/1.1";
         private int statusCode = 200;
-        private final Map<String, String> headers = new HashMap<>();
-        private byte[] body = new byte[0];
+        private final HTTPHeaders headers = new HTTPHeaders();
+        private ByteBuffer body = ByteBuffer.allocate(0);
 
         public Builder() {
             // Set default headers
 
-            headers.put("Connection", "close");
+            headers.set(HTTPHeaders.CONNECTION, "close");
             ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
             String httpDate = DateTimeFormatter.RFC_1123_DATE_TIME
                     .format(now);
-            headers.put("Date", httpDate);
+            headers.set(HTTPHeaders.DATE, httpDate);
 
             // these are going be a checklist of what I want to implement later
             // Security headers
@@ -68,33 +68,42 @@ public class HTTPResponse {
         }
 
         public Builder header(String key, String value) {
-            this.headers.put(key, value);
+            this.headers.set(key, value);
+            return this;
+        }
+
+        // for headers that may repeat, e.g. Set-Cookie
+        public Builder addHeader(String key, String value) {
+            this.headers.add(key, value);
             return this;
         }
 
         public Builder body(byte[] body) {
+            return body(ByteBuffer.wrap(body));
+        }
+
+        // for bodies that live off-heap, e.g. memory-mapped files
+        public Builder body(ByteBuffer body) {
             this.body = body;
-            logger.debug("Content-Length: {}", String.valueOf(body.length));
-            if (body != null) {
-                headers.put("Content-Length", String.valueOf(body.length));
-            }
+            logger.debug("Content-Length: {}", body.remaining());
+            headers.set(HTTPHeaders.CONTENT_LENGTH, String.valueOf(body.remaining()));
             return this;
         }
 
         public Builder contentType(String contentType) {
-            headers.put("Content-Type", contentType);
+            headers.set(HTTPHeaders.CONTENT_TYPE, contentType);
             return this;
         }
 
         // for 201 created
         public Builder location(String location) {
-            headers.put("Location", location);
+            headers.set(HTTPHeaders.LOCATION, location);
             return this;
         }
 
         // for 204 no content
         public Builder contentLocation(String contentLocation) {
-            headers.put("Content-Location", contentLocation);
+            headers.set(HTTPHeaders.CONTENT_LOCATION, contentLocation);
             return this;
         }
 
@@ -103,41 +112,106 @@ public class HTTPResponse {
         }
     }
 
-    public void writeTo(PrintWriter writer) {
-        // Write status line
-        try {
-            writer.print(String.format("%s %d %s\r\n",
-                    protocolVersion, statusCode, getStatusMessage(statusCode)));
+    public int getStatusCode() {
+        return statusCode;
+    }
 
-            // Write headers
-            headers.forEach((key, value) ->
-                    writer.print(String.format("%s: %s\r\n", key, value)));
+    public HTTPHeaders getHeaders() {
+        return headers;
+    }
 
-            // Write blank line
-            writer.print("\r\n");
-            writer.flush();
+    /**
+     * @return an independent view of the body, positioned at its first byte
+     */
+    public ByteBuffer getBody() {
+        return body.duplicate();
+    }
 
-            // Write body if it exists
-            if (body != null && body.length > 0) {
-                writer.write(new String(body, StandardCharsets.UTF_8));
-                writer.flush();
+    public void writeTo(WritableByteChannel channel) {
+        try {
+            // Write head and body together where the channel allows a gathering write
+            ByteBuffer[] buffers = {ByteBuffer.wrap(encodeHead()), getBody()};
+            if (channel instanceof GatheringByteChannel gathering) {
+                while (buffers[1].hasRemaining() || buffers[0].hasRemaining()) {
+                    gathering.write(buffers);
+                }
+            } else {
+                writeFully(channel, buffers[0]);
+                writeFully(channel, buffers[1]);
             }
         } catch (Exception e) {
             logger.error("Error writing to client", e);
         }
     }
 
+    // status line and headers, encoded as ISO-8859-1 straight into an array of the exact size
+    private byte[] encodeHead() {
+        String message = getStatusMessage(statusCode);
+        int length = protocolVersion.length() + 5 + message.length() + 4;
+        for (int i = 0; i < headers.size(); i++) {
+            length += headers.name(i).length() + headers.value(i).length() + 4;
+        }
+        byte[] head = new byte[length];
+        int position = put(head, 0, protocolVersion);
+        head[position++] = ' ';
+        head[position++] = (byte) ('0' + statusCode / 100 % 10);
+        head[position++] = (byte) ('0' + statusCode / 10 % 10);
+        head[position++] = (byte) ('0' + statusCode % 10);
+        head[position++] = ' ';
+        position = put(head, position, message);
+        head[position++] = '\r';
+        head[position++] = '\n';
+        for (int i = 0; i < headers.size(); i++) {
+            position = put(head, position, headers.name(i));
+            head[position++] = ':';
+            head[position++] = ' ';
+            position = put(head, position, headers.value(i));
+            head[position++] = '\r';
+            head[position++] = '\n';
+        }
+        head[position++] = '\r';
+        head[position] = '\n';
+        return head;
+    }
+
+    private static int put(byte[] target, int position, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // as String.getBytes does, characters ISO-8859-1 cannot encode become '?'
+            target[position++] = c <= 0xFF ? (byte) c : (byte) '?';
+        }
+        return position;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
     private String getStatusMessage(int statusCode) {
         return switch (statusCode) {
+            case 100 -> "Continue";
+            case 101 -> "Switching Protocols";
             case 200 -> "OK";
             case 201 -> "Created";
             case 204 -> "No Content";
+            case 304 -> "Not Modified";
             case 400 -> "Bad Request";
             case 401 -> "Unauthorized";
             case 403 -> "Forbidden";
             case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 409 -> "Conflict";
+            case 413 -> "Content Too Large";
+            case 415 -> "Unsupported Media Type";
+            case 417 -> "Expectation Failed";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
             case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
             case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
             default -> "Unknown";
         };
     }
@@ -0,0 +1,262 @@
+package com.ericduncandev.HTTP.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The body of a request, held in memory up to a threshold and spilled to a temporary file beyond it,
+ * so that the heap used per request stays bounded however large the body is.
+ * <p>
+ * The body can be read any number of times as a stream or channel. Small bodies are also available
+ * as bytes; handlers that need the whole body in memory should check {@link #inMemory()} first.
+ * Closing the body deletes its spill file.
+ */
+public final class RequestBody implements AutoCloseable {
+    public static final RequestBody EMPTY = new RequestBody(new byte[0], null, 0);
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    private final byte[] bytes;
+    private final Path file;
+    private final long length;
+
+    private RequestBody(byte[] bytes, Path file, long length) {
+        this.bytes = bytes;
+        this.file = file;
+        this.length = length;
+    }
+
+    public static RequestBody of(byte[] bytes) {
+        return bytes.length == 0 ? EMPTY : new RequestBody(bytes, null, bytes.length);
+    }
+
+    /**
+     * Reads exactly {@code length} bytes from the stream.
+     * @throws EOFException if the stream ends first; any spill file is removed then
+     */
+    public static RequestBody read(InputStream in, long length, int memoryThreshold, Path spillDirectory)
+            throws IOException {
+        if (length == 0) {
+            return EMPTY;
+        }
+        if (length <= memoryThreshold) {
+            byte[] content = in.readNBytes((int) length);
+            if (content.length < length) {
+                throw new EOFException("Expected %d body bytes, got %d".formatted(length, content.length));
+            }
+            return new RequestBody(content, null, length);
+        }
+        Buffer buffer = new Buffer(memoryThreshold, length, spillDirectory);
+        try {
+            byte[] chunk = new byte[COPY_BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                if (read == -1) {
+                    throw new EOFException("Expected %d body bytes, got %d".formatted(length, length - remaining));
+                }
+                buffer.write(chunk, 0, read);
+                remaining -= read;
+            }
+            return buffer.toBody();
+        } catch (IOException e) {
+            buffer.discard();
+            throw e;
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @return whether the body is held on the heap, and so available through {@link #bytes()}
+     */
+    public boolean inMemory() {
+        return file == null;
+    }
+
+    /**
+     * @return the body's bytes; the array is shared and must not be modified
+     * @throws IllegalStateException if the body was spilled to disk
+     */
+    public byte[] bytes() {
+        if (file != null) {
+            throw new IllegalStateException("Body of %d bytes was spilled to disk".formatted(length));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the body decoded as UTF-8
+     * @throws IllegalStateException if the body was spilled to disk
+     */
+    public String asString() {
+        return new String(bytes(), StandardCharsets.UTF_8);
+    }
+
+    public InputStream openStream() throws IOException {
+        return file == null ? new ByteArrayInputStream(bytes) : Files.newInputStream(file);
+    }
+
+    public ReadableByteChannel openChannel() throws IOException {
+        return file == null ? Channels.newChannel(new ByteArrayInputStream(bytes)) : FileChannel.open(file);
+    }
+
+    /**
+     * Writes the whole body to the channel, letting the file system copy it directly when it was spilled.
+     */
+    public void transferTo(FileChannel target) throws IOException {
+        if (file == null) {
+            ByteBuffer source = ByteBuffer.wrap(bytes);
+            while (source.hasRemaining()) {
+                target.write(source);
+            }
+            return;
+        }
+        try (FileChannel source = FileChannel.open(file)) {
+            long position = 0;
+            while (position < length) {
+                position += source.transferTo(position, length - position, target);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // the temp directory is cleaned up eventually; nothing else refers to the file
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file == null ? "%d bytes".formatted(length) : "%d bytes in %s".formatted(length, file);
+    }
+
+    /**
+     * Accumulates a body of unknown length, spilling to a temporary file once it outgrows the
+     * memory threshold.
+     */
+    public static final class Buffer extends OutputStream {
+        private final int memoryThreshold;
+        private final long maxSize;
+        private final Path spillDirectory;
+        private byte[] memory = new byte[0];
+        private long size;
+        private Path file;
+        private OutputStream out;
+
+        /**
+         * @param spillDirectory where spill files are created, or null for the system temp directory
+         */
+        public Buffer(int memoryThreshold, long maxSize, Path spillDirectory) {
+            this.memoryThreshold = memoryThreshold;
+            this.maxSize = maxSize;
+            this.spillDirectory = spillDirectory;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        /**
+         * @throws BodyTooLargeException if the body would exceed the maximum size
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (size + len > maxSize) {
+                throw new BodyTooLargeException(maxSize);
+            }
+            if (out == null && size + len > memoryThreshold) {
+                spill();
+            }
+            if (out != null) {
+                out.write(b, off, len);
+            } else {
+                if (size + len > memory.length) {
+                    memory = Arrays.copyOf(memory, (int) Math.min(memoryThreshold, Math.max(size + len, memory.length * 2L)));
+                }
+                System.arraycopy(b, off, memory, (int) size, len);
+            }
+            size += len;
+        }
+
+        private void spill() throws IOException {
+            file = spillDirectory == null ? Files.createTempFile("body-", ".tmp")
+                    : Files.createTempFile(spillDirectory, "body-", ".tmp");
+            out = Files.newOutputStream(file, StandardOpenOption.WRITE);
+            out.write(memory, 0, (int) size);
+            memory = null;
+        }
+
+        /**
+         * Completes the buffer; the returned body owns any spill file.
+         */
+        public RequestBody toBody() throws IOException {
+            if (out == null) {
+                if (size == 0) {
+                    return EMPTY;
+                }
+                return new RequestBody(memory.length == size ? memory : Arrays.copyOf(memory, (int) size), null, size);
+            }
+            out.close();
+            return new RequestBody(null, file, size);
+        }
+
+        /**
+         * Drops whatever was buffered, deleting any spill file.
+         */
+        public void discard() {
+            memory = null;
+            if (out != null) {
+                try {
+                    out.close();
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // best effort, as in RequestBody.close
+                }
+            }
+        }
+    }
+
+    /**
+     * Thrown when a body is larger than the configured maximum.
+     */
+    public static class BodyTooLargeException extends IOException {
+        private final long maxSize;
+
+        public BodyTooLargeException(long maxSize) {
+            super("Request body exceeds %d bytes".formatted(maxSize));
+            this.maxSize = maxSize;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+    }
+}
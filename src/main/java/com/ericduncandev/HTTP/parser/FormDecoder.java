@@ -0,0 +1,112 @@
+package com.ericduncandev.HTTP.parser;
+
+import com.ericduncandev.HTTP.model.FormParameters;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoder for application/x-www-form-urlencoded bodies and URI query strings.
+ * Works over the raw bytes in a single pass, decoding {@code %XX} escapes and {@code +} into a scratch
+ * buffer that is reused between fields and between calls. Keys without {@code =} decode to an empty
+ * value, malformed escapes are kept literally, and the number and size of fields are bounded.
+ * Instances are not thread-safe; use one per connection.
+ */
+public final class FormDecoder {
+    public static final int DEFAULT_MAX_FIELDS = 256;
+    public static final int DEFAULT_MAX_FIELD_SIZE = 64 * 1024;
+
+    private final int maxFields;
+    private final int maxFieldSize;
+    private byte[] scratch = new byte[256];
+
+    public FormDecoder() {
+        this(DEFAULT_MAX_FIELDS, DEFAULT_MAX_FIELD_SIZE);
+    }
+
+    public FormDecoder(int maxFields, int maxFieldSize) {
+        this.maxFields = maxFields;
+        this.maxFieldSize = maxFieldSize;
+    }
+
+    public FormParameters decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return FormParameters.empty();
+        }
+        byte[] bytes = encoded.getBytes(StandardCharsets.UTF_8);
+        return decode(bytes, 0, bytes.length);
+    }
+
+    public FormParameters decode(byte[] source, int offset, int length) {
+        FormParameters.Builder parameters = new FormParameters.Builder();
+        int end = offset + length;
+        int fieldStart = offset;
+        while (fieldStart < end) {
+            int fieldEnd = indexOf(source, (byte) '&', fieldStart, end);
+            if (fieldEnd > fieldStart) {
+                if (parameters.size() == maxFields) {
+                    throw new FormLimitException("Too many form fields (limit %d)".formatted(maxFields));
+                }
+                int separator = indexOf(source, (byte) '=', fieldStart, fieldEnd);
+                String name = decodeComponent(source, fieldStart, separator);
+                String value = separator < fieldEnd ? decodeComponent(source, separator + 1, fieldEnd) : "";
+                parameters.add(name, value);
+            }
+            fieldStart = fieldEnd + 1;
+        }
+        return parameters.build();
+    }
+
+    private String decodeComponent(byte[] source, int start, int end) {
+        if (end - start > scratch.length) {
+            if (end - start > maxFieldSize * 3) {
+                throw new FormLimitException("Form field exceeds %d bytes".formatted(maxFieldSize));
+            }
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        int written = 0;
+        for (int i = start; i < end; i++) {
+            byte b = source[i];
+            if (b == '+') {
+                b = ' ';
+            } else if (b == '%' && i + 2 < end) {
+                int high = hexValue(source[i + 1]);
+                int low = hexValue(source[i + 2]);
+                if (high >= 0 && low >= 0) {
+                    b = (byte) (high << 4 | low);
+                    i += 2;
+                }
+            }
+            scratch[written++] = b;
+        }
+        if (written > maxFieldSize) {
+            throw new FormLimitException("Form field exceeds %d bytes".formatted(maxFieldSize));
+        }
+        return new String(scratch, 0, written, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(byte[] source, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (source[i] == target) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        } else if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        } else if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        return -1;
+    }
+
+    public static class FormLimitException extends IllegalArgumentException {
+        public FormLimitException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,47 +1,154 @@
 package com.ericduncandev.HTTP.parser;
 
+import com.ericduncandev.HTTP.cache.MappedFileCache;
+import com.ericduncandev.HTTP.cache.ResponseCache;
+import com.ericduncandev.HTTP.core.ServerContext;
 import com.ericduncandev.HTTP.interfaces.IHTTPParser;
+import com.ericduncandev.HTTP.index.FileMetadata;
+import com.ericduncandev.HTTP.index.WebRootIndex;
+import com.ericduncandev.HTTP.interfaces.IResponseWriter;
+import com.ericduncandev.HTTP.jfr.RequestHandleEvent;
+import com.ericduncandev.HTTP.jfr.RequestParseEvent;
+import com.ericduncandev.HTTP.model.FormParameters;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
 import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.HTTPResponse;
+import com.ericduncandev.HTTP.model.RequestBody;
+import com.ericduncandev.HTTP.factory.JsonWriter;
 import com.ericduncandev.HTTP.factory.ResponseFactory;
+import com.ericduncandev.HTTP.proxy.ProxyHandler;
+import com.ericduncandev.HTTP.proxy.ProxyRouter;
+import com.ericduncandev.HTTP.sse.EventBroadcaster;
+import com.ericduncandev.HTTP.storage.GroupCommitter;
+import com.ericduncandev.HTTP.storage.ResumableUploads;
+import com.ericduncandev.HTTP.storage.UploadStore;
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.json.JSONObject;
 
 import java.io.*;
-import java.text.MessageFormat;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ThreadLocalRandom;
 
 public final class HTTPParser implements IHTTPParser {
-    private final BufferedReader br;
-    private final PrintWriter pw;
+    private static final int BATCH_BUFFER_SIZE = 32 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final InputStream in;
+    private final IResponseWriter responses;
+    private final boolean upgradeAllowed;
+    private final MappedFileCache mappedFiles;
+    private final UploadStore uploadStore;
+    private final GroupCommitter groupCommitter;
+    private final ProxyRouter proxyRouter;
+    private final ResponseCache responseCache;
+    private final WebRootIndex webRoot;
+    private final ResumableUploads resumableUploads;
+    private final String resumableEndpoint;
+    private final EventBroadcaster events;
+    private final String eventStreamPath;
+    private final String batchPath;
+    private final int batchMaxFiles;
+    private final ServerContext context;
+    private final FormDecoder formDecoder = new FormDecoder();
+    private final long maxBodySize;
+    private final int maxHeaderSize;
+    private final int bodyMemoryThreshold;
+    private final Path spillDirectory;
     private final Logger logger = LogManager.getLogger(HTTPParser.class);
+    private HTTPRequest upgradeRequest;
+    private RequestParseEvent parseEvent;
+    private long headReadAt;
+    private byte[] line = new byte[256];
+    private int headBudget;
 
-    public HTTPParser(BufferedReader in, PrintWriter out) {
+    /**
+     * @param in the request stream, or null when requests are only passed to {@link #dispatch}
+     * @param upgradeAllowed whether an {@code Upgrade: h2c} request may switch the connection to HTTP/2
+     */
+    public HTTPParser(InputStream in, IResponseWriter responses, ServerContext context, boolean upgradeAllowed) {
         logger.trace("Initializing HTTP Reader");
-        br = in;
-        pw = out;
+        this.in = in;
+        this.responses = responses;
+        this.upgradeAllowed = upgradeAllowed;
+        this.mappedFiles = context.mappedFiles();
+        this.uploadStore = context.uploadStore();
+        this.groupCommitter = context.groupCommitter();
+        this.proxyRouter = context.proxyRouter();
+        this.responseCache = context.responseCache();
+        this.webRoot = context.webRoot();
+        this.resumableUploads = context.resumableUploads();
+        String endpoint = context.config().getResumableUploadPath();
+        this.resumableEndpoint = endpoint == null ? null
+                : endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.events = context.events();
+        this.eventStreamPath = context.config().getEventStreamPath();
+        this.batchPath = context.config().getBatchPath();
+        this.batchMaxFiles = context.config().getBatchMaxFiles();
+        this.context = context;
+        this.maxBodySize = context.config().getMaxRequestBodySize();
+        this.maxHeaderSize = context.config().getMaxRequestHeaderSize();
+        this.bodyMemoryThreshold = context.config().getRequestBodyMemoryThreshold();
+        String spill = context.config().getRequestBodySpillDirectory();
+        this.spillDirectory = spill == null ? null : Path.of(spill);
+    }
+
+    /**
+     * The request line and headers of a request whose body has not been read yet.
+     */
+    public record RequestHead(String method, String uri, String protocolVersion, HTTPHeaders headers) {
+        // request target without the query string
+        public String path() {
+            int queryIndex = uri.indexOf('?');
+            return queryIndex == -1 ? uri : uri.substring(0, queryIndex);
+        }
     }
 
     public void parseRequest() {
+        RequestHead head = readHead();
+        if (head != null) {
+            finishRequest(head);
+        }
+    }
+
+    /**
+     * Reads the request line and headers, leaving the body on the connection.
+     * @return the head, or null if there is no request to handle; an error response has been sent then
+     */
+    public RequestHead readHead() {
+        parseEvent = new RequestParseEvent();
+        parseEvent.begin();
         try {
             logger.trace("Parsing request...");
-            String requestLine = br.readLine();
+            headBudget = maxHeaderSize;
+            String requestLine = readLine();
             if (requestLine == null || requestLine.trim().isEmpty()) {
                 logger.warn("Received an empty or null request line. Closing connection.");
-                return;
+                return null;
             }
 
             String[] request = requestLine.split(" ");
             if (request.length != 3) {
                 logger.warn("Invalid request line format: {}", requestLine);
-                ResponseFactory.badRequest("Invalid request line format").writeTo(pw);
-                return;
+                commitParse(null, null, 400, 0);
+                responses.write(ResponseFactory.badRequest("Invalid request line format"));
+                return null;
             }
 
             logger.debug("Request line: {}", requestLine);
@@ -51,54 +158,284 @@ public final class HTTPParser implements IHTTPParser {
 
 
             // Parse headers
-            Map<String, String> headers = new HashMap<>();
+            HTTPHeaders headers = new HTTPHeaders();
             String header;
-            while ((header = br.readLine()) != null && !header.isEmpty()) {
-                int separatorIndex = header.indexOf(": ");
-                if (separatorIndex != -1) {
-                    String headerTitle = header.substring(0, separatorIndex).trim();
-                    String headerValue = header.substring(separatorIndex + 2).trim();
-                    headers.put(headerTitle, headerValue);
+            while ((header = readLine()) != null && !header.isEmpty()) {
+                int separatorIndex = header.indexOf(':');
+                if (separatorIndex > 0) {
+                    String headerTitle = HTTPHeaders.canonicalName(header, 0, separatorIndex);
+                    String headerValue = header.substring(separatorIndex + 1).trim();
+                    headers.add(headerTitle, headerValue);
                 } else {
                     logger.warn("Malformed header: {}", header);
                 }
             }
+            headReadAt = System.nanoTime();
+            return new RequestHead(method, uri, protocolVersion, headers);
+        } catch (HeaderTooLargeException e) {
+            logger.warn("Rejected request: {}", e.getMessage());
+            commitParse(null, null, 431, 0);
+            responses.write(ResponseFactory.requestHeaderFieldsTooLarge(maxHeaderSize));
+            return null;
+        } catch (IOException e) {
+            logger.error("Error parsing request", e);
+            responses.write(ResponseFactory.serverError("Error parsing request: %s".formatted(e.getMessage())));
+            return null;
+        }
+    }
 
-            // Parse body if it exists
-            String body = null;
-            String contentLengthStr = headers.get("Content-Length");
+    // reads one line as UTF-8 without its line break, charging it to the head's byte budget
+    private String readLine() throws IOException {
+        int length = 0;
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                if (length == 0) {
+                    return null;
+                }
+                break;
+            }
+            if (--headBudget < 0) {
+                throw new HeaderTooLargeException(maxHeaderSize);
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = (byte) c;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the body announced by the head and handles the request, or records it as the upgrade request.
+     * May run on a different thread than {@link #readHead}, but not concurrently with it.
+     */
+    public void finishRequest(RequestHead head) {
+        long queueTime = System.nanoTime() - headReadAt;
+        String method = head.method();
+        String uri = head.uri();
+        try {
+            // Parse body if it exists; large bodies are spilled to disk rather than held in memory
+            RequestBody body = RequestBody.EMPTY;
+            long contentLength = 0;
+            String contentLengthStr = head.headers().get(HTTPHeaders.CONTENT_LENGTH);
             if (contentLengthStr != null) {
                 try {
-                    int contentLength = Integer.parseInt(contentLengthStr);
-                    if (contentLength > 0) {
-                        char[] bodyChars = new char[contentLength];
-                        int bytesRead = br.read(bodyChars, 0, contentLength);
-                        if (bytesRead == contentLength) {
-                            body = new String(bodyChars);
-                            logger.debug("Request body: {}", body);
-                        } else {
-                            logger.warn("Incomplete body read. Expected {} bytes, got {}", contentLength, bytesRead);
-                            ResponseFactory.badRequest("Incomplete body read").writeTo(pw);
-                            return;
-                        }
-                    }
+                    contentLength = Long.parseLong(contentLengthStr.trim());
                 } catch (NumberFormatException e) {
+                    contentLength = -1;
+                }
+                if (contentLength < 0) {
                     logger.warn("Invalid Content-Length header: {}", contentLengthStr);
-                    ResponseFactory.badRequest("Invalid Content-Length header").writeTo(pw);
+                    commitParse(method, uri, 400, 0, queueTime);
+                    responses.write(ResponseFactory.badRequest("Invalid Content-Length header"));
+                    return;
+                }
+                if (contentLength > maxBodySize) {
+                    logger.warn("Rejected {} byte body for {}; the limit is {}", contentLength, uri, maxBodySize);
+                    commitParse(method, uri, 413, 0, queueTime);
+                    responses.write(ResponseFactory.payloadTooLarge(maxBodySize));
+                    return;
+                }
+            }
+
+            String expect = head.headers().get(HTTPHeaders.EXPECT);
+            // HTTP/1.0 clients cannot understand an interim response, so their expectations are ignored
+            if (expect != null && !head.protocolVersion().equals("HTTP/1.0")) {
+                HTTPResponse rejection = expect.trim().equalsIgnoreCase("100-continue")
+                        ? rejectBeforeBody(head, contentLength) : ResponseFactory.expectationFailed();
+                if (rejection != null) {
+                    // the client has not sent the body, and the connection closes without it being read
+                    logger.info("Rejected {} {} before its body was sent", method, uri);
+                    commitParse(method, uri, rejection.getStatusCode(), 0, queueTime);
+                    responses.write(rejection);
+                    return;
+                }
+                if (contentLength > 0) {
+                    responses.writeContinue();
+                }
+            }
+
+            if (contentLength > 0) {
+                try {
+                    body = RequestBody.read(in, contentLength, bodyMemoryThreshold, spillDirectory);
+                    logger.debug("Request body: {}", body);
+                } catch (EOFException e) {
+                    logger.warn("Incomplete body read. {}", e.getMessage());
+                    commitParse(method, uri, 400, 0, queueTime);
+                    responses.write(ResponseFactory.badRequest("Incomplete body read"));
                     return;
                 }
             }
 
-            handleDispatcher(new HTTPRequest(method, uri, protocolVersion, headers, body));
+            HTTPRequest req = new HTTPRequest(method, uri, head.protocolVersion(), head.headers(), body);
+            commitParse(method, uri, 0, body.length(), queueTime);
+            if (isUpgrade(head)) {
+                // answered by the server with 101 and then served as stream 1 of the HTTP/2 connection
+                logger.debug("Upgrading connection to h2c for {}", uri);
+                upgradeRequest = req;
+                return;
+            }
+            try {
+                dispatch(req);
+            } finally {
+                body.close();
+            }
 
         } catch (IOException e) {
             logger.error("Error parsing request", e);
-            ResponseFactory.serverError("Error parsing request: %s".formatted(e.getMessage())).writeTo(pw);
+            responses.write(ResponseFactory.serverError("Error parsing request: %s".formatted(e.getMessage())));
+        }
+    }
+
+    /**
+     * Judges the request from its head alone, as its handler would once the body arrived, so that a
+     * client waiting on {@code Expect: 100-continue} never sends a body that is going to be refused.
+     * @return the final response to send in place of reading the body, or null if the body is wanted
+     */
+    private HTTPResponse rejectBeforeBody(RequestHead head, long contentLength) {
+        String path = head.path();
+        if (proxyRouter.match(path) != null) {
+            // the upstream judges proxied requests
+            return null;
+        }
+        if (isBatch(path)) {
+            // the list of paths is decoded in memory
+            return head.method().equals("POST") && contentLength > bodyMemoryThreshold
+                    ? ResponseFactory.payloadTooLarge(bodyMemoryThreshold) : null;
+        }
+        if (isResumableUpload(path)) {
+            if (!head.method().equals("PATCH")) {
+                return null;
+            }
+            ResumableUploads.Session session = resumableUploads.get(uploadId(path));
+            return session == null ? ResponseFactory.notFound() : rejectChunk(session, head.headers(), contentLength);
+        }
+        try {
+            switch (head.method()) {
+                case "POST":
+                    if (webRoot.lookup(path) == null) {
+                        return ResponseFactory.notFound();
+                    }
+                    String contentType = head.headers().get(HTTPHeaders.CONTENT_TYPE);
+                    if (contentType == null) {
+                        return ResponseFactory.badRequest("Unsupported POST operation");
+                    }
+                    if (contentType.contains("multipart/form-data")) {
+                        return extractBoundary(contentType) == null
+                                ? ResponseFactory.badRequest("Missing boundary in multipart/form-data request") : null;
+                    }
+                    if (!contentType.equals("application/x-www-form-urlencoded") && !contentType.equals("application/json")) {
+                        return ResponseFactory.badRequest("Unsupported POST operation");
+                    }
+                    // form and JSON bodies are decoded in memory
+                    return contentLength > bodyMemoryThreshold ? ResponseFactory.payloadTooLarge(bodyMemoryThreshold) : null;
+                case "PUT":
+                case "DELETE":
+                    webRoot.resolve(path);
+                    return null;
+                case "GET":
+                    return null;
+                default:
+                    return ResponseFactory.methodNotAllowed("GET, POST, PUT, DELETE");
+            }
+        } catch (SecurityException e) {
+            return ResponseFactory.forbidden("Access denied");
+        }
+    }
+
+    private void commitParse(String method, String uri, int status, long bytes) {
+        commitParse(method, uri, status, bytes, 0);
+    }
+
+    private void commitParse(String method, String uri, int status, long bytes, long queueTime) {
+        RequestParseEvent event = parseEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.uri = uri;
+            event.status = status;
+            event.bytes = bytes;
+            event.queueTime = queueTime;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return whether the request asks to switch the connection to h2c. Requests with a body are left
+     *         on HTTP/1.1, which keeps the upgrade free of body buffering.
+     */
+    public boolean isUpgrade(RequestHead head) {
+        if (!upgradeAllowed) {
+            return false;
+        }
+        String upgrade = head.headers().get(HTTPHeaders.UPGRADE);
+        String contentLength = head.headers().get(HTTPHeaders.CONTENT_LENGTH);
+        return upgrade != null && upgrade.trim().equalsIgnoreCase("h2c")
+                && head.headers().contains("HTTP2-Settings")
+                && (contentLength == null || contentLength.trim().equals("0"));
+    }
+
+    /**
+     * @return the request that asked to upgrade the connection to h2c, or null if there was none
+     */
+    public HTTPRequest getUpgradeRequest() {
+        return upgradeRequest;
+    }
+
+    @Override
+    public void dispatch(HTTPRequest req) {
+        responses.attach(req);
+        RequestHandleEvent event = new RequestHandleEvent();
+        event.begin();
+        try {
+            handle(req);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = req.method();
+                event.uri = req.uri();
+                event.status = responses.statusCode();
+                event.bytes = responses.bodyBytes();
+                event.commit();
+            }
         }
     }
 
-    private void handleDispatcher(HTTPRequest req) {
+    private void handle(HTTPRequest req) {
+        ProxyHandler proxy = proxyRouter.match(req.path());
+        if (proxy != null) {
+            logger.info("Proxying {} {} via {}", req.method(), req.uri(), proxy.getPrefix());
+            proxy.handle(req, responses);
+            return;
+        }
+        if (events != null && req.path().equals(eventStreamPath)) {
+            // the stream never ends, so it must not reach the response cache
+            handleSubscribe(req);
+            return;
+        }
+        // batches are streamed, and their files are cached individually already
+        if (responseCache != null && !isBatch(req.path()) && responseCache.accepts(req)) {
+            // a miss runs the handlers on a parser that writes to the cache instead of the client
+            responseCache.serve(req, responses, writer -> new HTTPParser(null, writer, context, false).route(req));
+            return;
+        }
+        route(req);
+    }
+
+    private void route(HTTPRequest req) {
         try {
+            if (isResumableUpload(req.path())) {
+                handleResumableUpload(req);
+                return;
+            }
+            if (isBatch(req.path())) {
+                handleBatch(req);
+                return;
+            }
             switch (req.method()) {
                 case "GET":
                     handleGet(req);
@@ -118,30 +455,10 @@ public final class HTTPParser implements IHTTPParser {
             }
         } catch (IOException e) {
             logger.error("Error handling {} request", req.method());
-            ResponseFactory.serverError("Error handling request").writeTo(pw);
+            responses.write(ResponseFactory.serverError("Error handling request"));
         } catch (SecurityException e) {
             logger.error("Security exception handling {} request", req.method());
-            ResponseFactory.forbidden("Access denied").writeTo(pw);
-        }
-    }
-
-    private String getContentType(String fileName) {
-        if (fileName.endsWith(".html") || fileName.endsWith(".htm")) {
-            return "text/html";
-        } else if (fileName.endsWith(".xml")) {
-            return "application/xml";
-        } else if (fileName.endsWith(".json")) {
-            return "application/json";
-        } else if (fileName.endsWith(".css")) {
-            return "text/css";
-        } else if (fileName.endsWith(".js")) {
-            return "application/javascript";
-        } else if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
-            return "image/jpeg";
-        } else if (fileName.endsWith(".png")) {
-            return "image/png";
-        } else {
-            return "application/octet-stream"; // Default binary content type
+            responses.write(ResponseFactory.forbidden("Access denied"));
         }
     }
 
@@ -149,35 +466,52 @@ public final class HTTPParser implements IHTTPParser {
 
     private void handleGet(HTTPRequest req) throws IOException {
         logger.info("Handling GET request for URI: {}", req.uri());
-        File location = new File("." + req.uri());
-        if (location.isDirectory()) {
-            File indexFile = new File(location, "index.html");
-            if (indexFile.exists()) {
-                byte[] body = FileUtils.readFileToByteArray(indexFile);
-                ResponseFactory.ok(body, "text/html").writeTo(pw);
-            } else {
-                ResponseFactory.notFound().writeTo(pw);
+        FileMetadata target = findFile(req.path());
+        if (target == null) {
+            responses.write(ResponseFactory.notFound());
+            return;
+        }
+        serveFile(req, target);
+    }
+
+    // a directory stands for its index.html; null if there is no file to serve
+    private FileMetadata findFile(String path) {
+        FileMetadata target = webRoot.lookup(path);
+        if (target != null && target.directory()) {
+            target = webRoot.lookup(path.endsWith("/") ? path + "index.html" : path + "/index.html");
+        }
+        return target == null || target.directory() ? null : target;
+    }
+
+    // hot files are sliced from their memory mapping; everything else is read per request
+    private void serveFile(HTTPRequest req, FileMetadata file) throws IOException {
+        String ifNoneMatch = req.headers().get(HTTPHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(file.etag()))) {
+            responses.write(ResponseFactory.notModified(file.etag()));
+            return;
+        }
+        MappedFileCache.MappedFile mapped = mappedFiles.acquire(file.path(), file.size(), file.lastModifiedMillis());
+        if (mapped != null) {
+            try {
+                responses.write(ResponseFactory.ok(mapped.buffer(), file.contentType(), file.etag(), file.lastModifiedMillis()));
+            } finally {
+                mapped.release();
             }
             return;
-        } else if (location.isFile()) {
-            // Handle file
-            byte[] body = FileUtils.readFileToByteArray(location);
-            String contentType = getContentType(location.getName());
-            ResponseFactory.ok(body, contentType).writeTo(pw);
-        } else {
-            ResponseFactory.notFound().writeTo(pw);
         }
+        byte[] body = FileUtils.readFileToByteArray(file.path().toFile());
+        responses.write(ResponseFactory.ok(ByteBuffer.wrap(body), file.contentType(), file.etag(), file.lastModifiedMillis()));
     }
 
     private void handlePost(HTTPRequest req) throws IOException {
         logger.info("Handling POST request from {}", req.uri());
-        File location = new File(".%s".formatted(req.uri()));
-        if (!location.exists()) {
-            ResponseFactory.notFound();
+        File location = webRoot.resolve(req.path()).toFile();
+        if (webRoot.lookup(req.path()) == null) {
+            responses.write(ResponseFactory.notFound());
             return;
         }
 
-        String contentType = req.headers().get("Content-Type");
+        String contentType = req.headers().get(HTTPHeaders.CONTENT_TYPE);
         switch (contentType) {
             case "application/x-www-form-urlencoded":
                 handleUrlEncodedRequest(req, location);
@@ -190,7 +524,7 @@ public final class HTTPParser implements IHTTPParser {
                 handleMultipartRequest(req, location, extractBoundary(contentType));
                 break;
             default:
-                ResponseFactory.badRequest("Unsupported POST operation").writeTo(pw);
+                responses.write(ResponseFactory.badRequest("Unsupported POST operation"));
                 break;
         }
     }
@@ -205,94 +539,131 @@ public final class HTTPParser implements IHTTPParser {
 
     private void handleUrlEncodedRequest(HTTPRequest req, File location) throws IOException {
         logger.info("Posting x-www-form-urlencoded request of {}", req.body());
-        File formData = createUniqueFile("file", "txt");
+        byte[] body = bodyInMemory(req);
+        if (body == null) {
+            return;
+        }
+        FormParameters form;
+        try {
+            form = formDecoder.decode(body, 0, body.length);
+        } catch (FormDecoder.FormLimitException e) {
+            logger.warn("Rejected form body: {}", e.getMessage());
+            responses.write(ResponseFactory.badRequest(e.getMessage()));
+            return;
+        }
 
-        if (formData != null) {
-            FileUtils.writeByteArrayToFile(formData, req.body().getBytes());
-            JSONObject jsonForm = new JSONObject();
-            for (String s : req.body().split("&")) {
-                jsonForm.put(s.split("=")[0], s.split("=")[1]);
+        UploadStore.StoredFile formData = uploadStore.store("form.txt", body);
+        logger.debug("Stored form data as {}", formData.id());
+
+        // repeated keys become arrays, single keys stay plain values
+        JsonWriter json = new JsonWriter(body.length + 16).beginObject();
+        for (int i = 0; i < form.size(); i++) {
+            String name = form.name(i);
+            if (form.indexOf(name) == i) {
+                List<String> values = form.getAll(name);
+                json.name(name);
+                if (values.size() == 1) {
+                    json.value(values.getFirst());
+                } else {
+                    json.beginArray();
+                    for (String value : values) {
+                        json.value(value);
+                    }
+                    json.endArray();
+                }
             }
-            ResponseFactory.created(jsonForm.toString().getBytes(), "application/json", location.getPath()).writeTo(pw);
-        } else {
-            logger.error("Failed to create file for form data");
-            ResponseFactory.serverError("Failed to create file for form data").writeTo(pw);
         }
+        responses.write(ResponseFactory.created(json.endObject().toByteBuffer(), "application/json", req.path()));
     }
 
-    private void handleJsonRequest(HTTPRequest req, File location) {
+    private void handleJsonRequest(HTTPRequest req, File location) throws IOException {
         logger.info("Posting json request of {}", req.body());
-        createUniqueFile("file", "json");
+        byte[] body = bodyInMemory(req);
+        if (body == null) {
+            return;
+        }
+        UploadStore.StoredFile stored = uploadStore.store("body.json", body);
+        logger.debug("Stored json body as {}", stored.id());
+        responses.write(ResponseFactory.created(body, "application/json", req.path()));
+    }
+
+    // form and JSON bodies are decoded in one piece, so they are limited to what is kept in memory
+    private byte[] bodyInMemory(HTTPRequest req) {
+        if (!req.body().inMemory()) {
+            logger.warn("Rejected {} byte {} body", req.body().length(), req.headers().get(HTTPHeaders.CONTENT_TYPE));
+            responses.write(ResponseFactory.payloadTooLarge(bodyMemoryThreshold));
+            return null;
+        }
+        return req.body().bytes();
     }
 
     private void handleMultipartRequest(HTTPRequest req, File location, String boundary) throws IOException {
         if (boundary == null) {
             logger.error("Missing boundary in multipart/form-data request");
-            JSONObject errorJson = new JSONObject();
-            errorJson.put("error", "Bad request");
-            errorJson.put("message", "Missing boundary in multipart/form-data request");
-            ResponseFactory.badRequest(errorJson.toString().getBytes(), "application/json").writeTo(pw);
+            responses.write(ResponseFactory.badRequest("Missing boundary in multipart/form-data request"));
             return;
         }
 
         logger.info("Found boundary: {}", boundary);
-        Map<String, Object> processedData = processMultipartData(req.body(), boundary, location);
-        JSONObject responseJson = createMultipartResponse(processedData);
-
-        File fieldInfo = createUniqueFile("fieldInfo", "json");
-        if (fieldInfo != null) {
-            FileUtils.writeByteArrayToFile(fieldInfo, new JSONObject(processedData.get("formFields")).toString(2).getBytes());
-            ResponseFactory.created(responseJson.toString().getBytes(), "application/json", location.getPath()).writeTo(pw);
-        } else {
-            logger.error("Failed to create file for form data");
-            ResponseFactory.serverError("Failed to create file for form data").writeTo(pw);
+        Map<String, Object> processedData;
+        try {
+            processedData = processMultipartData(req.body(), boundary);
+        } catch (MalformedMultipartException e) {
+            logger.warn("Rejected multipart body: {}", e.getMessage());
+            responses.write(ResponseFactory.badRequest(e.getMessage()));
+            return;
         }
+        @SuppressWarnings("unchecked")
+        Map<String, String> formFields = (Map<String, String>) processedData.get("formFields");
+        JsonWriter fieldInfo = new JsonWriter();
+        writeStrings(fieldInfo, formFields);
+        UploadStore.StoredFile stored = uploadStore.store("fieldInfo.json", fieldInfo.toByteArray());
+        logger.debug("Stored field info as {}", stored.id());
+        responses.write(ResponseFactory.created(createMultipartResponse(processedData), "application/json", req.path()));
     }
 
-    private JSONObject createMultipartResponse(Map<String, Object> processedData) {
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.put("message", "Files uploaded successfully");
-        jsonObject.put("files", processedData.get("files"));
-        jsonObject.put("formData", processedData.get("formFields"));
-        return jsonObject;
+    @SuppressWarnings("unchecked")
+    private ByteBuffer createMultipartResponse(Map<String, Object> processedData) {
+        JsonWriter json = new JsonWriter(512).beginObject();
+        json.name("message").value("Files uploaded successfully");
+        json.name("files").beginArray();
+        for (Map<String, String> file : (List<Map<String, String>>) processedData.get("files")) {
+            writeStrings(json, file);
+        }
+        json.endArray();
+        json.name("formData");
+        writeStrings(json, (Map<String, String>) processedData.get("formFields"));
+        return json.endObject().toByteBuffer();
     }
 
-    private Map<String, Object> processMultipartData(String body, String boundary, File uploadDir) {
-        String fullBoundary = "--%s".formatted(boundary);
-        String[] parts = body.split(Pattern.quote(fullBoundary));
-
-        if (!uploadDir.exists()) {
-            uploadDir.mkdirs();
+    private static void writeStrings(JsonWriter json, Map<String, String> fields) {
+        json.beginObject();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            json.name(field.getKey()).value(field.getValue());
         }
+        json.endObject();
+    }
 
+    // parts are streamed from the body, so file parts go to the upload store without being buffered
+    private Map<String, Object> processMultipartData(RequestBody body, String boundary) throws IOException {
         Map<String, String> formFields = new HashMap<>();
         List<Map<String, String>> uploadedFiles = new ArrayList<>();
 
-        // Skip the first empty part and process each subsequent part
-        for (int i = 1; i < parts.length; i++) {
-            String part = parts[i];
-            if (part.trim().equals("--")) {
-                continue;
-            }
-
-            String[] headerAndContent = part.split("\r\n\r\n", 2);
-            if (headerAndContent.length == 2) {
-                String headers = headerAndContent[0].trim();
-                String content = headerAndContent[1].trim();
-
-                String[] headerLines = headers.split("\r\n");
-                for (String headerLine : headerLines) {
-                    if (headerLine.startsWith("Content-Disposition:")) {
-                        String name = extractFormField(headerLine, "name");
-                        String filename = extractFormField(headerLine, "filename");
-
-                        if (filename != null) {
-                            Map<String, String> fileInfo = handleFileUpload(content, filename, uploadDir);
-                            uploadedFiles.add(fileInfo);
-                        } else {
-                            handleFormField(formFields, name, content);
-                        }
-                    }
+        try (InputStream source = body.openStream()) {
+            MultipartReader parts = new MultipartReader(source, boundary);
+            while (readPart(parts)) {
+                String disposition = parts.headers().get("Content-Disposition");
+                if (disposition == null) {
+                    continue;
+                }
+                String name = extractFormField(disposition, "name");
+                String filename = extractFormField(disposition, "filename");
+
+                if (filename != null) {
+                    Map<String, String> fileInfo = handleFileUpload(parts.body(), filename);
+                    uploadedFiles.add(fileInfo);
+                } else {
+                    handleFormField(formFields, name, readField(parts.body()));
                 }
             }
         }
@@ -303,49 +674,53 @@ public final class HTTPParser implements IHTTPParser {
         return result;
     }
 
-    private String extractFormField(String header, String fieldName) {
-        Pattern pattern = Pattern.compile("%s=\"([^\"]+)\"".formatted(fieldName));
-        Matcher matcher = pattern.matcher(header);
-        if (matcher.find()) {
-            return matcher.group(1);
+    // the reader reports malformed bodies as IOExceptions, which are the client's fault rather than the server's
+    private boolean readPart(MultipartReader parts) throws MalformedMultipartException {
+        try {
+            return parts.next();
+        } catch (IOException e) {
+            throw new MalformedMultipartException(e.getMessage());
         }
-        return null;
     }
 
-    private Map<String, String> handleFileUpload(String content, String filename, File uploadDir) {
-        filename = new File(filename).getName();
+    private String readField(InputStream content) throws IOException {
+        byte[] value = content.readNBytes(FormDecoder.DEFAULT_MAX_FIELD_SIZE + 1);
+        if (value.length > FormDecoder.DEFAULT_MAX_FIELD_SIZE) {
+            throw new MalformedMultipartException("Form field exceeds %d bytes".formatted(FormDecoder.DEFAULT_MAX_FIELD_SIZE));
+        }
+        return new String(value, StandardCharsets.UTF_8).trim();
+    }
 
-        File file = new File(uploadDir, filename);
-        int counter = 1;
-        while (file.exists()) {
-            String name;
-            int dotIndex = filename.lastIndexOf('.');
-            if (dotIndex != -1) {
-                name = MessageFormat.format("{0}_{1}{2}",
-                        filename.substring(0, dotIndex), counter, filename.substring(dotIndex));
-            } else {
-                name = "%s_%d".formatted(filename, counter);
+    // finds fieldName="value" among the header's parameters, so "name" does not match inside "filename"
+    private static String extractFormField(String header, String fieldName) {
+        int from = 0;
+        int index;
+        while ((index = header.indexOf(fieldName, from)) != -1) {
+            int quote = index + fieldName.length() + 1;
+            char before = index == 0 ? ';' : header.charAt(index - 1);
+            if ((before == ';' || before == ' ' || before == '\t') && header.startsWith("=\"", quote - 1)) {
+                int end = header.indexOf('"', quote + 1);
+                // an empty or unterminated value counts as missing
+                return end > quote + 1 ? header.substring(quote + 1, end) : null;
             }
-            file = new File(uploadDir, name);
-            counter++;
+            from = index + 1;
         }
+        return null;
+    }
 
-        content = content.replaceAll("\r\n$", "");
+    private Map<String, String> handleFileUpload(InputStream content, String filename) throws IOException {
+        filename = new File(filename).getName();
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write(content);
-        } catch (IOException e) {
-            logger.error("Error writing to file", e);
-            ResponseFactory.serverError("Internal error uploading file").writeTo(pw);
-        }
+        UploadStore.StoredFile stored = uploadStore.store(filename, content);
 
         Map<String, String> fileInfo = new HashMap<>();
         fileInfo.put("originalName", filename);
-        fileInfo.put("savedName", file.getName());
-        fileInfo.put("path", file.getAbsolutePath());
-        fileInfo.put("size", String.valueOf(content.length()));
+        fileInfo.put("id", stored.id());
+        fileInfo.put("savedName", stored.path().getFileName().toString());
+        fileInfo.put("path", stored.path().toString());
+        fileInfo.put("size", String.valueOf(stored.size()));
 
-        logger.info("File saved successfully: {}", file.getAbsolutePath());
+        logger.info("File saved successfully: {}", stored.path());
         return fileInfo;
     }
 
@@ -356,28 +731,9 @@ public final class HTTPParser implements IHTTPParser {
         }
     }
 
-    private File createUniqueFile(String fileName, String fileType) {
-        for (int count = 0; count <= 100; count++) {  // Safety limit of 100 attempts
-            String suffix = count == 0 ? "" : String.valueOf(count);
-            File f = new File("%s%s.%s".formatted(fileName, suffix, fileType));
-
-            try {
-                if (f.createNewFile()) {  // Returns true if file was created, false if it exists
-                    return f;
-                }
-            } catch (IOException e) {
-                logger.error("Error creating file:", e);
-                return null;
-            }
-        }
-
-        logger.error("Too many duplicate files");
-        return null;
-    }
-
     private void handlePut(HTTPRequest req) throws IOException, SecurityException {
         logger.trace("Handling PUT request...");
-        File fileLocation = new File(".%s".formatted(req.uri()));
+        File fileLocation = webRoot.resolve(req.path()).toFile();
         logger.info("PUT at location {}", fileLocation.getPath());
 
         // Ensure parent directories exist
@@ -385,39 +741,461 @@ public final class HTTPParser implements IHTTPParser {
         if (parent != null && !parent.exists()) {
             if (!parent.mkdirs()) {
                 logger.error("Failed to create parent directories for {}", fileLocation.getPath());
-                ResponseFactory.serverError("Failed to create directory structure").writeTo(pw);
+                responses.write(ResponseFactory.serverError("Failed to create directory structure"));
                 return;
             }
         }
 
-        // Write the file in one operation
-        FileUtils.writeByteArrayToFile(fileLocation, req.body().getBytes());
+        // the body goes to a new file that replaces the old one in one rename, so readers of the old
+        // file, including its mappings, keep seeing it whole until they are done
+        Path target = fileLocation.toPath();
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), ".put", ".tmp");
+        try {
+            if (groupCommitter != null) {
+                writeDurably(temp, target, req.body());
+            } else {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    req.body().transferTo(channel);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        changed(fileLocation, req.path(), "updated");
 
         // Log appropriate message based on whether file existed
-        if (fileLocation.length() == req.body().getBytes().length) {
+        if (fileLocation.length() == req.body().length()) {
             logger.info("File {} successfully {}", fileLocation.getPath(),
-                    fileLocation.length() == req.body().getBytes().length ? "created" : "updated");
-            ResponseFactory.noContent(fileLocation.getPath()).writeTo(pw);
+                    fileLocation.length() == req.body().length() ? "created" : "updated");
+            responses.write(ResponseFactory.noContent(req.path()));
+        }
+    }
+
+    // returns only once the data and the rename are on disk, so the 204 that follows is a durability acknowledgement
+    private void writeDurably(Path temp, Path target, RequestBody body) throws IOException {
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(temp, StandardOpenOption.WRITE)) {
+            if (body.inMemory()) {
+                GroupCommitter.writeFully(channel, ByteBuffer.wrap(body.bytes()), 0);
+            } else {
+                try (ReadableByteChannel source = body.openChannel()) {
+                    ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+                    long position = 0;
+                    while (source.read(chunk) != -1) {
+                        chunk.flip();
+                        position += GroupCommitter.writeFully(channel, chunk, position);
+                        chunk.clear();
+                    }
+                }
+            }
+            // the data must be durable before the rename can expose it under the target's name
+            groupCommitter.commitAndWait(channel, null);
         }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        groupCommitter.commitAndWait(target.toAbsolutePath().getParent());
     }
 
     private void handleDelete(HTTPRequest req) throws SecurityException {
         logger.trace("Handling DELETE request");
-        File fileLocation = new File(".%s".formatted(req.uri()));
+        File fileLocation = webRoot.resolve(req.path()).toFile();
         if (fileLocation.exists()) {
             if (fileLocation.isFile()) {
                 if (fileLocation.delete()) {
+                    changed(fileLocation, req.path(), "deleted");
                     logger.info("File {} successfully deleted", fileLocation.getPath());
-                    ResponseFactory.noContent(fileLocation.getPath()).writeTo(pw);
+                    responses.write(ResponseFactory.noContent(req.path()));
                 } else {
-                    ResponseFactory.forbidden("Access is denied").writeTo(pw);
+                    responses.write(ResponseFactory.forbidden("Access is denied"));
+                }
+            } else {
+                responses.write(ResponseFactory.badRequest("Cannot delete directory using DELETE request"));
+            }
+        } else {
+            responses.write(ResponseFactory.notFound());
+        }
+    }
+
+    // drops every cached view of a file that was just written or deleted
+    private void changed(File file, String uriPath, String change) {
+        mappedFiles.invalidate(file.toPath());
+        webRoot.refresh(uriPath);
+        if (responseCache != null) {
+            responseCache.invalidate(uriPath);
+        }
+        if (events != null) {
+            JsonWriter event = new JsonWriter(uriPath.length() + 32)
+                    .beginObject()
+                    .name("path").value(uriPath)
+                    .name("change").value(change)
+                    .endObject();
+            events.publish("change", event.toString());
+        }
+    }
+
+    // START BATCH FETCH HANDLING
+
+    private boolean isBatch(String path) {
+        return batchPath != null && path.equals(batchPath);
+    }
+
+    // the paths come as repeated "path" parameters, in the query of a GET or the form body of a POST
+    private void handleBatch(HTTPRequest req) throws IOException {
+        FormParameters parameters;
+        try {
+            switch (req.method()) {
+                case "GET" -> parameters = formDecoder.decode(req.query());
+                case "POST" -> {
+                    byte[] body = bodyInMemory(req);
+                    if (body == null) {
+                        return;
+                    }
+                    parameters = formDecoder.decode(body, 0, body.length);
+                }
+                default -> {
+                    responses.write(ResponseFactory.methodNotAllowed("GET, POST"));
+                    return;
+                }
+            }
+        } catch (FormDecoder.FormLimitException e) {
+            responses.write(ResponseFactory.badRequest(e.getMessage()));
+            return;
+        }
+        List<String> paths = parameters.getAll("path");
+        if (paths.isEmpty() || paths.size() > batchMaxFiles) {
+            responses.write(ResponseFactory.badRequest("A batch takes between 1 and %d path parameters".formatted(batchMaxFiles)));
+            return;
+        }
+        for (String path : paths) {
+            // each path is echoed in its part's Content-Location, where a line break would add a header
+            if (hasControlCharacter(path)) {
+                responses.write(ResponseFactory.badRequest("Batch paths must not contain control characters"));
+                return;
+            }
+        }
+
+        // every file is looked up before the head is sent; after that, a failure can only cut the response short
+        FileMetadata[] files = new FileMetadata[paths.size()];
+        int[] statuses = new int[paths.size()];
+        for (int i = 0; i < files.length; i++) {
+            try {
+                files[i] = findFile(paths.get(i));
+                statuses[i] = files[i] == null ? 404 : 200;
+            } catch (SecurityException e) {
+                statuses[i] = 403;
+            }
+        }
+        logger.info("Serving batch of {} files", files.length);
+
+        String boundary = "batch-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        HTTPHeaders headers = new HTTPHeaders();
+        headers.add(HTTPHeaders.CONTENT_TYPE, "multipart/mixed; boundary=" + boundary);
+        ByteBuffer pending = ByteBuffer.allocate(BATCH_BUFFER_SIZE);
+        try (WritableByteChannel out = responses.beginStreaming(200, headers)) {
+            try {
+                for (int i = 0; i < files.length; i++) {
+                    put(out, pending, partHead(boundary, paths.get(i), files[i], statuses[i]));
+                    if (files[i] != null) {
+                        writeFile(out, pending, files[i]);
+                    }
+                    put(out, pending, CRLF);
+                }
+                put(out, pending, ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+                flush(out, pending);
+            } catch (IOException e) {
+                // the head is out, so there is no error response left to send; the missing closing boundary tells the client
+                logger.warn("Batch response cut short: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static boolean hasControlCharacter(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c == 0x7f) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a part that could not be served has no body, and carries the status its own GET would have had
+    private static byte[] partHead(String boundary, String path, FileMetadata file, int status) {
+        StringBuilder head = new StringBuilder(128 + path.length());
+        head.append("--").append(boundary).append("\r\n");
+        head.append(HTTPHeaders.CONTENT_LOCATION).append(": ").append(path).append("\r\n");
+        if (file != null) {
+            head.append(HTTPHeaders.CONTENT_TYPE).append(": ").append(file.contentType()).append("\r\n");
+            head.append(HTTPHeaders.ETAG).append(": ").append(file.etag()).append("\r\n");
+            head.append(HTTPHeaders.CONTENT_LENGTH).append(": ").append(file.size()).append("\r\n");
+        } else {
+            head.append("Status: ").append(status).append("\r\n");
+            head.append(HTTPHeaders.CONTENT_LENGTH).append(": 0\r\n");
+        }
+        return head.append("\r\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // files that fit are copied into the pending buffer, so a batch of small files goes out in a few large writes
+    private void writeFile(WritableByteChannel out, ByteBuffer pending, FileMetadata file) throws IOException {
+        if (file.size() > pending.remaining()) {
+            flush(out, pending);
+        }
+        MappedFileCache.MappedFile mapped = mappedFiles.acquire(file.path(), file.size(), file.lastModifiedMillis());
+        if (mapped != null) {
+            try {
+                put(out, pending, mapped.buffer());
+            } finally {
+                mapped.release();
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            long position = 0;
+            if (file.size() <= pending.remaining()) {
+                // a file that has grown since it was looked up is cut at the length already announced
+                int start = pending.position();
+                pending.limit(start + (int) file.size());
+                try {
+                    int read = 0;
+                    while (pending.hasRemaining() && read != -1) {
+                        read = channel.read(pending);
+                    }
+                    position = pending.position() - start;
+                } finally {
+                    pending.limit(pending.capacity());
                 }
             } else {
-                ResponseFactory.badRequest("Cannot delete directory using DELETE request").writeTo(pw);
+                while (position < file.size()) {
+                    long sent = channel.transferTo(position, file.size() - position, out);
+                    if (sent == 0 && position >= channel.size()) {
+                        break;
+                    }
+                    position += sent;
+                }
+            }
+            if (position != file.size()) {
+                // the part's Content-Length has been sent already
+                throw new EOFException("%s changed while it was being sent".formatted(file.path()));
+            }
+        }
+    }
+
+    private static void put(WritableByteChannel out, ByteBuffer pending, byte[] bytes) throws IOException {
+        put(out, pending, ByteBuffer.wrap(bytes));
+    }
+
+    private static void put(WritableByteChannel out, ByteBuffer pending, ByteBuffer bytes) throws IOException {
+        if (bytes.remaining() > pending.remaining()) {
+            flush(out, pending);
+        }
+        if (bytes.remaining() > pending.remaining()) {
+            writeFully(out, bytes);
+        } else {
+            pending.put(bytes);
+        }
+    }
+
+    private static void flush(WritableByteChannel out, ByteBuffer pending) throws IOException {
+        pending.flip();
+        writeFully(out, pending);
+        pending.clear();
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    // START EVENT STREAM HANDLING
+
+    // the worker only sends the response head; the broadcaster's selector thread serves the stream from then on
+    private void handleSubscribe(HTTPRequest req) {
+        if (!req.method().equals("GET")) {
+            responses.write(ResponseFactory.methodNotAllowed("GET"));
+            return;
+        }
+        if (!events.tryReserve()) {
+            logger.warn("Event stream is at its subscriber limit; rejecting {}", req.uri());
+            responses.write(ResponseFactory.serviceUnavailable());
+            return;
+        }
+        boolean subscribed = false;
+        try {
+            HTTPHeaders headers = new HTTPHeaders();
+            headers.add(HTTPHeaders.CONTENT_TYPE, "text/event-stream");
+            headers.add(HTTPHeaders.CACHE_CONTROL, "no-store");
+            SocketChannel channel = responses.takeOver(200, headers);
+            if (channel == null) {
+                responses.write(ResponseFactory.notImplemented("Event streams are only served over plain HTTP/1.1"));
+                return;
             }
+            events.subscribe(channel, req.headers().get(HTTPHeaders.LAST_EVENT_ID));
+            subscribed = true;
+            logger.info("Subscribed {} to the event stream", channel.getRemoteAddress());
+        } catch (IOException e) {
+            logger.debug("Event subscriber went away during the handshake: {}", e.getMessage());
+        } finally {
+            if (!subscribed) {
+                events.release();
+            }
+        }
+    }
+
+    // START RESUMABLE UPLOAD HANDLING
+
+    // the endpoint creates sessions; each session is a resource beneath it
+    private boolean isResumableUpload(String path) {
+        return resumableUploads != null
+                && (path.equals(resumableEndpoint) || path.startsWith(resumableEndpoint + "/"));
+    }
+
+    private String uploadId(String path) {
+        return path.length() > resumableEndpoint.length() ? path.substring(resumableEndpoint.length() + 1) : "";
+    }
+
+    private void handleResumableUpload(HTTPRequest req) throws IOException {
+        String id = uploadId(req.path());
+        if (id.isEmpty()) {
+            switch (req.method()) {
+                case "POST" -> createUpload(req);
+                case "OPTIONS" -> responses.write(ResponseFactory.uploadOptions(resumableUploads.getMaxLength()));
+                default -> responses.write(ResponseFactory.methodNotAllowed("POST, OPTIONS"));
+            }
+            return;
+        }
+        ResumableUploads.Session session = resumableUploads.get(id);
+        if (session == null) {
+            responses.write(ResponseFactory.notFound());
+            return;
+        }
+        switch (req.method()) {
+            case "HEAD" -> responses.write(ResponseFactory.uploadProgress(200, session.offset(), session.length(),
+                    resumableUploads.expiresAtMillis(session)));
+            case "PATCH" -> appendChunk(req, session);
+            case "DELETE" -> {
+                resumableUploads.terminate(session);
+                responses.write(ResponseFactory.noContent(req.path()));
+            }
+            default -> responses.write(ResponseFactory.methodNotAllowed("HEAD, PATCH, DELETE"));
+        }
+    }
+
+    private void createUpload(HTTPRequest req) throws IOException {
+        long length = parseLength(req.headers().get(HTTPHeaders.UPLOAD_LENGTH));
+        if (length < 0) {
+            responses.write(ResponseFactory.badRequest("Upload-Length must be a non-negative integer"));
+            return;
+        }
+        if (length > resumableUploads.getMaxLength()) {
+            responses.write(ResponseFactory.payloadTooLarge(resumableUploads.getMaxLength()));
+            return;
+        }
+        String target = uploadMetadata(req.headers().get(HTTPHeaders.UPLOAD_METADATA), "target");
+        if (target == null || !target.startsWith("/")) {
+            responses.write(ResponseFactory.badRequest("Upload-Metadata must name an absolute target path"));
+            return;
+        }
+        // checked now rather than on the last chunk, so that a client never uploads to a target it cannot have
+        File destination = webRoot.resolve(target).toFile();
+        if (destination.isDirectory() || isResumableUpload(target)) {
+            responses.write(ResponseFactory.badRequest("Cannot upload to %s".formatted(target)));
+            return;
+        }
+
+        ResumableUploads.Session session = resumableUploads.create(target, length);
+        logger.info("Created resumable upload {} for {}", session.id(), target);
+        if (session.isComplete()) {
+            completeUpload(session);
+        }
+        responses.write(ResponseFactory.uploadCreated("%s/%s".formatted(resumableEndpoint, session.id()),
+                resumableUploads.expiresAtMillis(session)));
+    }
+
+    private void appendChunk(HTTPRequest req, ResumableUploads.Session session) throws IOException {
+        HTTPResponse rejection = rejectChunk(session, req.headers(), req.body().length());
+        if (rejection != null) {
+            responses.write(rejection);
+            return;
+        }
+        long offset;
+        try {
+            offset = resumableUploads.append(session, parseLength(req.headers().get(HTTPHeaders.UPLOAD_OFFSET)), req.body());
+        } catch (ResumableUploads.UploadConflictException e) {
+            logger.warn("Rejected chunk: {}", e.getMessage());
+            responses.write(ResponseFactory.conflict(e.getMessage()));
+            return;
+        }
+        logger.debug("Upload {} at {} of {} bytes", session.id(), offset, session.length());
+        if (session.isComplete()) {
+            completeUpload(session);
+            responses.write(ResponseFactory.uploadProgress(204, offset, session.length(), 0));
         } else {
-            ResponseFactory.notFound();
+            responses.write(ResponseFactory.uploadProgress(204, offset, session.length(),
+                    resumableUploads.expiresAtMillis(session)));
+        }
+    }
+
+    /**
+     * Checks a chunk against the session from the request headers alone, so that it can also be judged
+     * before the body is sent.
+     * @return the response refusing the chunk, or null if it continues the upload
+     */
+    private HTTPResponse rejectChunk(ResumableUploads.Session session, HTTPHeaders headers, long chunkLength) {
+        if (!"application/offset+octet-stream".equals(headers.get(HTTPHeaders.CONTENT_TYPE))) {
+            return ResponseFactory.unsupportedMediaType("Chunks must be sent as application/offset+octet-stream");
+        }
+        long offset = parseLength(headers.get(HTTPHeaders.UPLOAD_OFFSET));
+        if (offset < 0) {
+            return ResponseFactory.badRequest("Upload-Offset must be a non-negative integer");
+        }
+        if (offset != session.offset()) {
+            return ResponseFactory.conflict("Upload is at offset %d, not %d".formatted(session.offset(), offset));
+        }
+        if (chunkLength > session.length() - offset) {
+            return ResponseFactory.badRequest("Chunk runs past the upload length of %d".formatted(session.length()));
+        }
+        return null;
+    }
+
+    private void completeUpload(ResumableUploads.Session session) throws IOException {
+        File destination = webRoot.resolve(session.target()).toFile();
+        File parent = destination.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directories for %s".formatted(destination));
         }
+        resumableUploads.finish(session, destination.toPath());
+        changed(destination, session.target(), "updated");
+    }
+
+    // -1 for a missing or malformed value
+    private static long parseLength(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            return parsed < 0 ? -1 : parsed;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Upload-Metadata is a comma-separated list of keys, each followed by its value in base64
+    private static String uploadMetadata(String metadata, String key) {
+        if (metadata == null) {
+            return null;
+        }
+        for (String pair : metadata.split(",")) {
+            String[] keyValue = pair.trim().split(" ", 2);
+            if (keyValue[0].equals(key) && keyValue.length == 2) {
+                try {
+                    return new String(Base64.getDecoder().decode(keyValue[1].trim()), StandardCharsets.UTF_8);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
     }
 
 //    private void saveFormMetadata(Map<String, String> formFields, File uploadDir) {
@@ -447,4 +1225,22 @@ public final class HTTPParser implements IHTTPParser {
 //                .replace("\r", "\\r")
 //                .replace("\t", "\\t");
 //    }
+
+    /**
+     * Thrown when the request line and headers outgrow the configured maximum.
+     */
+    private static class HeaderTooLargeException extends IOException {
+        HeaderTooLargeException(int maxSize) {
+            super("Request line and headers exceed %d bytes".formatted(maxSize));
+        }
+    }
+
+    /**
+     * Thrown when a multipart body does not follow its declared boundary structure.
+     */
+    private static class MalformedMultipartException extends IOException {
+        MalformedMultipartException(String message) {
+            super(message);
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package com.ericduncandev.HTTP.parser;
+
+import com.ericduncandev.HTTP.interfaces.IResponseWriter;
+import com.ericduncandev.HTTP.jfr.ResponseWriteEvent;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.HTTPResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes HTTP/1.1 responses straight to the connection. Every response closes the connection, so
+ * streamed bodies without a Content-Length are delimited by the close.
+ */
+public final class Http1ResponseWriter implements IResponseWriter {
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final WritableByteChannel out;
+    private HTTPRequest request;
+    private int statusCode;
+    private long bodyBytes;
+    private boolean detached;
+
+    public Http1ResponseWriter(WritableByteChannel out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(HTTPResponse response) {
+        ResponseWriteEvent event = new ResponseWriteEvent();
+        event.begin();
+        long length = response.getBody().remaining();
+        response.writeTo(out);
+        statusCode = response.getStatusCode();
+        bodyBytes += length;
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, length);
+        }
+    }
+
+    @Override
+    public void writeContinue() throws IOException {
+        // written bare: the builder's defaults, Connection: close among them, belong on the final response only
+        ByteBuffer line = ByteBuffer.wrap(CONTINUE);
+        while (line.hasRemaining()) {
+            out.write(line);
+        }
+    }
+
+    @Override
+    public void attach(HTTPRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public int statusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public long bodyBytes() {
+        return bodyBytes;
+    }
+
+    private void commit(ResponseWriteEvent event, long bytes) {
+        if (request != null) {
+            event.method = request.method();
+            event.uri = request.uri();
+        }
+        event.status = statusCode;
+        event.bytes = bytes;
+        event.commit();
+    }
+
+    /**
+     * Hands over plaintext connections only; TLS connections are not sockets the caller could write to.
+     */
+    @Override
+    public SocketChannel takeOver(int statusCode, HTTPHeaders headers) throws IOException {
+        if (!(out instanceof SocketChannel socket)) {
+            return null;
+        }
+        ResponseWriteEvent event = new ResponseWriteEvent();
+        event.begin();
+        this.statusCode = statusCode;
+        head(statusCode, headers).writeTo(socket);
+        detached = true;
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, 0);
+        }
+        return socket;
+    }
+
+    /**
+     * @return whether the connection was handed over with {@link #takeOver}, and so must not be closed
+     */
+    public boolean isDetached() {
+        return detached;
+    }
+
+    @Override
+    public WritableByteChannel beginStreaming(int statusCode, HTTPHeaders headers) throws IOException {
+        ResponseWriteEvent event = new ResponseWriteEvent();
+        event.begin();
+        this.statusCode = statusCode;
+        head(statusCode, headers).writeTo(out);
+        // the connection itself is closed by the server once the handler returns
+        return new WritableByteChannel() {
+            private boolean open = true;
+            private long bytes;
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                int written = 0;
+                while (src.hasRemaining()) {
+                    written += out.write(src);
+                }
+                bytes += written;
+                bodyBytes += written;
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open && out.isOpen();
+            }
+
+            @Override
+            public void close() {
+                if (open) {
+                    open = false;
+                    event.end();
+                    if (event.shouldCommit()) {
+                        commit(event, bytes);
+                    }
+                }
+            }
+        };
+    }
+
+    private static HTTPResponse head(int statusCode, HTTPHeaders headers) {
+        HTTPResponse.Builder head = new HTTPResponse.Builder().statusCode(statusCode);
+        for (int i = 0; i < headers.size(); i++) {
+            // the first occurrence replaces a builder default, later ones repeat the header
+            if (firstIndexOf(headers, headers.name(i)) == i) {
+                head.header(headers.name(i), headers.value(i));
+            } else {
+                head.addHeader(headers.name(i), headers.value(i));
+            }
+        }
+        head.header(HTTPHeaders.CONNECTION, "close");
+        return head.build();
+    }
+
+    private static int firstIndexOf(HTTPHeaders headers, String name) {
+        for (int i = 0; i < headers.size(); i++) {
+            if (HTTPHeaders.equalsIgnoreCase(headers.name(i), name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
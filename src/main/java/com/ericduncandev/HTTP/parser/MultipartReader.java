@@ -0,0 +1,188 @@
+package com.ericduncandev.HTTP.parser;
+
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming reader for multipart/form-data bodies.
+ * Parts are visited in order with {@link #next()}; each part's content is exposed as a stream that
+ * ends at the following boundary, so file parts can be copied to storage without ever being held in
+ * memory. Only a fixed-size window of the body is buffered at a time. Content that a caller does not
+ * read is skipped when it moves on to the next part. Instances are not thread-safe.
+ */
+public final class MultipartReader {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_PART_HEADER_SIZE = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    private boolean partEnded;
+    private boolean finished;
+    private HTTPHeaders headers;
+    private final InputStream partStream = new InputStream() {
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return readPart(b, off, len);
+        }
+    };
+
+    public MultipartReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+        // the first boundary has no preceding line break; supplying one lets the preamble be skipped like any part
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+    }
+
+    /**
+     * Skips the rest of the current part and moves to the next one.
+     * @return false once the closing boundary has been reached
+     * @throws IOException if the body ends before its closing boundary, or is otherwise malformed
+     */
+    public boolean next() throws IOException {
+        if (finished) {
+            return false;
+        }
+        // reading the rest of the current part (at first, the preamble) consumes its closing delimiter
+        partStream.skip(Long.MAX_VALUE);
+        int first = readByte();
+        int second = readByte();
+        if (first == '-' && second == '-') {
+            finished = true;
+            return false;
+        }
+        // transport padding may follow the boundary before its line break
+        while (first == ' ' || first == '\t') {
+            first = second;
+            second = readByte();
+        }
+        if (first != '\r' || second != '\n') {
+            throw new IOException("Malformed multipart boundary line");
+        }
+        headers = readHeaders();
+        partEnded = false;
+        return true;
+    }
+
+    /**
+     * @return the headers of the current part
+     */
+    public HTTPHeaders headers() {
+        return headers;
+    }
+
+    /**
+     * @return the content of the current part, ending at the next boundary; closing it has no effect
+     */
+    public InputStream body() {
+        return partStream;
+    }
+
+    private int readPart(byte[] b, int off, int len) throws IOException {
+        if (partEnded) {
+            return -1;
+        }
+        fill(delimiter.length);
+        int match = indexOfDelimiter();
+        int available;
+        if (match == position) {
+            position += delimiter.length;
+            partEnded = true;
+            return -1;
+        } else if (match != -1) {
+            available = match - position;
+        } else if (eof) {
+            throw new IOException("Multipart body ended without a closing boundary");
+        } else {
+            // the tail might be the start of a delimiter, so it stays buffered until more arrives
+            available = limit - position - (delimiter.length - 1);
+        }
+        int count = Math.min(len, available);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    private int indexOfDelimiter() {
+        int last = limit - delimiter.length;
+        outer:
+        for (int i = position; i <= last; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private HTTPHeaders readHeaders() throws IOException {
+        HTTPHeaders partHeaders = new HTTPHeaders();
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int consumed = 0;
+        while (true) {
+            line.reset();
+            int c;
+            while ((c = readByte()) != '\n') {
+                if (++consumed > MAX_PART_HEADER_SIZE) {
+                    throw new IOException("Multipart part headers exceed %d bytes".formatted(MAX_PART_HEADER_SIZE));
+                }
+                line.write(c);
+            }
+            // browsers send file names as raw UTF-8
+            String header = line.toString(StandardCharsets.UTF_8).stripTrailing();
+            if (header.isEmpty()) {
+                return partHeaders;
+            }
+            int separator = header.indexOf(':');
+            if (separator > 0) {
+                partHeaders.add(HTTPHeaders.canonicalName(header, 0, separator), header.substring(separator + 1).trim());
+            }
+        }
+    }
+
+    private int readByte() throws IOException {
+        fill(1);
+        if (position == limit) {
+            throw new IOException("Multipart body ended without a closing boundary");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    // makes at least {@code wanted} bytes available after position, unless the stream ends first
+    private void fill(int wanted) throws IOException {
+        if (limit - position >= wanted || eof) {
+            return;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit < wanted) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                eof = true;
+                return;
+            }
+            limit += read;
+        }
+    }
+}
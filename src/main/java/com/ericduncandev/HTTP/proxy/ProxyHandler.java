@@ -0,0 +1,337 @@
+package com.ericduncandev.HTTP.proxy;
+
+import com.ericduncandev.HTTP.factory.ResponseFactory;
+import com.ericduncandev.HTTP.interfaces.IResponseWriter;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.RequestBody;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Forwards requests under a path prefix to a set of upstream servers.
+ * Upstreams are chosen with power-of-two-choices on outstanding requests among the healthy ones;
+ * connections are pooled and kept alive between requests. The upstream response is relayed to the
+ * client as it arrives through a fixed-size buffer, so bodies are never held in memory as a whole;
+ * chunked bodies are de-chunked and reframed by the client's protocol. Failures before any response byte reaches the client become 502s.
+ */
+public final class ProxyHandler {
+    private static final Logger logger = LogManager.getLogger(ProxyHandler.class);
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    private static final String[] IDEMPOTENT_METHODS = {"GET", "HEAD", "PUT", "DELETE", "OPTIONS"};
+    private static final String[] HOP_BY_HOP = {
+            HTTPHeaders.CONNECTION, "Keep-Alive", "Proxy-Authenticate", "Proxy-Authorization",
+            "Proxy-Connection", "TE", "Trailer", HTTPHeaders.TRANSFER_ENCODING, HTTPHeaders.UPGRADE
+    };
+
+    private final String prefix;
+    private final List<Upstream> upstreams;
+
+    public ProxyHandler(String prefix, List<Upstream> upstreams) {
+        if (upstreams.isEmpty()) {
+            throw new IllegalArgumentException("Proxy route %s has no upstreams".formatted(prefix));
+        }
+        this.prefix = prefix;
+        this.upstreams = List.copyOf(upstreams);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public boolean matches(String path) {
+        return path.startsWith(prefix)
+                && (path.length() == prefix.length() || prefix.endsWith("/") || path.charAt(prefix.length()) == '/');
+    }
+
+    public void handle(HTTPRequest req, IResponseWriter client) {
+        RequestBody body = req.body();
+        Upstream upstream = null;
+        // a connect failure means nothing was sent, so one other upstream can safely be tried
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Upstream chosen = choose(upstream);
+            if (chosen == upstream) {
+                // every other upstream is ejected, or there is no other; trying this one again would only pay
+                // the connect timeout twice and count one refusal as two failures
+                break;
+            }
+            upstream = chosen;
+            upstream.begin();
+            try {
+                if (forward(req, body, upstream, client)) {
+                    return;
+                }
+            } finally {
+                upstream.end();
+            }
+        }
+        client.write(ResponseFactory.badGateway("Upstream %s unavailable".formatted(upstream)));
+    }
+
+    // power of two choices: sample two upstreams and take the less loaded one
+    private Upstream choose(Upstream failed) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = upstreams.size();
+        Upstream first = pickHealthy(random.nextInt(size), failed);
+        if (size == 1) {
+            return first;
+        }
+        Upstream second = pickHealthy(random.nextInt(size), failed);
+        return second.outstanding() < first.outstanding() ? second : first;
+    }
+
+    // walks forward from the sampled index to the next healthy upstream; fails open if none are
+    private Upstream pickHealthy(int start, Upstream failed) {
+        for (int i = 0; i < upstreams.size(); i++) {
+            Upstream candidate = upstreams.get((start + i) % upstreams.size());
+            if (candidate != failed && candidate.isHealthy()) {
+                return candidate;
+            }
+        }
+        return upstreams.get(start);
+    }
+
+    /**
+     * @return false if the upstream could not be connected to and the client has not been written to
+     */
+    private boolean forward(HTTPRequest req, RequestBody body, Upstream upstream, IResponseWriter client) {
+        // a pooled connection may have been closed by the backend; retry once on a fresh one, but only if
+        // repeating the request is harmless, since the backend may have acted on it before the failure
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Upstream.Connection connection = null;
+            boolean clientTouched = false;
+            try {
+                connection = upstream.acquire();
+                writeRequest(req, body, upstream, connection.out);
+
+                ResponseHead head = readHead(connection.in);
+                upstream.recordSuccess();
+                clientTouched = true;
+                boolean reusable = relay(req, head, connection.in, client);
+                if (reusable) {
+                    upstream.release(connection);
+                } else {
+                    connection.close();
+                }
+                return true;
+            } catch (IOException e) {
+                if (connection != null) {
+                    connection.close();
+                }
+                if (clientTouched) {
+                    logger.warn("Upstream {} failed mid-response for {}", upstream, req.uri(), e);
+                    return true;
+                }
+                if (connection != null && connection.reused && attempt == 0 && isIdempotent(req.method())) {
+                    logger.debug("Stale pooled connection to {}, retrying", upstream);
+                    continue;
+                }
+                upstream.recordFailure();
+                logger.error("Upstream {} failed for {}: {}", upstream, req.uri(), e.getMessage());
+                if (connection == null) {
+                    return false;
+                }
+                client.write(ResponseFactory.badGateway("Upstream %s failed".formatted(upstream)));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeRequest(HTTPRequest req, RequestBody body, Upstream upstream, OutputStream out) throws IOException {
+        StringBuilder head = new StringBuilder(256);
+        head.append(req.method()).append(' ').append(req.uri()).append(" HTTP/1.1\r\n");
+        HTTPHeaders headers = req.headers();
+        for (int i = 0; i < headers.size(); i++) {
+            String name = headers.name(i);
+            // any Expect was answered here before the body was read, so the upstream gets the whole request at once
+            if (!isHopByHop(name) && !HTTPHeaders.equalsIgnoreCase(name, HTTPHeaders.CONTENT_LENGTH)
+                    && !HTTPHeaders.equalsIgnoreCase(name, HTTPHeaders.EXPECT)) {
+                head.append(name).append(": ").append(headers.value(i)).append("\r\n");
+            }
+        }
+        if (!headers.contains(HTTPHeaders.HOST)) {
+            head.append("Host: ").append(upstream.hostHeader()).append("\r\n");
+        }
+        if (!body.isEmpty() || headers.contains(HTTPHeaders.CONTENT_LENGTH)) {
+            head.append("Content-Length: ").append(body.length()).append("\r\n");
+        }
+        head.append("Connection: keep-alive\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (body.inMemory()) {
+            out.write(body.bytes());
+        } else {
+            // spilled bodies are streamed from disk, and re-read if the request is retried
+            try (InputStream source = body.openStream()) {
+                source.transferTo(out);
+            }
+        }
+        out.flush();
+    }
+
+    private ResponseHead readHead(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        String[] status = statusLine.split(" ", 3);
+        if (status.length < 2 || !status[0].startsWith("HTTP/")) {
+            throw new IOException("Malformed upstream status line: %s".formatted(statusLine));
+        }
+        int statusCode;
+        try {
+            statusCode = Integer.parseInt(status[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed upstream status code: %s".formatted(statusLine));
+        }
+        HTTPHeaders headers = new HTTPHeaders();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int separatorIndex = line.indexOf(':');
+            if (separatorIndex > 0) {
+                headers.add(HTTPHeaders.canonicalName(line, 0, separatorIndex), line.substring(separatorIndex + 1).trim());
+            }
+        }
+        return new ResponseHead(statusCode, headers);
+    }
+
+    /**
+     * Streams the upstream response to the client.
+     * @return whether the upstream connection is positioned at the next response and can be reused
+     */
+    private boolean relay(HTTPRequest req, ResponseHead head, InputStream in, IResponseWriter client) throws IOException {
+        boolean chunked = "chunked".equalsIgnoreCase(head.headers().get(HTTPHeaders.TRANSFER_ENCODING));
+        String contentLength = head.headers().get(HTTPHeaders.CONTENT_LENGTH);
+        boolean noBody = req.method().equals("HEAD") || head.statusCode() == 204
+                || head.statusCode() == 304 || head.statusCode() / 100 == 1;
+
+        HTTPHeaders headers = new HTTPHeaders();
+        for (int i = 0; i < head.headers().size(); i++) {
+            String name = head.headers().name(i);
+            if (!isHopByHop(name)) {
+                headers.add(name, head.headers().value(i));
+            }
+        }
+        boolean keepAlive = !"close".equalsIgnoreCase(head.headers().get(HTTPHeaders.CONNECTION));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (WritableByteChannel body = client.beginStreaming(head.statusCode(), headers)) {
+            if (noBody) {
+                return keepAlive;
+            } else if (chunked) {
+                relayChunked(in, body, buffer);
+                return keepAlive;
+            } else if (contentLength != null) {
+                long remaining;
+                try {
+                    remaining = Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed upstream Content-Length: %s".formatted(contentLength));
+                }
+                copy(in, body, buffer, remaining);
+                return keepAlive;
+            }
+            // body delimited by the upstream closing the connection
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                writeFully(body, buffer, 0, read);
+            }
+            return false;
+        }
+    }
+
+    private void relayChunked(InputStream in, WritableByteChannel client, byte[] buffer) throws IOException {
+        while (true) {
+            String sizeLine = readLine(in);
+            int extension = sizeLine.indexOf(';');
+            long size;
+            try {
+                size = Long.parseLong((extension == -1 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed chunk size: %s".formatted(sizeLine));
+            }
+            if (size == 0) {
+                // trailers, terminated by an empty line, are dropped
+                String trailer;
+                do {
+                    trailer = readLine(in);
+                } while (!trailer.isEmpty());
+                return;
+            }
+            copy(in, client, buffer, size);
+            readLine(in);
+        }
+    }
+
+    private static void copy(InputStream in, WritableByteChannel client, byte[] buffer, long remaining) throws IOException {
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new EOFException("Upstream closed with %d bytes outstanding".formatted(remaining));
+            }
+            writeFully(client, buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static void writeFully(WritableByteChannel client, byte[] bytes, int offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+            }
+            if (line.size() == MAX_LINE_LENGTH) {
+                throw new IOException("Upstream line exceeds %d bytes".formatted(MAX_LINE_LENGTH));
+            }
+            line.write(b);
+        }
+        throw new EOFException("Upstream closed the connection");
+    }
+
+    private static boolean isIdempotent(String method) {
+        for (String idempotent : IDEMPOTENT_METHODS) {
+            if (idempotent.equals(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHopByHop(String name) {
+        for (String hopByHop : HOP_BY_HOP) {
+            if (HTTPHeaders.equalsIgnoreCase(name, hopByHop)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        upstreams.forEach(upstream -> upstream.setTimeouts(connectTimeoutMillis, readTimeoutMillis));
+    }
+
+    void close() {
+        upstreams.forEach(Upstream::closeIdle);
+    }
+
+    private record ResponseHead(int statusCode, HTTPHeaders headers) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.ericduncandev.HTTP.proxy;
+
+import com.ericduncandev.HTTP.core.ServerConfig;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps request paths to proxy routes. The longest matching prefix wins, so a route for
+ * {@code /api/v2} can sit alongside one for {@code /api}.
+ */
+public final class ProxyRouter implements AutoCloseable {
+    private final List<ProxyHandler> handlers;
+
+    public ProxyRouter(ServerConfig config) {
+        List<ProxyHandler> routes = new ArrayList<>();
+        for (Map.Entry<String, List<String>> route : config.getProxyRoutes().entrySet()) {
+            List<Upstream> upstreams = new ArrayList<>();
+            for (String address : route.getValue()) {
+                upstreams.add(new Upstream(address, config.getProxyConnectTimeoutMillis(),
+                        config.getProxyReadTimeoutMillis(), config.getProxyEjectAfterFailures(),
+                        config.getProxyEjectMillis()));
+            }
+            routes.add(new ProxyHandler(route.getKey(), upstreams));
+        }
+        routes.sort(Comparator.comparingInt((ProxyHandler h) -> h.getPrefix().length()).reversed());
+        this.handlers = List.copyOf(routes);
+    }
+
+    /**
+     * @return the handler for the path, or null when the path is served locally
+     */
+    public ProxyHandler match(String path) {
+        for (ProxyHandler handler : handlers) {
+            if (handler.matches(path)) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies new upstream timeouts; pooled connections pick up the read timeout when next used.
+     */
+    public void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        handlers.forEach(handler -> handler.setTimeouts(connectTimeoutMillis, readTimeoutMillis));
+    }
+
+    @Override
+    public void close() {
+        handlers.forEach(ProxyHandler::close);
+    }
+}
@@ -0,0 +1,165 @@
+package com.ericduncandev.HTTP.proxy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One backend behind a proxy route: its pool of idle keep-alive connections, the number of requests
+ * currently in flight (used for balancing), and its passive health state. An upstream that fails
+ * {@code ejectAfterFailures} times in a row is ejected from balancing for {@code ejectMillis}.
+ */
+public final class Upstream {
+    private static final Logger logger = LogManager.getLogger(Upstream.class);
+    private static final int MAX_IDLE_CONNECTIONS = 32;
+    // idle connections older than this are likely to be closed by the backend, so they are not reused
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final String host;
+    private final int port;
+    private volatile int connectTimeoutMillis;
+    private volatile int readTimeoutMillis;
+    private final int ejectAfterFailures;
+    private final long ejectNanos;
+    private final Deque<Connection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long ejectedUntil;
+
+    public Upstream(String address, int connectTimeoutMillis, int readTimeoutMillis,
+                    int ejectAfterFailures, long ejectMillis) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Upstream address must be host:port, got %s".formatted(address));
+        }
+        this.host = address.substring(0, colon);
+        this.port = Integer.parseInt(address.substring(colon + 1));
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.ejectNanos = TimeUnit.MILLISECONDS.toNanos(ejectMillis);
+        // nanoTime has an arbitrary origin, so "never ejected" has to be a point in its own past
+        this.ejectedUntil = System.nanoTime();
+    }
+
+    void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Takes a pooled connection if one is available, otherwise opens a new one.
+     */
+    Connection acquire() throws IOException {
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (System.nanoTime() - connection.idleSince < MAX_IDLE_NANOS && !connection.socket.isClosed()) {
+                connection.reused = true;
+                if (connection.socket.getSoTimeout() != readTimeoutMillis) {
+                    // the read timeout was changed at runtime
+                    connection.socket.setSoTimeout(readTimeoutMillis);
+                }
+                return connection;
+            }
+            connection.close();
+        }
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+        socket.setSoTimeout(readTimeoutMillis);
+        return new Connection(socket);
+    }
+
+    /**
+     * Returns a connection whose last response was fully consumed to the idle pool.
+     */
+    void release(Connection connection) {
+        connection.idleSince = System.nanoTime();
+        if (idle.size() < MAX_IDLE_CONNECTIONS) {
+            idle.offerFirst(connection);
+        } else {
+            connection.close();
+        }
+    }
+
+    boolean isHealthy() {
+        return System.nanoTime() - ejectedUntil >= 0;
+    }
+
+    int outstanding() {
+        return outstanding.get();
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+    }
+
+    void end() {
+        outstanding.decrementAndGet();
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= ejectAfterFailures) {
+            ejectedUntil = System.nanoTime() + ejectNanos;
+            consecutiveFailures.set(0);
+            logger.warn("Ejecting upstream {} for {} ms", this, TimeUnit.NANOSECONDS.toMillis(ejectNanos));
+            Connection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                connection.close();
+            }
+        }
+    }
+
+    String hostHeader() {
+        return port == 80 ? host : "%s:%d".formatted(host, port);
+    }
+
+    void closeIdle() {
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "%s:%d".formatted(host, port);
+    }
+
+    static final class Connection {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        boolean reused;
+        long idleSince;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Error closing upstream connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.ericduncandev.HTTP.sse;
+
+import com.ericduncandev.HTTP.core.ServerConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Feeds Server-Sent Events to every subscriber from one {@link EventRing}, on a single selector thread.
+ * Subscribers are non-blocking sockets that hold only a cursor into the ring and the unsent part of
+ * the frames in flight, so an idle subscriber costs no thread and little memory however many there are.
+ * <p>
+ * A subscriber is dropped when its cursor falls behind the oldest event the ring still holds, or when
+ * its socket accepts no data for {@code eventSlowConsumerMillis}; a slow reader never holds back the
+ * others. Idle subscribers get a comment line every {@code eventKeepAliveMillis}, which keeps
+ * intermediaries from timing the stream out and reveals peers that have gone away.
+ */
+public final class EventBroadcaster implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(EventBroadcaster.class);
+    private static final int MAX_GATHER = 16;
+    private static final ByteBuffer KEEP_ALIVE = ByteBuffer.wrap(":\n\n".getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+
+    private final EventRing ring;
+    private final int maxSubscribers;
+    private final long keepAliveNanos;
+    private final long slowConsumerNanos;
+    private final Selector selector;
+    private final Queue<Subscriber> registrations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public EventBroadcaster(ServerConfig config) {
+        this.ring = new EventRing(config.getEventRingCapacity());
+        this.maxSubscribers = config.getEventMaxSubscribers();
+        this.keepAliveNanos = TimeUnit.MILLISECONDS.toNanos(config.getEventKeepAliveMillis());
+        this.slowConsumerNanos = TimeUnit.MILLISECONDS.toNanos(config.getEventSlowConsumerMillis());
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open the event stream selector", e);
+        }
+        this.dispatcher = Thread.ofPlatform().name("event-dispatch").daemon().start(this::run);
+    }
+
+    /**
+     * Publishes an event to every subscriber.
+     * @param event the event type, or null for the default "message" type
+     * @param data the payload, which may span several lines
+     * @return the event's ID, which clients send back in Last-Event-ID when they reconnect
+     */
+    public long publish(String event, String data) {
+        if (event != null && (event.indexOf('\n') >= 0 || event.indexOf('\r') >= 0)) {
+            throw new IllegalArgumentException("Event type must be a single line");
+        }
+        long id = ring.publish(event, data);
+        wakeup();
+        return id;
+    }
+
+    /**
+     * Reserves a subscriber slot, before the response head is sent.
+     * @return false if the maximum number of subscribers is already served
+     */
+    public boolean tryReserve() {
+        while (true) {
+            int current = subscribers.get();
+            if (current >= maxSubscribers) {
+                return false;
+            }
+            if (subscribers.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a slot reserved with {@link #tryReserve} that was not used for a subscription.
+     */
+    public void release() {
+        subscribers.decrementAndGet();
+    }
+
+    /**
+     * Hands a connection whose response head has been sent over to the dispatcher, which owns it from
+     * now on. Its slot must have been reserved with {@link #tryReserve}.
+     * @param lastEventId the Last-Event-ID the client reconnected with, or null for a new subscriber
+     */
+    public void subscribe(SocketChannel channel, String lastEventId) throws IOException {
+        channel.configureBlocking(false);
+        long cursor = ring.next();
+        if (lastEventId != null) {
+            try {
+                long resumeFrom = Long.parseLong(lastEventId.trim()) + 1;
+                // events the ring has dropped are lost to the client; it resumes from the oldest one kept
+                if (resumeFrom <= cursor) {
+                    cursor = Math.max(resumeFrom, cursor - ring.capacity() + 1);
+                }
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring malformed Last-Event-ID {}", lastEventId);
+            }
+        }
+        registrations.add(new Subscriber(channel, cursor));
+        wakeup();
+    }
+
+    private void wakeup() {
+        // one wakeup per dispatcher round is enough however many events are published
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    private void run() {
+        long tick = Math.max(TimeUnit.NANOSECONDS.toMillis(Math.min(keepAliveNanos, slowConsumerNanos)) / 4, 10);
+        while (running) {
+            try {
+                selector.select(tick);
+                wakeupPending.set(false);
+                register();
+                long now = System.nanoTime();
+                for (SelectionKey key : selector.keys()) {
+                    if (key.isValid()) {
+                        service(key, (Subscriber) key.attachment(), now);
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (IOException e) {
+                logger.error("Event dispatcher failed", e);
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in the event dispatcher", e);
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                close(key, (Subscriber) key.attachment());
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error closing the event stream selector", e);
+        }
+    }
+
+    private void register() {
+        Subscriber subscriber;
+        while ((subscriber = registrations.poll()) != null) {
+            try {
+                subscriber.channel.register(selector, SelectionKey.OP_READ, subscriber);
+                subscriber.lastSent = System.nanoTime();
+            } catch (ClosedChannelException e) {
+                subscribers.decrementAndGet();
+            }
+        }
+    }
+
+    private void service(SelectionKey key, Subscriber subscriber, long now) {
+        try {
+            if (key.isReadable() && !drainInput(subscriber)) {
+                close(key, subscriber);
+                return;
+            }
+            boolean wasIdle = subscriber.pendingCount == 0;
+            if (!fill(subscriber)) {
+                logger.info("Dropping event subscriber {} that fell more than {} events behind",
+                        subscriber.channel.getRemoteAddress(), ring.capacity());
+                drop(key, subscriber);
+                return;
+            }
+            if (subscriber.pendingCount == 0 && now - subscriber.lastSent >= keepAliveNanos) {
+                subscriber.pending[subscriber.pendingCount++] = KEEP_ALIVE.duplicate();
+            }
+            if (wasIdle) {
+                // a stall is timed from when there was first something to send
+                subscriber.stalledSince = now;
+            }
+            if (subscriber.pendingCount > 0) {
+                long written = subscriber.channel.write(subscriber.pending, 0, subscriber.pendingCount);
+                if (written > 0) {
+                    subscriber.lastSent = now;
+                    subscriber.stalledSince = now;
+                }
+                compact(subscriber);
+                fill(subscriber);
+            }
+            if (subscriber.pendingCount > 0) {
+                if (now - subscriber.stalledSince >= slowConsumerNanos) {
+                    logger.info("Dropping event subscriber {} that accepted no data for {} ms",
+                            subscriber.channel.getRemoteAddress(), TimeUnit.NANOSECONDS.toMillis(slowConsumerNanos));
+                    drop(key, subscriber);
+                    return;
+                }
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            logger.debug("Event subscriber went away: {}", e.getMessage());
+            close(key, subscriber);
+        }
+    }
+
+    // subscribers have nothing to send; reading only notices that they closed the connection
+    private boolean drainInput(Subscriber subscriber) throws IOException {
+        ByteBuffer discard = ByteBuffer.allocate(256);
+        int read;
+        while ((read = subscriber.channel.read(discard)) > 0) {
+            discard.clear();
+        }
+        return read != -1;
+    }
+
+    // queues frames up to the gather limit; false if the subscriber's next frame has been overwritten
+    private boolean fill(Subscriber subscriber) {
+        long head = ring.next();
+        while (subscriber.pendingCount < MAX_GATHER && subscriber.cursor < head) {
+            ByteBuffer frame = ring.frame(subscriber.cursor);
+            if (frame == null) {
+                return false;
+            }
+            subscriber.pending[subscriber.pendingCount++] = frame;
+            subscriber.cursor++;
+        }
+        return true;
+    }
+
+    private static void compact(Subscriber subscriber) {
+        int kept = 0;
+        for (int i = 0; i < subscriber.pendingCount; i++) {
+            if (subscriber.pending[i].hasRemaining()) {
+                subscriber.pending[kept++] = subscriber.pending[i];
+            }
+        }
+        for (int i = kept; i < subscriber.pendingCount; i++) {
+            subscriber.pending[i] = null;
+        }
+        subscriber.pendingCount = kept;
+    }
+
+    private void drop(SelectionKey key, Subscriber subscriber) {
+        dropped.increment();
+        close(key, subscriber);
+    }
+
+    private void close(SelectionKey key, Subscriber subscriber) {
+        key.cancel();
+        try {
+            subscriber.channel.close();
+        } catch (IOException e) {
+            logger.debug("Error closing event subscriber", e);
+        }
+        subscribers.decrementAndGet();
+    }
+
+    /**
+     * @return the number of subscribers currently served
+     */
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    /**
+     * @return how many subscribers have been dropped for falling behind
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            dispatcher.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Subscriber {
+        private final SocketChannel channel;
+        private final ByteBuffer[] pending = new ByteBuffer[MAX_GATHER];
+        private int pendingCount;
+        private long cursor;
+        private long lastSent;
+        private long stalledSince;
+
+        private Subscriber(SocketChannel channel, long cursor) {
+            this.channel = channel;
+            this.cursor = cursor;
+        }
+    }
+}
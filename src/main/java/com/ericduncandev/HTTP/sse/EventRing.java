@@ -0,0 +1,69 @@
+package com.ericduncandev.HTTP.sse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent events, each encoded once as a complete {@code text/event-stream}
+ * frame and shared read-only by every subscriber. Events are numbered from 0; a subscriber only keeps
+ * the number of the next event it needs, and finds out it has fallen too far behind when that event
+ * has been overwritten. Publishing is serialized; reading is lock-free.
+ */
+final class EventRing {
+    private final AtomicReferenceArray<Frame> frames;
+    private final int mask;
+    private volatile long next;
+
+    record Frame(long id, ByteBuffer bytes) {
+    }
+
+    EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.frames = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Encodes the event and makes it visible to readers.
+     * @param event the event type, or null for the default "message" type
+     * @param data the payload; each of its lines becomes a data field
+     * @return the event's ID
+     */
+    synchronized long publish(String event, String data) {
+        long id = next;
+        StringBuilder frame = new StringBuilder(32 + data.length());
+        frame.append("id: ").append(id).append('\n');
+        if (event != null) {
+            frame.append("event: ").append(event).append('\n');
+        }
+        for (String line : data.split("\r\n|\r|\n", -1)) {
+            frame.append("data: ").append(line).append('\n');
+        }
+        frame.append('\n');
+        ByteBuffer bytes = ByteBuffer.wrap(frame.toString().getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        frames.set((int) (id & mask), new Frame(id, bytes));
+        // the frame is stored before the count that lets readers see it
+        next = id + 1;
+        return id;
+    }
+
+    /**
+     * @return the ID the next published event will get
+     */
+    long next() {
+        return next;
+    }
+
+    /**
+     * @return the frame with the ID, positioned at its first byte, or null if it has been overwritten
+     */
+    ByteBuffer frame(long id) {
+        Frame frame = frames.get((int) (id & mask));
+        return frame != null && frame.id() == id ? frame.bytes().duplicate() : null;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,202 @@
+package com.ericduncandev.HTTP.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batches fsyncs of concurrently completing writes into group commits.
+ * Writers hand over an open {@link AsynchronousFileChannel} and get a future that completes once the
+ * file data and its directory entry are on stable storage. A single flusher thread collects requests
+ * for up to {@code intervalMillis} (or until {@code maxBatch} are pending), syncs every file, and then
+ * syncs each distinct parent directory once for the whole batch instead of once per file.
+ */
+public final class GroupCommitter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(GroupCommitter.class);
+
+    private final long intervalNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private volatile boolean running = true;
+
+    public GroupCommitter(long intervalMillis, int maxBatch) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.maxBatch = maxBatch;
+        this.flusher = Thread.ofPlatform().name("group-commit").daemon().start(this::run);
+    }
+
+    /**
+     * Writes the whole buffer at the given position and returns the number of bytes written.
+     */
+    public static int writeFully(AsynchronousFileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                total += channel.write(buffer, position + total).get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing", e);
+        }
+        return total;
+    }
+
+    /**
+     * Requests that the channel's data and the given directory be made durable in the next group commit.
+     * The channel must stay open until the returned future completes.
+     */
+    public CompletableFuture<Void> commit(AsynchronousFileChannel channel, Path directory) {
+        Pending pending = new Pending(channel, directory, new CompletableFuture<>());
+        if (!running) {
+            pending.done().completeExceptionally(new IOException("Group committer is closed"));
+            return pending.done();
+        }
+        queue.add(pending);
+        return pending.done();
+    }
+
+    /**
+     * Requests that the directory's entries, such as a file just renamed into it, be made durable in the
+     * next group commit.
+     */
+    public CompletableFuture<Void> commit(Path directory) {
+        return commit(null, directory);
+    }
+
+    /**
+     * Convenience wrapper that blocks until the commit is durable.
+     * @param directory the directory to sync as well, or null for the file data only
+     */
+    public void commitAndWait(AsynchronousFileChannel channel, Path directory) throws IOException {
+        await(commit(channel, directory));
+    }
+
+    /**
+     * Convenience wrapper that blocks until the directory's entries are durable.
+     */
+    public void commitAndWait(Path directory) throws IOException {
+        await(commit(null, directory));
+    }
+
+    private static void await(CompletableFuture<Void> commit) throws IOException {
+        try {
+            commit.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for commit", e);
+        }
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getCommitCount() {
+        return commits.sum();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + intervalNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        Map<Path, List<Pending>> byDirectory = new HashMap<>();
+        for (Pending pending : batch) {
+            try {
+                if (pending.channel() != null) {
+                    pending.channel().force(false);
+                }
+                byDirectory.computeIfAbsent(pending.directory(), d -> new ArrayList<>()).add(pending);
+            } catch (IOException e) {
+                logger.error("Failed to sync upload data", e);
+                pending.done().completeExceptionally(e);
+            }
+        }
+
+        for (Map.Entry<Path, List<Pending>> entry : byDirectory.entrySet()) {
+            IOException failure = null;
+            if (entry.getKey() != null) {
+                try (FileChannel directory = FileChannel.open(entry.getKey(), StandardOpenOption.READ)) {
+                    directory.force(true);
+                } catch (IOException e) {
+                    logger.error("Failed to sync directory {}", entry.getKey(), e);
+                    failure = e;
+                }
+            }
+            for (Pending pending : entry.getValue()) {
+                if (failure == null) {
+                    pending.done().complete(null);
+                } else {
+                    pending.done().completeExceptionally(failure);
+                }
+            }
+        }
+
+        batches.increment();
+        commits.add(batch.size());
+        logger.trace("Group commit of {} writes across {} directories", batch.size(), byDirectory.size());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending orphan;
+        while ((orphan = queue.poll()) != null) {
+            orphan.done().completeExceptionally(new IOException("Group committer is closed"));
+        }
+    }
+
+    private record Pending(AsynchronousFileChannel channel, Path directory, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,353 @@
+package com.ericduncandev.HTTP.storage;
+
+import com.ericduncandev.HTTP.model.RequestBody;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine for uploads that survive dropped connections.
+ * A session sizes its file to the announced length up front; chunks are then written into it at the
+ * offset the client claims, which must match the offset already received. The file is sparse, so disk
+ * space is only taken as chunks arrive and a chunk can still fail for lack of it. Once the last byte arrives
+ * the file is moved into its target in one atomic step, so readers never see a partial upload.
+ * <p>
+ * Chunk data is forced to disk before its new offset is journaled, so the offset reported after a
+ * restart never covers bytes that were lost. Sessions without a chunk for {@code expiryMillis} are
+ * removed by a background sweep.
+ */
+public final class ResumableUploads implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ResumableUploads.class);
+    private static final String JOURNAL = "journal";
+    private static final String PART_SUFFIX = ".part";
+
+    private final Path directory;
+    private final long maxLength;
+    private final long expiryMillis;
+    private final UploadJournal journal;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService sweeper;
+
+    public ResumableUploads(Path directory, long maxLength, long expiryMillis) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxLength = maxLength;
+        this.expiryMillis = expiryMillis;
+        this.journal = new UploadJournal(this.directory.resolve(JOURNAL));
+        try {
+            Files.createDirectories(this.directory);
+            recover();
+        } catch (IOException e) {
+            throw new UploadStore.StorageException("Failed to initialize resumable uploads at %s".formatted(this.directory), e);
+        }
+        long sweepMillis = Math.clamp(expiryMillis / 10, 1_000, 60_000);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("upload-expiry").daemon().factory());
+        sweeper.scheduleWithFixedDelay(this::expire, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // sessions come back from the journal; part files it does not know of are left from a crash mid-creation
+    private void recover() throws IOException {
+        for (UploadJournal.Entry entry : journal.open()) {
+            Path part = partFile(entry.id());
+            if (Files.isRegularFile(part)) {
+                sessions.put(entry.id(), new Session(entry.id(), entry.target(), entry.length(), part,
+                        entry.offset(), entry.lastActivityMillis()));
+            } else {
+                journal.removed(entry.id());
+            }
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(PART_SUFFIX) && !sessions.containsKey(name.substring(0, name.length() - PART_SUFFIX.length()))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        expire();
+        logger.info("Resumable uploads at {} recovered {} sessions", directory, sessions.size());
+    }
+
+    /**
+     * Opens a session for an upload of the given length, creating its file at that size.
+     * @param target where the upload is placed once complete, as a request path
+     * @throws IllegalArgumentException if the length is negative or above the maximum
+     */
+    public Session create(String target, long length) throws IOException {
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("Upload length must be between 0 and %d bytes".formatted(maxLength));
+        }
+        byte[] idBytes = new byte[16];
+        random.nextBytes(idBytes);
+        // the ID is the only credential for appending to the session, so it is unguessable
+        String id = HexFormat.of().formatHex(idBytes);
+        Path part = partFile(id);
+        // only sets the size; writing out zeros to claim the space would cost as much I/O as the upload itself
+        try (RandomAccessFile file = new RandomAccessFile(part.toFile(), "rw")) {
+            file.setLength(length);
+        }
+        long now = System.currentTimeMillis();
+        Session session = new Session(id, target, length, part, 0, now);
+        // a compaction between the record and the registration would rewrite the journal without the session
+        synchronized (journal) {
+            try {
+                journal.created(id, target, length, now);
+            } catch (IOException e) {
+                Files.deleteIfExists(part);
+                throw e;
+            }
+            sessions.put(id, session);
+        }
+        logger.info("Opened resumable upload {} of {} bytes for {}", id, length, target);
+        return session;
+    }
+
+    /**
+     * @return the live session with the ID, or null if there is none or it has expired
+     */
+    public Session get(String id) {
+        Session session = sessions.get(id);
+        if (session != null && expiresAtMillis(session) < System.currentTimeMillis()) {
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Writes a chunk at the session's current offset.
+     * @param offset the offset the client believes the upload is at
+     * @return the offset after the chunk
+     * @throws UploadConflictException if the offset is not the session's, or another chunk is being written
+     * @throws IllegalArgumentException if the chunk runs past the announced length
+     */
+    public long append(Session session, long offset, RequestBody chunk) throws IOException {
+        if (!session.lock.tryLock()) {
+            throw new UploadConflictException("Another chunk is being written to upload %s".formatted(session.id));
+        }
+        try {
+            if (!sessions.containsKey(session.id)) {
+                throw new UploadConflictException("Upload %s is no longer open".formatted(session.id));
+            }
+            if (offset != session.offset) {
+                throw new UploadConflictException("Upload %s is at offset %d, not %d".formatted(session.id, session.offset, offset));
+            }
+            if (chunk.length() > session.length - offset) {
+                throw new IllegalArgumentException("Chunk of %d bytes runs past the upload length of %d"
+                        .formatted(chunk.length(), session.length));
+            }
+            try (FileChannel channel = FileChannel.open(session.part, StandardOpenOption.WRITE)) {
+                channel.position(offset);
+                chunk.transferTo(channel);
+                channel.force(false);
+            }
+            long now = System.currentTimeMillis();
+            // likewise, a compaction must see the offset that was just journaled
+            synchronized (journal) {
+                journal.advanced(session.id, offset + chunk.length(), now);
+                session.offset = offset + chunk.length();
+                session.lastActivityMillis = now;
+            }
+            return session.offset;
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Moves a complete upload into place, replacing any file there, and closes the session. Does nothing
+     * if the session was already closed, e.g. by a concurrent request that completed it first.
+     * @throws IllegalStateException if bytes are still missing
+     */
+    public void finish(Session session, Path destination) throws IOException {
+        session.lock.lock();
+        try {
+            if (!sessions.containsKey(session.id)) {
+                return;
+            }
+            if (!session.isComplete()) {
+                throw new IllegalStateException("Upload %s is missing %d bytes".formatted(session.id, session.length - session.offset));
+            }
+            try {
+                Files.move(session.part, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // the target is on another file system: copy next to it, then swap it in
+                Path temp = Files.createTempFile(destination.toAbsolutePath().getParent(), ".upload", ".tmp");
+                try {
+                    Files.copy(session.part, temp, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(temp, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                Files.deleteIfExists(session.part);
+            }
+            close(session);
+            logger.info("Completed resumable upload {} into {}", session.id, destination);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Abandons the session and deletes what it received.
+     */
+    public void terminate(Session session) throws IOException {
+        session.lock.lock();
+        try {
+            Files.deleteIfExists(session.part);
+            close(session);
+            logger.info("Terminated resumable upload {}", session.id);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private void close(Session session) throws IOException {
+        if (sessions.remove(session.id) != null) {
+            journal.removed(session.id);
+            compactIfNeeded();
+        }
+    }
+
+    // holding the journal's lock keeps records from being appended between the snapshot and the rewrite;
+    // create and append hold it from their record until the session reflects it
+    private void compactIfNeeded() throws IOException {
+        synchronized (journal) {
+            if (journal.needsCompaction(sessions.size())) {
+                List<UploadJournal.Entry> live = new ArrayList<>(sessions.size());
+                for (Session session : sessions.values()) {
+                    live.add(new UploadJournal.Entry(session.id, session.target, session.length, session.offset,
+                            session.lastActivityMillis));
+                }
+                journal.compact(live);
+            }
+        }
+    }
+
+    // sessions being written to are skipped; they are not idle
+    private void expire() {
+        long now = System.currentTimeMillis();
+        for (Session session : sessions.values()) {
+            if (expiresAtMillis(session) < now && session.lock.tryLock()) {
+                try {
+                    Files.deleteIfExists(session.part);
+                    close(session);
+                    logger.info("Expired resumable upload {} for {} at {} of {} bytes", session.id, session.target,
+                            session.offset, session.length);
+                } catch (IOException e) {
+                    logger.warn("Failed to expire resumable upload {}: {}", session.id, e.getMessage());
+                } finally {
+                    session.lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return when the session expires unless another chunk arrives, in epoch milliseconds
+     */
+    public long expiresAtMillis(Session session) {
+        return session.lastActivityMillis + expiryMillis;
+    }
+
+    private Path partFile(String id) {
+        return directory.resolve(id + PART_SUFFIX);
+    }
+
+    public long getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return the directory holding the journal and the partial uploads, which must never be served
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getOpenSessions() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close upload journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * One upload in progress. The offset only ever grows, and always counts bytes that are on disk.
+     */
+    public static final class Session {
+        private final String id;
+        private final String target;
+        private final long length;
+        private final Path part;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long offset;
+        private volatile long lastActivityMillis;
+
+        private Session(String id, String target, long length, Path part, long offset, long lastActivityMillis) {
+            this.id = id;
+            this.target = target;
+            this.length = length;
+            this.part = part;
+            this.offset = offset;
+            this.lastActivityMillis = lastActivityMillis;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        /**
+         * @return the request path the upload is placed at once complete
+         */
+        public String target() {
+            return target;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        public long offset() {
+            return offset;
+        }
+
+        public boolean isComplete() {
+            return offset == length;
+        }
+    }
+
+    /**
+     * Thrown when a chunk does not continue the upload where it stands.
+     */
+    public static class UploadConflictException extends IOException {
+        public UploadConflictException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.ericduncandev.HTTP.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append-only log of resumable upload sessions: a header, then one small record per session creation,
+ * accepted chunk and removal. Each record is forced to disk before the change it describes is
+ * acknowledged, so sessions and their offsets survive a restart. Replaying the log keeps the last state
+ * of every session; once most records describe sessions that are gone, the log is rewritten to hold
+ * one record per live session.
+ */
+final class UploadJournal implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UploadJournal.class);
+    private static final int MAGIC = 0x52555044; // "RUPD"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final byte CREATED = 1;
+    private static final byte ADVANCED = 2;
+    private static final byte REMOVED = 3;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+
+    private final Path file;
+    private FileChannel channel;
+    private long records;
+
+    /**
+     * State recovered for one session.
+     */
+    record Entry(String id, String target, long length, long offset, long lastActivityMillis) {
+    }
+
+    UploadJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the journal, dropping a record torn by a crash, and opens it for appending.
+     * @return the sessions that were live when the journal was last written, in creation order
+     */
+    synchronized Collection<Entry> open() throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        long valid = 0;
+        if (Files.isRegularFile(file)) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            try {
+                if (in.getInt() == MAGIC && in.getShort() == VERSION) {
+                    valid = in.position();
+                    while (in.hasRemaining()) {
+                        replay(in, entries);
+                        valid = in.position();
+                        records++;
+                    }
+                } else {
+                    logger.warn("Ignoring upload journal {} with an unknown format", file);
+                }
+            } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+                // only the tail can be torn, since every record is forced before the next is written
+                logger.warn("Discarding the unreadable end of {}: {}", file, e.toString());
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (valid == 0) {
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION).flip(), 0);
+            valid = HEADER_SIZE;
+        }
+        channel.truncate(valid);
+        channel.position(valid);
+        return entries.values();
+    }
+
+    private static void replay(ByteBuffer in, Map<String, Entry> entries) throws IOException {
+        byte type = in.get();
+        String id = readString(in);
+        switch (type) {
+            case CREATED -> {
+                String target = readString(in);
+                long length = in.getLong();
+                long at = in.getLong();
+                entries.put(id, new Entry(id, target, length, 0, at));
+            }
+            case ADVANCED -> {
+                long offset = in.getLong();
+                long at = in.getLong();
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    entries.put(id, new Entry(id, entry.target(), entry.length(), offset, at));
+                }
+            }
+            case REMOVED -> entries.remove(id);
+            default -> throw new IOException("Unknown journal record type %d".formatted(type));
+        }
+    }
+
+    synchronized void created(String id, String target, long length, long atMillis) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeByte(CREATED);
+        writeString(out, id);
+        writeString(out, target);
+        out.writeLong(length);
+        out.writeLong(atMillis);
+        append(record);
+    }
+
+    synchronized void advanced(String id, long offset, long atMillis) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(48);
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeByte(ADVANCED);
+        writeString(out, id);
+        out.writeLong(offset);
+        out.writeLong(atMillis);
+        append(record);
+    }
+
+    synchronized void removed(String id) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(40);
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeByte(REMOVED);
+        writeString(out, id);
+        append(record);
+    }
+
+    private void append(ByteArrayOutputStream record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        records++;
+    }
+
+    /**
+     * @return whether enough records describe finished or advanced-past states to make a rewrite worthwhile
+     */
+    synchronized boolean needsCompaction(int liveSessions) {
+        return records > COMPACT_MIN_RECORDS && records > 4L * liveSessions;
+    }
+
+    /**
+     * Replaces the journal with one that records only the given sessions, atomically.
+     */
+    synchronized void compact(Collection<Entry> live) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, ".journal", ".tmp");
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream(HEADER_SIZE + live.size() * 96);
+            DataOutputStream out = new DataOutputStream(content);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            for (Entry entry : live) {
+                out.writeByte(CREATED);
+                writeString(out, entry.id());
+                writeString(out, entry.target());
+                out.writeLong(entry.length());
+                out.writeLong(entry.lastActivityMillis());
+                if (entry.offset() > 0) {
+                    out.writeByte(ADVANCED);
+                    writeString(out, entry.id());
+                    out.writeLong(entry.offset());
+                    out.writeLong(entry.lastActivityMillis());
+                }
+            }
+            try (FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content.toByteArray());
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+            }
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // the rewrite only replaces the old log on disk once the directory entry is durable too
+            try (FileChannel parent = FileChannel.open(directory, StandardOpenOption.READ)) {
+                parent.force(true);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+            // whichever log is in place after a failure, appends must keep going to it
+            if (!channel.isOpen()) {
+                channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+        }
+        records = live.size();
+        logger.debug("Compacted upload journal {} to {} sessions", file, live.size());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // strings are a 2-byte length followed by UTF-8, as in the webRoot manifest
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IOException("Value too long for the journal: %s".formatted(value));
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xffff;
+        String value = StandardCharsets.UTF_8.decode(in.slice(in.position(), length)).toString();
+        in.position(in.position() + length);
+        return value;
+    }
+}
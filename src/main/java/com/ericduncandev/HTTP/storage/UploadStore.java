@@ -0,0 +1,297 @@
+package com.ericduncandev.HTTP.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine for uploaded content.
+ * Every stored object gets a collision-free ID without probing the file system: either a per-node
+ * counter seeded from the startup time, or, with deduplication enabled, the SHA-256 of the content
+ * computed while it is being written. Objects are spread over two levels of hash-sharded
+ * subdirectories (256 x 256) so no directory grows without bound, and an in-memory index maps IDs
+ * to paths for O(1) lookup.
+ * <p>
+ * When constructed with a {@link GroupCommitter}, writes go through an {@link AsynchronousFileChannel}
+ * and {@code store} only returns once the object is durable.
+ */
+public final class UploadStore {
+    private static final Logger logger = LogManager.getLogger(UploadStore.class);
+    private static final String TEMP_DIR = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tempDir;
+    private final boolean deduplicate;
+    private final GroupCommitter committer;
+    private final String nodePrefix;
+    private final AtomicLong counter = new AtomicLong();
+    private final Map<String, Path> index = new ConcurrentHashMap<>();
+    // deduplicated IDs whose content is being placed right now, completed once it is in the index, so
+    // an upload of the same content that waits on one also waits for the object to be durable
+    private final Map<String, CompletableFuture<Void>> placing = new ConcurrentHashMap<>();
+    // second-level shard directories whose own entries are known to be durable
+    private final Set<Path> durableShards = ConcurrentHashMap.newKeySet();
+
+    public UploadStore(Path root, boolean deduplicate) {
+        this(root, deduplicate, null);
+    }
+
+    public UploadStore(Path root, boolean deduplicate, GroupCommitter committer) {
+        this.root = root.toAbsolutePath().normalize();
+        this.tempDir = this.root.resolve(TEMP_DIR);
+        this.deduplicate = deduplicate;
+        this.committer = committer;
+        this.nodePrefix = Long.toString(System.currentTimeMillis(), 36);
+        try {
+            Files.createDirectories(tempDir);
+            rebuildIndex();
+        } catch (IOException e) {
+            throw new StorageException("Failed to initialize upload store at %s".formatted(this.root), e);
+        }
+    }
+
+    /**
+     * Stores the content under a new ID, or returns the existing object when deduplication is
+     * enabled and identical content has been stored before.
+     */
+    public StoredFile store(String originalName, byte[] content) throws IOException {
+        if (committer != null) {
+            return storeDurably(originalName, new ByteArrayInputStream(content));
+        }
+        // content already in memory is written as it is, not copied through a stream buffer
+        MessageDigest digest = newDigest();
+        digest.update(content);
+        Path temp = Files.createTempFile(tempDir, "upload", ".part");
+        try {
+            Files.write(temp, content);
+            return place(originalName, temp, null, content.length, digest);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    public StoredFile store(String originalName, InputStream content) throws IOException {
+        if (committer != null) {
+            return storeDurably(originalName, content);
+        }
+        MessageDigest digest = newDigest();
+        Path temp = Files.createTempFile(tempDir, "upload", ".part");
+        try {
+            long size = 0;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            return place(originalName, temp, null, size, digest);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // the channel stays open across the move so the object's data can be forced before it is renamed into place
+    private StoredFile storeDurably(String originalName, InputStream content) throws IOException {
+        MessageDigest digest = newDigest();
+        Path temp = Files.createTempFile(tempDir, "upload", ".part");
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(temp, StandardOpenOption.WRITE)) {
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += GroupCommitter.writeFully(channel, ByteBuffer.wrap(buffer, 0, read), size);
+            }
+            return place(originalName, temp, channel, size, digest);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // with a channel, the object is only indexed, and so only found by lookups and deduplication, once it is durable
+    private StoredFile place(String originalName, Path temp, AsynchronousFileChannel channel, long size,
+                             MessageDigest digest) throws IOException {
+        String hash = HexFormat.of().formatHex(digest.digest());
+        if (!deduplicate) {
+            // counter IDs are never reused, so nothing else can be placed at this target
+            return move(originalName, nextId(), temp, channel, size, hash);
+        }
+        String id = hash;
+        while (true) {
+            Path existing = index.get(id);
+            if (existing != null) {
+                logger.debug("Upload {} deduplicated against {}", originalName, id);
+                Files.delete(temp);
+                return new StoredFile(id, existing, size, hash, true);
+            }
+            // a rename silently replaces its target, and identical content with another extension would
+            // not even share one, so concurrent uploads of the same content are kept apart by this claim
+            CompletableFuture<Void> claim = new CompletableFuture<>();
+            CompletableFuture<Void> current = placing.putIfAbsent(id, claim);
+            if (current == null) {
+                try {
+                    // the previous owner may have finished between the lookup and the claim
+                    if (index.containsKey(id)) {
+                        continue;
+                    }
+                    return move(originalName, id, temp, channel, size, hash);
+                } catch (IOException | RuntimeException e) {
+                    claim.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    placing.remove(id, claim);
+                    claim.complete(null);
+                }
+            }
+            try {
+                current.join();
+            } catch (CompletionException | CancellationException e) {
+                // the other upload failed to place its copy, so this one tries with its own
+                logger.debug("Concurrent upload of {} failed, placing {} instead", id, originalName);
+            }
+        }
+    }
+
+    private StoredFile move(String originalName, String id, Path temp, AsynchronousFileChannel channel, long size,
+                            String hash) throws IOException {
+        Path target = pathFor(id, extensionOf(originalName));
+        Path directory = target.getParent();
+        if (channel == null) {
+            Files.createDirectories(directory);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            // the data must be on disk before the rename exposes it, and the rename before the object is indexed
+            committer.commitAndWait(channel, null);
+            createShardDurably(directory);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            committer.commitAndWait(directory);
+        }
+        index.put(id, target);
+        logger.debug("Stored upload {} as {} at {}", originalName, id, target);
+        return new StoredFile(id, target, size, hash, false);
+    }
+
+    // a new shard directory is only durable once the directories holding its entry have been synced too
+    private void createShardDurably(Path directory) throws IOException {
+        if (durableShards.contains(directory)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        committer.commitAndWait(root);
+        committer.commitAndWait(directory.getParent());
+        durableShards.add(directory);
+    }
+
+    /**
+     * @return the path of the stored object, or null if the ID is unknown
+     */
+    public Path lookup(String id) {
+        return index.get(id);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the directory holding uploads still being written, which must never be served
+     */
+    public Path getTempDirectory() {
+        return tempDir;
+    }
+
+    private String nextId() {
+        return nodePrefix + '-' + Long.toString(counter.incrementAndGet(), 36);
+    }
+
+    private Path pathFor(String id, String extension) {
+        int hash = id.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        String first = Integer.toHexString((hash >>> 8 & 0xff) | 0x100).substring(1);
+        String second = Integer.toHexString((hash & 0xff) | 0x100).substring(1);
+        return root.resolve(first).resolve(second).resolve(id + extension);
+    }
+
+    private static String extensionOf(String name) {
+        if (name == null) {
+            return "";
+        }
+        int dotIndex = name.lastIndexOf('.');
+        // keep only simple extensions so client names can never steer the stored path
+        if (dotIndex <= 0 || dotIndex < name.length() - 9) {
+            return "";
+        }
+        String extension = name.substring(dotIndex);
+        for (int i = 1; i < extension.length(); i++) {
+            if (!Character.isLetterOrDigit(extension.charAt(i))) {
+                return "";
+            }
+        }
+        return extension;
+    }
+
+    private void rebuildIndex() throws IOException {
+        try (Stream<Path> leftovers = Files.list(tempDir)) {
+            for (Path leftover : (Iterable<Path>) leftovers::iterator) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        // dot directories such as .tmp and .resumable hold content that is still being uploaded
+        try (Stream<Path> files = Files.find(root, 3, (path, attrs) -> attrs.isRegularFile()
+                && !root.relativize(path).getName(0).toString().startsWith("."))) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                int dotIndex = name.lastIndexOf('.');
+                index.put(dotIndex > 0 ? name.substring(0, dotIndex) : name, path);
+            });
+        }
+        logger.info("Upload store at {} indexed {} objects", root, index.size());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record StoredFile(String id, Path path, long size, String digest, boolean deduplicated) {
+    }
+
+    public static class StorageException extends RuntimeException {
+        public StorageException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.ericduncandev.HTTP.tls;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ByteChannel} that speaks TLS over a blocking socket through an {@link SSLEngine}.
+ * Decoupling the record layer from the socket streams lets TLS connections reuse everything that
+ * already works on channels: the parser reads through {@code Channels.newInputStream}, and responses
+ * (including memory-mapped bodies) are written with the same {@code writeTo(channel)} path.
+ * Network reads go through the socket's input stream so socket timeouts keep applying.
+ * <p>
+ * One thread may read while another writes, as HTTP/2 connections do. Reading can itself wrap, to
+ * answer post-handshake messages such as a TLS 1.3 key update, so every wrap and the socket write of
+ * its record happen under one lock.
+ */
+public final class TLSChannel implements ByteChannel {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel socket;
+    private final InputStream rawIn;
+    private final SSLEngine engine;
+    private final TLSMetrics metrics;
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+    // guards netOut, engine.wrap and writes to the socket
+    private final ReentrantLock wrapLock = new ReentrantLock();
+    private volatile boolean closed;
+
+    public TLSChannel(SocketChannel socket, SSLEngine engine, TLSMetrics metrics) throws IOException {
+        this.socket = socket;
+        this.rawIn = socket.socket().getInputStream();
+        this.engine = engine;
+        this.metrics = metrics;
+        SSLSession session = engine.getSession();
+        this.netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+        this.appIn.flip();
+    }
+
+    /**
+     * Runs the TLS handshake to completion and records it in the metrics.
+     */
+    public void handshake() throws IOException {
+        long started = System.currentTimeMillis();
+        try {
+            engine.beginHandshake();
+            processHandshake();
+        } catch (IOException e) {
+            metrics.recordFailure();
+            throw e;
+        }
+        SSLSession session = engine.getSession();
+        // a resumed session was created by an earlier handshake
+        metrics.recordHandshake(session.getCreationTime() < started);
+    }
+
+    public String getApplicationProtocol() {
+        return engine.getApplicationProtocol();
+    }
+
+    public SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    private void processHandshake() throws IOException {
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_WRAP -> wrap(EMPTY);
+                case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+                    if (unwrap() == -1) {
+                        throw new EOFException("Connection closed during TLS handshake");
+                    }
+                }
+                case NEED_TASK -> {
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                }
+                case FINISHED, NOT_HANDSHAKING -> {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!appIn.hasRemaining()) {
+            appIn.clear();
+            try {
+                while (appIn.position() == 0) {
+                    if (unwrap() == -1) {
+                        return -1;
+                    }
+                    if (engine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+                        // post-handshake messages such as key updates
+                        processHandshake();
+                    }
+                }
+            } finally {
+                appIn.flip();
+            }
+        }
+        int count = Math.min(appIn.remaining(), dst.remaining());
+        ByteBuffer slice = appIn.slice(appIn.position(), count);
+        dst.put(slice);
+        appIn.position(appIn.position() + count);
+        return count;
+    }
+
+    /**
+     * Unwraps one record from the network into appIn (in write mode), reading more bytes as needed.
+     * @return -1 once the peer has closed the connection, otherwise 0
+     */
+    private int unwrap() throws IOException {
+        while (true) {
+            netIn.flip();
+            SSLEngineResult result;
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                netIn.compact();
+            }
+            switch (result.getStatus()) {
+                case OK -> {
+                    return 0;
+                }
+                case CLOSED -> {
+                    return -1;
+                }
+                case BUFFER_OVERFLOW -> appIn = grow(appIn, engine.getSession().getApplicationBufferSize());
+                case BUFFER_UNDERFLOW -> {
+                    if (netIn.remaining() == 0) {
+                        netIn = grow(netIn, engine.getSession().getPacketBufferSize());
+                    }
+                    int read = rawIn.read(netIn.array(), netIn.arrayOffset() + netIn.position(), netIn.remaining());
+                    if (read == -1) {
+                        engine.closeInbound();
+                        return -1;
+                    }
+                    netIn.position(netIn.position() + read);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (closed) {
+            throw new IOException("TLS channel is closed");
+        }
+        int written = 0;
+        do {
+            written += wrap(src);
+        } while (src.hasRemaining());
+        return written;
+    }
+
+    // wraps one record from src and sends it; returns the number of plaintext bytes consumed
+    private int wrap(ByteBuffer src) throws IOException {
+        wrapLock.lock();
+        try {
+            return wrapRecord(src);
+        } finally {
+            wrapLock.unlock();
+        }
+    }
+
+    private int wrapRecord(ByteBuffer src) throws IOException {
+        while (true) {
+            netOut.clear();
+            SSLEngineResult result = engine.wrap(src, netOut);
+            switch (result.getStatus()) {
+                case OK, CLOSED -> {
+                    netOut.flip();
+                    while (netOut.hasRemaining()) {
+                        socket.write(netOut);
+                    }
+                    if (result.getStatus() == SSLEngineResult.Status.CLOSED && result.bytesConsumed() == 0
+                            && src.hasRemaining()) {
+                        throw new SSLException("TLS engine closed while writing");
+                    }
+                    return result.bytesConsumed();
+                }
+                case BUFFER_OVERFLOW -> netOut = ByteBuffer.allocate(
+                        Math.max(netOut.capacity() * 2, engine.getSession().getPacketBufferSize()));
+                case BUFFER_UNDERFLOW -> throw new SSLException("Unexpected buffer underflow while wrapping");
+            }
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int minimum) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, minimum));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed && socket.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // taken here too, so the close_notify never lands in the middle of a record another thread is sending
+        wrapLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            engine.closeOutbound();
+            while (!engine.isOutboundDone()) {
+                wrapRecord(EMPTY);
+            }
+        } catch (IOException e) {
+            // the peer may already be gone; the socket is closed regardless
+        } finally {
+            wrapLock.unlock();
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ericduncandev.HTTP.tls;
+
+import com.ericduncandev.HTTP.core.ServerConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+/**
+ * Builds the server-side TLS configuration from {@link ServerConfig}: the keystore, the session cache
+ * used for session-ID resumption, stateless session tickets, protocol and cipher suite selection,
+ * and ALPN.
+ * <p>
+ * The JDK has no per-context switch for session tickets, only the JVM-wide system property
+ * {@value #SESSION_TICKET_PROPERTY}, which it reads once when its TLS stack initializes and which
+ * defaults to enabled. Disabling tickets therefore sets that property, affecting every TLS endpoint in
+ * the JVM, and only takes effect if this is the first TLS use in the process. A value given on the
+ * command line always wins over the configuration.
+ */
+public final class TLSContextFactory {
+    private static final Logger logger = LogManager.getLogger(TLSContextFactory.class);
+    private static final String SESSION_TICKET_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+
+    private final SSLContext sslContext;
+    private final String[] protocols;
+    private final String[] cipherSuites;
+    private final String[] applicationProtocols;
+
+    public TLSContextFactory(ServerConfig config) {
+        configureSessionTickets(config.isTlsSessionTickets());
+        try {
+            KeyStore keyStore = KeyStore.getInstance(config.getKeyStoreType());
+            char[] password = config.getKeyStorePassword().toCharArray();
+            try (InputStream in = Files.newInputStream(Path.of(config.getKeyStorePath()))) {
+                keyStore.load(in, password);
+            }
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, password);
+
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagers.getKeyManagers(), null, null);
+
+            SSLSessionContext sessions = sslContext.getServerSessionContext();
+            sessions.setSessionCacheSize(config.getTlsSessionCacheSize());
+            sessions.setSessionTimeout(config.getTlsSessionTimeoutSeconds());
+        } catch (IOException | GeneralSecurityException e) {
+            throw new TLSInitializationException("Failed to load keystore %s".formatted(config.getKeyStorePath()), e);
+        }
+        this.protocols = config.getTlsProtocols().toArray(String[]::new);
+        this.cipherSuites = config.getTlsCipherSuites().toArray(String[]::new);
+        this.applicationProtocols = config.getTlsApplicationProtocols().toArray(String[]::new);
+        logger.info("TLS configured with protocols {} and {} cipher suites", config.getTlsProtocols(),
+                cipherSuites.length == 0 ? "default" : cipherSuites.length);
+    }
+
+    private static void configureSessionTickets(boolean enabled) {
+        String configured = System.getProperty(SESSION_TICKET_PROPERTY);
+        if (configured == null) {
+            if (!enabled) {
+                System.setProperty(SESSION_TICKET_PROPERTY, "false");
+            }
+        } else if (Boolean.parseBoolean(configured) != enabled) {
+            logger.warn("-D{}={} overrides tlsSessionTickets={}", SESSION_TICKET_PROPERTY, configured, enabled);
+        }
+    }
+
+    public SSLEngine createEngine() {
+        SSLEngine engine = sslContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        SSLParameters parameters = engine.getSSLParameters();
+        if (protocols.length > 0) {
+            parameters.setProtocols(protocols);
+        }
+        if (cipherSuites.length > 0) {
+            parameters.setCipherSuites(cipherSuites);
+            parameters.setUseCipherSuitesOrder(true);
+        }
+        if (applicationProtocols.length > 0) {
+            parameters.setApplicationProtocols(applicationProtocols);
+        }
+        engine.setSSLParameters(parameters);
+        return engine;
+    }
+
+    public static class TLSInitializationException extends RuntimeException {
+        public TLSInitializationException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
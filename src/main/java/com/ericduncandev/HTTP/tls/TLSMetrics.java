@@ -0,0 +1,54 @@
+package com.ericduncandev.HTTP.tls;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for TLS handshakes on the HTTPS listener.
+ */
+public final class TLSMetrics {
+    private final LongAdder handshakes = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    void recordHandshake(boolean resumption) {
+        handshakes.increment();
+        if (resumption) {
+            resumed.increment();
+        }
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * @return the number of completed handshakes, full and abbreviated
+     */
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    /**
+     * @return the number of handshakes that resumed an earlier session
+     */
+    public long getResumedHandshakes() {
+        return resumed.sum();
+    }
+
+    public long getFailedHandshakes() {
+        return failures.sum();
+    }
+
+    /**
+     * @return the fraction of completed handshakes that were resumptions, 0 if there were none
+     */
+    public double getResumptionRatio() {
+        long total = handshakes.sum();
+        return total == 0 ? 0 : (double) resumed.sum() / total;
+    }
+
+    @Override
+    public String toString() {
+        return "handshakes=%d resumed=%d failed=%d".formatted(getHandshakes(), getResumedHandshakes(), getFailedHandshakes());
+    }
+}
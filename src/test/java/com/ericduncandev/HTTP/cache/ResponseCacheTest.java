@@ -0,0 +1,83 @@
+package com.ericduncandev.HTTP.cache;
+
+import com.ericduncandev.HTTP.core.ServerConfig;
+import com.ericduncandev.HTTP.factory.ResponseFactory;
+import com.ericduncandev.HTTP.interfaces.IResponseWriter;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.HTTPResponse;
+import com.ericduncandev.HTTP.model.RequestBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Serves requests through a {@link ResponseCache} in front of a handler that counts its executions.
+ */
+class ResponseCacheTest {
+    private static final String ETAG = "\"5f-1a\"";
+
+    private final ResponseCache cache = new ResponseCache(new ServerConfig.Builder()
+            .responseCacheEnabled(true)
+            .responseCacheTtlMillis(60_000)
+            .build());
+    private final AtomicInteger executions = new AtomicInteger();
+    private final Consumer<IResponseWriter> handler = writer -> {
+        executions.incrementAndGet();
+        writer.write(ResponseFactory.ok(ByteBuffer.wrap("cached page".getBytes(StandardCharsets.US_ASCII)),
+                "text/html", ETAG, 0));
+    };
+
+    @AfterEach
+    void closeCache() {
+        cache.close();
+    }
+
+    @Test
+    void answersRevalidationOfCachedResponseWithNotModified() {
+        assertEquals(200, serve(get()).getStatusCode());
+
+        HTTPResponse matching = serve(get().add(HTTPHeaders.IF_NONE_MATCH, ETAG));
+        HTTPResponse wildcard = serve(get().add(HTTPHeaders.IF_NONE_MATCH, "*"));
+        HTTPResponse stale = serve(get().add(HTTPHeaders.IF_NONE_MATCH, "\"0-0\""));
+
+        assertEquals(304, matching.getStatusCode());
+        assertEquals(ETAG, matching.getHeaders().get(HTTPHeaders.ETAG));
+        assertFalse(matching.getBody().hasRemaining());
+        assertEquals(304, wildcard.getStatusCode());
+        assertEquals(200, stale.getStatusCode());
+        assertEquals("cached page", StandardCharsets.US_ASCII.decode(stale.getBody().duplicate()).toString());
+        assertEquals(1, executions.get(), "every request after the first must be a cache hit");
+    }
+
+    private static HTTPHeaders get() {
+        return new HTTPHeaders().add(HTTPHeaders.HOST, "localhost");
+    }
+
+    private HTTPResponse serve(HTTPHeaders headers) {
+        List<HTTPResponse> written = new ArrayList<>();
+        cache.serve(new HTTPRequest("GET", "/page.html", "HTTP/1.1", headers, RequestBody.EMPTY), new IResponseWriter() {
+            @Override
+            public void write(HTTPResponse response) {
+                written.add(response);
+            }
+
+            @Override
+            public WritableByteChannel beginStreaming(int statusCode, HTTPHeaders headers) {
+                throw new UnsupportedOperationException();
+            }
+        }, handler);
+        assertEquals(1, written.size());
+        return written.getFirst();
+    }
+}
@@ -0,0 +1,206 @@
+package com.ericduncandev.HTTP.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the bytes the server allocates per request against the budgets in {@code allocation-budgets.properties}
+ * recorded for the running JDK release.
+ * Each endpoint is driven through a server running in this JVM, first to warm up the JIT and then for a
+ * measured batch. The cost of a request is what every thread but the client's allocated during the batch,
+ * divided by its size, so it covers accepting, parsing, handling and writing alike.
+ * <p>
+ * Budgets have headroom for noise and JDK updates, not for new work: a test that fails after a change
+ * to the request path usually means something like a regex or a format string found its way onto it. Raise
+ * a budget only when the extra allocation is intended, to the figure the failure reports plus the same headroom.
+ */
+class AllocationBudgetTest {
+    private static final Logger logger = LogManager.getLogger(AllocationBudgetTest.class);
+    private static final int WARMUP_REQUESTS = 2_000;
+    private static final int MEASURED_REQUESTS = 500;
+    private static final byte[] PAGE = "<html><body>allocation budget</body></html>".repeat(20).getBytes(StandardCharsets.UTF_8);
+    private static final String BOUNDARY = "----budget";
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static Properties budgets;
+    @TempDir
+    static Path root;
+    private static ServerFixture server;
+    private static int port;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "Per-thread allocation counters are not available on this JVM");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Per-thread allocation counters are not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        budgets = new Properties();
+        try (InputStream in = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            assertNotNull(in, "allocation-budgets.properties is missing from the test resources");
+            budgets.load(in);
+        }
+
+        Path webRoot = Files.createDirectories(root.resolve("www"));
+        Files.write(webRoot.resolve("index.html"), PAGE);
+        server = ServerFixture.start(new ServerConfig.Builder()
+                .webRoot(webRoot.toString())
+                .webRootManifest(root.resolve("index.manifest").toString())
+                .uploadRoot(root.resolve("uploads").toString())
+                .batchPath("/batch"));
+        port = server.port();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void staticGet() throws IOException {
+        assertWithinBudget("get.static", 200, i -> request("GET /index.html", null, null));
+    }
+
+    @Test
+    void notFound() throws IOException {
+        assertWithinBudget("get.notFound", 404, i -> request("GET /missing.html", null, null));
+    }
+
+    @Test
+    void batchGet() throws IOException {
+        assertWithinBudget("get.batch", 200,
+                i -> request("GET /batch?path=/index.html&path=/index.html&path=/missing.html", null, null));
+    }
+
+    @Test
+    void put() throws IOException {
+        assertWithinBudget("put", 204, i -> request("PUT /put.html", null, PAGE));
+    }
+
+    @Test
+    void delete() throws IOException {
+        // every request needs a file of its own to delete
+        Path webRoot = root.resolve("www");
+        for (int i = 0; i < WARMUP_REQUESTS + MEASURED_REQUESTS; i++) {
+            Files.write(webRoot.resolve("delete-%d.html".formatted(i)), PAGE);
+        }
+        assertWithinBudget("delete", 204, i -> request("DELETE /delete-%d.html".formatted(i), null, null));
+    }
+
+    @Test
+    void formPost() throws IOException {
+        byte[] form = "name=budget&value=1&value=2&note=a+b%21".getBytes(StandardCharsets.US_ASCII);
+        assertWithinBudget("post.form", 201,
+                i -> request("POST /index.html", "application/x-www-form-urlencoded", form));
+    }
+
+    @Test
+    void jsonPost() throws IOException {
+        byte[] json = "{\"name\":\"budget\",\"values\":[1,2,3]}".getBytes(StandardCharsets.US_ASCII);
+        assertWithinBudget("post.json", 201, i -> request("POST /index.html", "application/json", json));
+    }
+
+    @Test
+    void multipartPost() throws IOException {
+        byte[] multipart = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"note\"\r\n\r\n"
+                + "budget\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"page.html\"\r\n"
+                + "Content-Type: text/html\r\n\r\n"
+                + new String(PAGE, StandardCharsets.UTF_8) + "\r\n"
+                + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        assertWithinBudget("post.multipart", 201,
+                i -> request("POST /index.html", "multipart/form-data; boundary=" + BOUNDARY, multipart));
+    }
+
+    private static void assertWithinBudget(String endpoint, int expectedStatus, IntFunction<byte[]> requests) throws IOException {
+        String key = "jdk%d.%s".formatted(Runtime.version().feature(), endpoint);
+        String budget = budgets.getProperty(key);
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            assertEquals(expectedStatus, exchange(requests.apply(i)), endpoint);
+        }
+        // the requests are built up front so that the client allocates nothing the server could be charged for
+        byte[][] measured = new byte[MEASURED_REQUESTS][];
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            measured[i] = requests.apply(WARMUP_REQUESTS + i);
+        }
+        long before = serverAllocatedBytes();
+        for (byte[] request : measured) {
+            exchange(request);
+        }
+        long perRequest = (serverAllocatedBytes() - before) / MEASURED_REQUESTS;
+        logger.debug("{}: {} bytes per request, budget {}", endpoint, perRequest, budget);
+        assumeTrue(budget != null, "No allocation budget for this JDK; %s measured %d bytes per request, record %s=%d"
+                .formatted(endpoint, perRequest, key, (perRequest * 115 / 100 + 99) / 100 * 100));
+        assertTrue(perRequest <= Long.parseLong(budget.trim()),
+                "%s allocated %d bytes per request, over its budget of %s".formatted(endpoint, perRequest, budget));
+    }
+
+    // allocations of every live thread except this one; the server's pools keep their threads between batches
+    private static long serverAllocatedBytes() {
+        long[] ids = threads.getAllThreadIds();
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        long client = Thread.currentThread().threadId();
+        long total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != client && allocated[i] > 0) {
+                total += allocated[i];
+            }
+        }
+        return total;
+    }
+
+    private static byte[] request(String requestLine, String contentType, byte[] body) {
+        StringBuilder head = new StringBuilder(requestLine).append(" HTTP/1.1\r\nHost: localhost\r\n");
+        if (contentType != null) {
+            head.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        if (body != null) {
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        byte[] headBytes = head.append("\r\n").toString().getBytes(StandardCharsets.US_ASCII);
+        if (body == null) {
+            return headBytes;
+        }
+        byte[] request = new byte[headBytes.length + body.length];
+        System.arraycopy(headBytes, 0, request, 0, headBytes.length);
+        System.arraycopy(body, 0, request, headBytes.length, body.length);
+        return request;
+    }
+
+    // sends one request and reads the response to the end of the connection, returning its status code
+    private static int exchange(byte[] request) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(request);
+            out.flush();
+            byte[] response = socket.getInputStream().readAllBytes();
+            // "HTTP/1.1 200 ..."
+            return response.length < 12 ? -1 : Integer.parseInt(new String(response, 9, 3, StandardCharsets.US_ASCII));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.ericduncandev.HTTP.core;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fetches batches of files from a server in this JVM and takes the multipart/mixed responses apart
+ * part by part.
+ */
+class BatchFetchTest {
+    private static final String ALPHA = "alpha";
+    private static final String BETA = "<html><body>beta</body></html>";
+
+    @TempDir
+    static Path root;
+    private static ServerFixture server;
+    private static int port;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        Path webRoot = Files.createDirectories(root.resolve("www"));
+        Files.writeString(webRoot.resolve("a.txt"), ALPHA);
+        Files.writeString(webRoot.resolve("b.html"), BETA);
+        server = ServerFixture.start(new ServerConfig.Builder()
+                .webRoot(webRoot.toString())
+                .webRootManifest(root.resolve("index.manifest").toString())
+                // inside webRoot, so that its in-progress directory gives a path the batch must refuse
+                .uploadRoot(webRoot.resolve("uploads").toString())
+                .batchPath("/batch")
+                .batchMaxFiles(4));
+        port = server.port();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void servesPartsInRequestedOrder() throws IOException {
+        String response = exchange("GET /batch?path=/b.html&path=/missing.txt&path=/uploads/.tmp/x&path=/a.txt HTTP/1.1\r\n"
+                + "Host: localhost\r\n\r\n");
+
+        List<Part> parts = parts(response);
+
+        assertEquals(List.of("/b.html", "/missing.txt", "/uploads/.tmp/x", "/a.txt"),
+                parts.stream().map(part -> part.headers().get("content-location")).toList());
+        assertEquals(BETA, parts.get(0).body());
+        assertTrue(parts.get(0).headers().get("content-type").startsWith("text/html"));
+        assertEquals(Integer.toString(BETA.length()), parts.get(0).headers().get("content-length"));
+        assertEquals("404", parts.get(1).headers().get("status"));
+        assertEquals("", parts.get(1).body());
+        assertEquals("403", parts.get(2).headers().get("status"));
+        assertEquals("", parts.get(2).body());
+        assertEquals(ALPHA, parts.get(3).body());
+        assertTrue(parts.get(3).headers().containsKey("etag"));
+    }
+
+    @Test
+    void takesPathsFromPostedForm() throws IOException {
+        String form = "path=%2Fa.txt&path=%2Fa.txt";
+        String response = exchange("POST /batch HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: application/x-www-form-urlencoded\r\nContent-Length: " + form.length() + "\r\n\r\n" + form);
+
+        List<Part> parts = parts(response);
+
+        assertEquals(2, parts.size());
+        assertEquals(ALPHA, parts.get(0).body());
+        assertEquals(ALPHA, parts.get(1).body());
+    }
+
+    @Test
+    void rejectsPathsThatWouldBreakThePartHead() throws IOException {
+        String injected = exchange("GET /batch?path=/a.txt%0D%0AX-Injected:%20yes HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        String bareLineFeed = exchange("GET /batch?path=/a.txt&path=/b.html%0AX-Injected:%20yes HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        String nul = exchange("GET /batch?path=/a.txt%00 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+        for (String response : List.of(injected, bareLineFeed, nul)) {
+            assertTrue(response.startsWith("HTTP/1.1 400"), response);
+            assertFalse(response.contains("X-Injected: yes\r\n"), response);
+        }
+    }
+
+    @Test
+    void rejectsBatchOverTheFileLimit() throws IOException {
+        String response = exchange("GET /batch?path=/a.txt&path=/a.txt&path=/a.txt&path=/a.txt&path=/a.txt HTTP/1.1\r\n"
+                + "Host: localhost\r\n\r\n");
+
+        assertTrue(response.startsWith("HTTP/1.1 400"), response);
+    }
+
+    // every part but the last is followed by CRLF and the next delimiter, and the body ends after the closing one
+    private static List<Part> parts(String response) {
+        assertTrue(response.startsWith("HTTP/1.1 200"), response);
+        int headEnd = response.indexOf("\r\n\r\n");
+        String contentType = headers(response.substring(response.indexOf("\r\n") + 2, headEnd)).get("content-type");
+        assertTrue(contentType.startsWith("multipart/mixed; boundary="), contentType);
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        String body = response.substring(headEnd + 4);
+        assertTrue(body.startsWith("--" + boundary + "\r\n"), body);
+        assertTrue(body.endsWith("\r\n--" + boundary + "--\r\n"), "the closing boundary is missing");
+
+        String[] sections = ("\r\n" + body).split("\r\n--" + boundary, -1);
+        List<Part> parts = new ArrayList<>();
+        for (int i = 1; i < sections.length - 1; i++) {
+            String section = sections[i].substring(2);
+            int partHeadEnd = section.indexOf("\r\n\r\n");
+            Map<String, String> partHeaders = headers(section.substring(0, partHeadEnd));
+            String partBody = section.substring(partHeadEnd + 4);
+            assertEquals(partHeaders.get("content-length"), Integer.toString(partBody.length()));
+            parts.add(new Part(partHeaders, partBody));
+        }
+        return parts;
+    }
+
+    private static Map<String, String> headers(String block) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String line : block.split("\r\n")) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private static String exchange(String request) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private record Part(Map<String, String> headers, String body) {
+    }
+}
@@ -0,0 +1,215 @@
+package com.ericduncandev.HTTP.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Drives tus uploads through a server whose upload root lies inside webRoot, as it does with the
+ * default configuration, including across a restart on the same directories.
+ */
+class ResumableUploadTest {
+    private static final String ENDPOINT = "/files";
+    private static final Map<String, String> TUS = Map.of("Tus-Resumable", "1.0.0");
+
+    @TempDir
+    Path root;
+    private Path webRoot;
+    private ServerFixture server;
+    private int port;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        webRoot = Files.createDirectories(root.resolve("www"));
+        start(60_000);
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void sessionStateIsNeitherServedNorWritable() throws IOException {
+        String upload = create("/docs/report.txt", 10);
+        Path journal = webRoot.resolve("uploads/.resumable/journal");
+        byte[] journalBefore = Files.readAllBytes(journal);
+        String partPath = "/" + webRoot.relativize(partFile(upload));
+
+        assertEquals(403, exchange("GET", "/uploads/.resumable/journal", Map.of(), null).status());
+        assertEquals(403, exchange("GET", partPath, Map.of(), null).status());
+        assertEquals(403, exchange("GET", "/uploads/.tmp/", Map.of(), null).status());
+        assertEquals(403, exchange("PUT", "/uploads/.resumable/journal", Map.of(), bytes("overwritten")).status());
+        assertEquals(403, exchange("POST", ENDPOINT, Map.of("Tus-Resumable", "1.0.0", "Upload-Length", "4",
+                "Upload-Metadata", metadata("/uploads/.resumable/journal")), null).status());
+
+        assertArrayEquals(journalBefore, Files.readAllBytes(journal));
+    }
+
+    @Test
+    void rejectsChunkAtWrongOffset() throws IOException {
+        String upload = create("/docs/report.txt", 10);
+        assertEquals(204, patch(upload, 0, "0123").status());
+
+        Response stale = patch(upload, 0, "0123");
+        Response ahead = patch(upload, 8, "89");
+
+        assertEquals(409, stale.status());
+        assertEquals(409, ahead.status());
+        assertEquals("4", exchange("HEAD", upload, TUS, null).headers().get("upload-offset"));
+        Response resumed = patch(upload, 4, "4567");
+        assertEquals(204, resumed.status());
+        assertEquals("8", resumed.headers().get("upload-offset"));
+    }
+
+    @Test
+    void placesCompleteUploadAtTarget() throws IOException {
+        String upload = create("/docs/report.txt", 10);
+        assertEquals(204, patch(upload, 0, "hello").status());
+
+        Response last = patch(upload, 5, "world");
+
+        assertEquals(204, last.status());
+        assertEquals("10", last.headers().get("upload-offset"));
+        assertEquals("helloworld", Files.readString(webRoot.resolve("docs/report.txt")));
+        assertEquals("helloworld", new String(exchange("GET", "/docs/report.txt", Map.of(), null).body(), StandardCharsets.UTF_8));
+        assertEquals(404, exchange("HEAD", upload, TUS, null).status());
+        assertFalse(Files.exists(partFile(upload)));
+    }
+
+    @Test
+    void recoversSessionsFromJournalAfterRestart() throws Exception {
+        String upload = create("/docs/report.txt", 10);
+        assertEquals(204, patch(upload, 0, "hello").status());
+
+        server.close();
+        start(60_000);
+
+        Response progress = exchange("HEAD", upload, TUS, null);
+        assertEquals(200, progress.status());
+        assertEquals("5", progress.headers().get("upload-offset"));
+        assertEquals("10", progress.headers().get("upload-length"));
+        assertEquals(409, patch(upload, 0, "hello").status());
+        assertEquals(204, patch(upload, 5, "world").status());
+        assertEquals("helloworld", Files.readString(webRoot.resolve("docs/report.txt")));
+    }
+
+    @Test
+    void expiresIdleSessions() throws Exception {
+        server.close();
+        start(300);
+        String upload = create("/docs/report.txt", 10);
+        assertEquals(204, patch(upload, 0, "hello").status());
+
+        Thread.sleep(400);
+
+        // an expired session is gone for clients at once, and its file with the next sweep
+        assertEquals(404, exchange("HEAD", upload, TUS, null).status());
+        assertEquals(404, patch(upload, 5, "world").status());
+        for (int attempt = 0; attempt < 50 && Files.exists(partFile(upload)); attempt++) {
+            Thread.sleep(50);
+        }
+        assertFalse(Files.exists(partFile(upload)));
+        assertFalse(Files.exists(webRoot.resolve("docs/report.txt")));
+    }
+
+    private void start(long expiryMillis) throws Exception {
+        server = ServerFixture.start(new ServerConfig.Builder()
+                .webRoot(webRoot.toString())
+                .webRootManifest(root.resolve("index.manifest").toString())
+                .uploadRoot(webRoot.resolve("uploads").toString())
+                .resumableUploadPath(ENDPOINT)
+                .resumableUploadExpiryMillis(expiryMillis));
+        port = server.port();
+    }
+
+    // opens a session and returns its URL
+    private String create(String target, long length) throws IOException {
+        Response created = exchange("POST", ENDPOINT, Map.of("Tus-Resumable", "1.0.0",
+                "Upload-Length", Long.toString(length), "Upload-Metadata", metadata(target)), null);
+        assertEquals(201, created.status());
+        String location = created.headers().get("location");
+        assertNotNull(location);
+        return location;
+    }
+
+    private Response patch(String upload, long offset, String chunk) throws IOException {
+        return exchange("PATCH", upload, Map.of("Tus-Resumable", "1.0.0", "Upload-Offset", Long.toString(offset),
+                "Content-Type", "application/offset+octet-stream"), bytes(chunk));
+    }
+
+    private Path partFile(String upload) {
+        return webRoot.resolve("uploads/.resumable/%s.part".formatted(upload.substring(ENDPOINT.length() + 1)));
+    }
+
+    private static String metadata(String target) {
+        return "target " + Base64.getEncoder().encodeToString(bytes(target));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // sends one request and reads the response to the end of the connection
+    private Response exchange(String method, String path, Map<String, String> headers, byte[] body) throws IOException {
+        StringBuilder head = new StringBuilder(method).append(' ').append(path).append(" HTTP/1.1\r\nHost: localhost\r\n");
+        headers.forEach((name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+        if (body != null) {
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        head.append("\r\n");
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+            if (body != null) {
+                out.write(body);
+            }
+            out.flush();
+            return Response.parse(socket.getInputStream(), method.equals("HEAD"));
+        }
+    }
+
+    /**
+     * @param headers keyed by lower-case name
+     */
+    private record Response(int status, Map<String, String> headers, byte[] body) {
+        static Response parse(InputStream in, boolean headOnly) throws IOException {
+            byte[] raw = in.readAllBytes();
+            int end = 0;
+            while (end + 3 < raw.length && !(raw[end] == '\r' && raw[end + 1] == '\n' && raw[end + 2] == '\r' && raw[end + 3] == '\n')) {
+                end++;
+            }
+            String[] lines = new String(raw, 0, end, StandardCharsets.ISO_8859_1).split("\r\n");
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (!headOnly && end + 4 <= raw.length) {
+                body.write(raw, end + 4, raw.length - end - 4);
+            }
+            return new Response(Integer.parseInt(lines[0].substring(9, 12)), headers, body.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ericduncandev.HTTP.core;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link HTTPServer} running on a daemon thread for a test, on a port the system picked when it bound.
+ * Returned once the server accepts connections, and stopped by {@link #close}.
+ * <p>
+ * An HTTPS port of 0 disables TLS rather than asking for any free port, so the HTTPS listener gets a port
+ * found free beforehand. Another process can take that port before the server binds it; the server is then
+ * started again on another.
+ */
+public final class ServerFixture implements AutoCloseable {
+    private static final long START_TIMEOUT_SECONDS = 10;
+    private static final int HTTPS_ATTEMPTS = 5;
+
+    private final HTTPServer server;
+
+    private ServerFixture(HTTPServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Starts a server with the configuration, on a port of its own.
+     */
+    public static ServerFixture start(ServerConfig.Builder config) throws InterruptedException {
+        ServerFixture started = launch(config.port(0).build());
+        if (started == null) {
+            throw new IllegalStateException("Server did not start");
+        }
+        return started;
+    }
+
+    /**
+     * Starts a server with the configuration and an HTTPS listener, each on a port of its own.
+     */
+    public static ServerFixture startWithHttps(ServerConfig.Builder config) throws IOException, InterruptedException {
+        for (int attempt = 0; attempt < HTTPS_ATTEMPTS; attempt++) {
+            ServerFixture started = launch(config.port(0).httpsPort(freePort()).build());
+            if (started != null) {
+                return started;
+            }
+        }
+        throw new IllegalStateException("Server did not start after %d attempts".formatted(HTTPS_ATTEMPTS));
+    }
+
+    // null if the server failed to bind
+    private static ServerFixture launch(ServerConfig config) throws InterruptedException {
+        HTTPServer server = new HTTPServer(config);
+        Thread.ofPlatform().name("test-server").daemon().start(() -> {
+            try {
+                server.start();
+            } catch (HTTPServer.ServerInitializationException e) {
+                // logged by the server, and reported to the test thread by awaitStarted
+            }
+        });
+        if (server.awaitStarted(START_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            return new ServerFixture(server);
+        }
+        server.stop();
+        return null;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    public HTTPServer server() {
+        return server;
+    }
+
+    public int port() {
+        return server.getPort();
+    }
+
+    public int httpsPort() {
+        return server.getHttpsPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+}
@@ -0,0 +1,70 @@
+package com.ericduncandev.HTTP.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads indexes over a temporary webRoot, changing files on disk between runs as if the server had been down.
+ */
+class WebRootIndexTest {
+    // long enough that any entry still inside its window would be trusted without a stat
+    private static final long FOREVER_MILLIS = TimeUnit.DAYS.toMillis(365L * 100);
+
+    @TempDir
+    Path root;
+
+    @Test
+    void verifiesManifestEntriesOnFirstLookup() throws IOException {
+        Path webRoot = Files.createDirectories(root.resolve("www"));
+        Path manifest = root.resolve("index.manifest");
+        Files.writeString(webRoot.resolve("a.txt"), "one");
+        try (WebRootIndex first = new WebRootIndex(webRoot, manifest, FOREVER_MILLIS)) {
+            first.load();
+            assertEquals(3, first.lookup("/a.txt").size());
+        }
+
+        // rewriting a file leaves its directory's modification time alone, so only a stat of the file notices
+        Files.writeString(webRoot.resolve("a.txt"), "changed");
+
+        try (WebRootIndex second = new WebRootIndex(webRoot, manifest, FOREVER_MILLIS)) {
+            second.load();
+            assertEquals(7, second.lookup("/a.txt").size());
+        }
+    }
+
+    @Test
+    void refusesManifestKeptUnderWebRoot() throws IOException {
+        Files.writeString(root.resolve("index.html"), "<html></html>");
+        try (WebRootIndex index = new WebRootIndex(root, root.resolve(".webroot.manifest"), FOREVER_MILLIS)) {
+            index.load();
+
+            assertTrue(Files.isRegularFile(root.resolve(".webroot.manifest")));
+            // resolve() is what PUT and DELETE go through, so refusing there keeps clients from rewriting the index
+            assertThrows(SecurityException.class, () -> index.resolve("/.webroot.manifest"));
+            assertThrows(SecurityException.class, () -> index.lookup("/./.webroot.manifest"));
+            assertNull(index.lookup("/missing.html"));
+            assertEquals(13, index.lookup("/index.html").size());
+        }
+    }
+
+    @Test
+    void keepsDefaultManifestOutsideWebRoot() {
+        Path manifest = WebRootIndex.defaultManifest(root);
+
+        assertFalse(manifest.startsWith(root));
+        assertEquals(manifest, WebRootIndex.defaultManifest(root.resolve("sub/..")));
+        assertNotEquals(manifest, WebRootIndex.defaultManifest(root.resolve("other")));
+    }
+}
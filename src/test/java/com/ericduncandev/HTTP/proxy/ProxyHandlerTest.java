@@ -0,0 +1,309 @@
+package com.ericduncandev.HTTP.proxy;
+
+import com.ericduncandev.HTTP.interfaces.IResponseWriter;
+import com.ericduncandev.HTTP.model.HTTPHeaders;
+import com.ericduncandev.HTTP.model.HTTPRequest;
+import com.ericduncandev.HTTP.model.HTTPResponse;
+import com.ericduncandev.HTTP.model.RequestBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link ProxyHandler} against stand-in backends listening on local ports, each answering
+ * requests with a scripted raw HTTP/1.1 response.
+ */
+class ProxyHandlerTest {
+    private static final int TIMEOUT_MILLIS = 2000;
+
+    private final List<Backend> backends = new ArrayList<>();
+
+    @AfterEach
+    void closeBackends() throws IOException {
+        for (Backend backend : backends) {
+            backend.close();
+        }
+    }
+
+    @Test
+    void relaysContentLengthBodyWithoutHopByHopHeaders() throws IOException {
+        Backend backend = backend(request -> "HTTP/1.1 200 OK\r\nContent-Length: 5\r\nKeep-Alive: timeout=5\r\n"
+                + "X-Backend: one\r\n\r\nhello", false);
+        ProxyHandler handler = handler(backend.upstream(3, 10_000));
+
+        CapturingWriter client = forward(handler, "GET", "/api/greeting", RequestBody.EMPTY);
+
+        assertEquals(200, client.statusCode());
+        assertEquals("hello", client.body());
+        assertEquals("one", client.headers.get("X-Backend"));
+        assertNull(client.headers.get("Keep-Alive"));
+        assertEquals("GET /api/greeting", backend.requestLines.getFirst());
+    }
+
+    @Test
+    void relaysChunkedBodyDechunked() throws IOException {
+        Backend backend = backend(request -> "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n7;ext=1\r\n, world\r\n0\r\nX-Trailer: dropped\r\n\r\n", false);
+        ProxyHandler handler = handler(backend.upstream(3, 10_000));
+
+        CapturingWriter client = forward(handler, "GET", "/api/chunked", RequestBody.EMPTY);
+
+        assertEquals(200, client.statusCode());
+        assertEquals("hello, world", client.body());
+        assertNull(client.headers.get(HTTPHeaders.TRANSFER_ENCODING));
+    }
+
+    @Test
+    void retriesIdempotentRequestOnStalePooledConnection() throws Exception {
+        // the backend advertises keep-alive but closes every connection after one response
+        Backend backend = backend(request -> "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok", true);
+        Upstream upstream = backend.upstream(3, 10_000);
+        ProxyHandler handler = handler(upstream);
+
+        assertEquals(200, forward(handler, "GET", "/api/first", RequestBody.EMPTY).statusCode());
+        assertTrue(backend.closed.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        CapturingWriter client = forward(handler, "GET", "/api/second", RequestBody.EMPTY);
+
+        assertEquals(200, client.statusCode());
+        assertEquals("ok", client.body());
+        assertEquals(List.of("GET /api/first", "GET /api/second"), backend.requestLines);
+        assertTrue(upstream.isHealthy());
+    }
+
+    @Test
+    void doesNotRetryNonIdempotentRequestOnStalePooledConnection() throws Exception {
+        Backend backend = backend(request -> "HTTP/1.1 201 Created\r\nContent-Length: 0\r\n\r\n", true);
+        ProxyHandler handler = handler(backend.upstream(3, 10_000));
+
+        assertEquals(201, forward(handler, "POST", "/api/first", RequestBody.of(bytes("one"))).statusCode());
+        assertTrue(backend.closed.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        CapturingWriter client = forward(handler, "POST", "/api/second", RequestBody.of(bytes("two")));
+
+        assertEquals(502, client.statusCode());
+        assertEquals(List.of("POST /api/first"), backend.requestLines);
+    }
+
+    @Test
+    void ejectsFailingUpstreamAndFailsOverToHealthyOne() throws Exception {
+        Upstream dead = new Upstream("127.0.0.1:" + unusedPort(), TIMEOUT_MILLIS, TIMEOUT_MILLIS, 1, 500);
+        Backend backend = backend(request -> "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok", false);
+        Upstream live = backend.upstream(1, 500);
+        ProxyHandler handler = handler(dead, live);
+        assertTrue(dead.isHealthy(), "an upstream that never failed must start out healthy");
+
+        // whichever upstream is tried first, a refused connection moves the request on to the other
+        for (int i = 0; i < 20; i++) {
+            assertEquals(200, forward(handler, "GET", "/api/" + i, RequestBody.EMPTY).statusCode());
+        }
+
+        assertEquals(20, backend.requestLines.size());
+        assertFalse(dead.isHealthy());
+        assertTrue(live.isHealthy());
+        Thread.sleep(600);
+        assertTrue(dead.isHealthy(), "the ejection must expire");
+    }
+
+    @Test
+    void answersBadGatewayWhenNoUpstreamAccepts() throws IOException {
+        ProxyHandler handler = handler(new Upstream("127.0.0.1:" + unusedPort(), TIMEOUT_MILLIS, TIMEOUT_MILLIS, 3, 10_000));
+
+        assertEquals(502, forward(handler, "GET", "/api/missing", RequestBody.EMPTY).statusCode());
+    }
+
+    @Test
+    void triesLoneUpstreamOncePerRequest() throws IOException {
+        Upstream dead = new Upstream("127.0.0.1:" + unusedPort(), TIMEOUT_MILLIS, TIMEOUT_MILLIS, 2, 10_000);
+        ProxyHandler handler = handler(dead);
+
+        assertEquals(502, forward(handler, "GET", "/api/missing", RequestBody.EMPTY).statusCode());
+        assertTrue(dead.isHealthy(), "one refused request must count as one failure");
+
+        assertEquals(502, forward(handler, "GET", "/api/missing", RequestBody.EMPTY).statusCode());
+        assertFalse(dead.isHealthy());
+    }
+
+    private Backend backend(Function<String, String> responder, boolean closeAfterResponse) throws IOException {
+        Backend backend = new Backend(responder, closeAfterResponse);
+        backends.add(backend);
+        return backend;
+    }
+
+    private static ProxyHandler handler(Upstream... upstreams) {
+        return new ProxyHandler("/api", List.of(upstreams));
+    }
+
+    private static CapturingWriter forward(ProxyHandler handler, String method, String uri, RequestBody body) {
+        HTTPHeaders headers = new HTTPHeaders().add(HTTPHeaders.HOST, "localhost");
+        if (!body.isEmpty()) {
+            headers.add(HTTPHeaders.CONTENT_LENGTH, Long.toString(body.length()));
+        }
+        CapturingWriter client = new CapturingWriter();
+        handler.handle(new HTTPRequest(method, uri, "HTTP/1.1", headers, body), client);
+        return client;
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A backend that reads each request, records its request line and answers with the responder's raw response.
+     */
+    private static final class Backend implements AutoCloseable {
+        final List<String> requestLines = new CopyOnWriteArrayList<>();
+        final Semaphore closed = new Semaphore(0);
+        private final ServerSocket server = new ServerSocket(0);
+        private final Function<String, String> responder;
+        private final boolean closeAfterResponse;
+
+        Backend(Function<String, String> responder, boolean closeAfterResponse) throws IOException {
+            this.responder = responder;
+            this.closeAfterResponse = closeAfterResponse;
+            Thread.ofVirtual().start(this::accept);
+        }
+
+        Upstream upstream(int ejectAfterFailures, long ejectMillis) {
+            return new Upstream("127.0.0.1:" + server.getLocalPort(), TIMEOUT_MILLIS, TIMEOUT_MILLIS,
+                    ejectAfterFailures, ejectMillis);
+        }
+
+        private void accept() {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread.ofVirtual().start(() -> serve(socket));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                String requestLine;
+                while ((requestLine = readLine(in)) != null) {
+                    long contentLength = 0;
+                    String line;
+                    while ((line = readLine(in)) != null && !line.isEmpty()) {
+                        if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                            contentLength = Long.parseLong(line.substring(15).trim());
+                        }
+                    }
+                    in.skipNBytes(contentLength);
+                    requestLines.add(requestLine.substring(0, requestLine.lastIndexOf(' ')));
+                    out.write(bytes(responder.apply(requestLine)));
+                    out.flush();
+                    if (closeAfterResponse) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                // the proxy closed the connection
+            } finally {
+                closed.release();
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return b == -1 && line.size() == 0 ? null : line.toString(StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+
+    private static final class CapturingWriter implements IResponseWriter {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private HTTPHeaders headers = new HTTPHeaders();
+        private int statusCode;
+
+        @Override
+        public void write(HTTPResponse response) {
+            statusCode = response.getStatusCode();
+            headers = response.getHeaders();
+            ByteBuffer content = response.getBody();
+            if (content != null) {
+                byte[] bytes = new byte[content.remaining()];
+                content.duplicate().get(bytes);
+                body.writeBytes(bytes);
+            }
+        }
+
+        @Override
+        public WritableByteChannel beginStreaming(int statusCode, HTTPHeaders headers) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            return new WritableByteChannel() {
+                private boolean open = true;
+
+                @Override
+                public int write(ByteBuffer source) {
+                    int length = source.remaining();
+                    byte[] bytes = new byte[length];
+                    source.get(bytes);
+                    body.writeBytes(bytes);
+                    return length;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return open;
+                }
+
+                @Override
+                public void close() {
+                    open = false;
+                }
+            };
+        }
+
+        @Override
+        public int statusCode() {
+            return statusCode;
+        }
+
+        String body() {
+            return body.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ericduncandev.HTTP.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Writes journals through {@link UploadJournal} and checks what a fresh instance replays from them.
+ */
+class UploadJournalTest {
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("upload-journal");
+        file = directory.resolve("journal");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void replaysLastStateOfLiveSessions() throws IOException {
+        try (UploadJournal journal = new UploadJournal(file)) {
+            journal.open();
+            journal.created("a", "/a.txt", 10, 1);
+            journal.created("b", "/b.txt", 20, 2);
+            journal.advanced("a", 4, 3);
+            journal.advanced("a", 8, 4);
+            journal.removed("b");
+        }
+
+        try (UploadJournal journal = new UploadJournal(file)) {
+            assertEquals(List.of(new UploadJournal.Entry("a", "/a.txt", 10, 8, 4)), List.copyOf(journal.open()));
+        }
+    }
+
+    @Test
+    void discardsTornTail() throws IOException {
+        try (UploadJournal journal = new UploadJournal(file)) {
+            journal.open();
+            journal.created("a", "/a.txt", 10, 1);
+            journal.advanced("a", 4, 2);
+        }
+        byte[] written = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(written, written.length - 3));
+
+        try (UploadJournal journal = new UploadJournal(file)) {
+            assertEquals(List.of(new UploadJournal.Entry("a", "/a.txt", 10, 0, 1)), List.copyOf(journal.open()));
+            // appends after the torn record must be readable on the next replay
+            journal.advanced("a", 6, 3);
+        }
+        try (UploadJournal journal = new UploadJournal(file)) {
+            assertEquals(List.of(new UploadJournal.Entry("a", "/a.txt", 10, 6, 3)), List.copyOf(journal.open()));
+        }
+    }
+
+    @Test
+    void keepsAppendingAfterCompaction() throws IOException {
+        UploadJournal.Entry live = new UploadJournal.Entry("a", "/a.txt", 10, 4, 2);
+        try (UploadJournal journal = new UploadJournal(file)) {
+            journal.open();
+            journal.created("gone", "/gone.txt", 5, 1);
+            journal.removed("gone");
+            journal.created("a", "/a.txt", 10, 1);
+            journal.advanced("a", 4, 2);
+
+            journal.compact(List.of(live));
+            journal.advanced("a", 7, 3);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList(), "the rewrite must not leave its temporary file behind");
+        }
+        try (UploadJournal journal = new UploadJournal(file)) {
+            assertEquals(List.of(new UploadJournal.Entry("a", "/a.txt", 10, 7, 3)), List.copyOf(journal.open()));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.ericduncandev.HTTP.tls;
+
+import com.ericduncandev.HTTP.core.HTTPServer;
+import com.ericduncandev.HTTP.core.ServerConfig;
+import com.ericduncandev.HTTP.core.ServerFixture;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the HTTPS listener with a self-signed keystore generated by {@code keytool} for the test run,
+ * and checks handshakes, resumption, ALPN and connection admission from a client trusting that keystore.
+ */
+class TLSServerTest {
+    private static final String PASSWORD = "changeit";
+    private static final String PAGE = "<html><body>over tls</body></html>";
+    private static final int LARGE_SIZE = 256 * 1024;
+
+    static {
+        // keys are updated every few records, so a busy HTTP/2 connection has its reader answer key updates
+        // while its writer sends frames; read once, when the first TLS cipher is set up in this JVM
+        Security.setProperty("jdk.tls.keyLimits", "AES/GCM/NoPadding KeyUpdate 2^14, ChaCha20-Poly1305 KeyUpdate 2^14");
+    }
+
+    @TempDir
+    static Path root;
+    private static Path keyStore;
+    private static ServerFixture fixture;
+    private static HTTPServer server;
+    private static int httpsPort;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        keyStore = generateKeyStore(root);
+        Path webRoot = Files.createDirectories(root.resolve("www"));
+        Files.writeString(webRoot.resolve("index.html"), PAGE);
+        Files.write(webRoot.resolve("large.bin"), large());
+        fixture = ServerFixture.startWithHttps(builder(webRoot, "index.manifest").tlsApplicationProtocols("h2", "http/1.1"));
+        server = fixture.server();
+        httpsPort = fixture.httpsPort();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (fixture != null) {
+            fixture.close();
+        }
+    }
+
+    @Test
+    void servesRequestOverTls() throws Exception {
+        long handshakes = server.getTlsMetrics().getHandshakes();
+        String response = get(clientContext(), httpsPort, "http/1.1");
+
+        assertTrue(response.startsWith("HTTP/1.1 200"), response);
+        assertTrue(response.endsWith(PAGE), response);
+        assertEquals(handshakes + 1, server.getTlsMetrics().getHandshakes());
+    }
+
+    @Test
+    void resumesSessionForReturningClient() throws Exception {
+        // resumption is keyed on the client's context, which caches the session or ticket it was given
+        SSLContext client = clientContext();
+        get(client, httpsPort, "http/1.1");
+        long resumed = server.getTlsMetrics().getResumedHandshakes();
+
+        get(client, httpsPort, "http/1.1");
+
+        assertEquals(resumed + 1, server.getTlsMetrics().getResumedHandshakes());
+        assertTrue(server.getTlsMetrics().getResumptionRatio() > 0);
+    }
+
+    @Test
+    void negotiatesApplicationProtocol() throws Exception {
+        try (SSLSocket socket = connect(clientContext(), httpsPort, "h2", "http/1.1")) {
+            socket.startHandshake();
+            assertEquals("h2", socket.getApplicationProtocol());
+        }
+        try (SSLSocket socket = connect(clientContext(), httpsPort, "http/1.1")) {
+            socket.startHandshake();
+            assertEquals("http/1.1", socket.getApplicationProtocol());
+        }
+    }
+
+    @Test
+    void servesConcurrentHttp2StreamsAcrossKeyUpdates() throws Exception {
+        byte[] large = large();
+        byte[] upload = Arrays.copyOf(large, 64 * 1024);
+        URI base = URI.create("https://localhost:%d".formatted(httpsPort));
+        List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<>();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).sslContext(clientContext()).build();
+        try {
+            // one connection carries every stream, uploads keep the client's keys turning over as well as the server's
+            for (int i = 0; i < 16; i++) {
+                responses.add(client.sendAsync(HttpRequest.newBuilder(base.resolve("/large.bin")).build(),
+                        HttpResponse.BodyHandlers.ofByteArray()));
+                responses.add(client.sendAsync(HttpRequest.newBuilder(base.resolve("/h2-upload-%d.bin".formatted(i)))
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(upload)).build(), HttpResponse.BodyHandlers.ofByteArray()));
+            }
+            for (CompletableFuture<HttpResponse<byte[]>> pending : responses) {
+                HttpResponse<byte[]> response = pending.get(20, TimeUnit.SECONDS);
+                assertEquals(HttpClient.Version.HTTP_2, response.version());
+                if (response.request().method().equals("GET")) {
+                    assertEquals(200, response.statusCode());
+                    assertArrayEquals(large, response.body());
+                } else {
+                    assertTrue(response.statusCode() == 201 || response.statusCode() == 204, "PUT answered " + response.statusCode());
+                }
+            }
+        } finally {
+            // close() would wait for exchanges that a corrupted connection never finishes
+            client.shutdownNow();
+        }
+        for (int i = 0; i < 16; i++) {
+            assertArrayEquals(upload, Files.readAllBytes(root.resolve("www/h2-upload-%d.bin".formatted(i))));
+        }
+    }
+
+    @Test
+    void closesConnectionsOverTheLimitBeforeTheHandshake() throws Exception {
+        try (ServerFixture started = ServerFixture.startWithHttps(builder(root.resolve("www"), "limited.manifest").maxConnections(1))) {
+            HTTPServer limited = started.server();
+            int port = started.httpsPort();
+            SSLContext client = clientContext();
+            // a connection whose handshake completed holds the only slot until it is closed
+            try (SSLSocket holder = takeOnlySlot(client, port)) {
+                // the client can finish before the server has recorded its side of the handshake
+                for (int attempt = 0; attempt < 100 && limited.getTlsMetrics().getHandshakes() == 0; attempt++) {
+                    Thread.sleep(20);
+                }
+                assertEquals(1, limited.getTlsMetrics().getHandshakes());
+
+                assertThrows(IOException.class, () -> {
+                    try (SSLSocket rejected = connect(client, port, "http/1.1")) {
+                        rejected.startHandshake();
+                    }
+                });
+
+                assertEquals(1, limited.getTlsMetrics().getHandshakes());
+                assertEquals(0, limited.getTlsMetrics().getFailedHandshakes());
+            }
+        }
+    }
+
+    // the connection count is shared by every server in the JVM, so connections of earlier tests may still hold it
+    private static SSLSocket takeOnlySlot(SSLContext client, int port) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            SSLSocket socket = connect(client, port, "http/1.1");
+            try {
+                socket.startHandshake();
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static byte[] large() {
+        byte[] content = new byte[LARGE_SIZE];
+        new Random(LARGE_SIZE).nextBytes(content);
+        return content;
+    }
+
+    private static ServerConfig.Builder builder(Path webRoot, String manifest) {
+        return new ServerConfig.Builder()
+                .keyStorePath(keyStore.toString())
+                .keyStorePassword(PASSWORD)
+                .webRoot(webRoot.toString())
+                .webRootManifest(root.resolve(manifest).toString())
+                .uploadRoot(root.resolve("uploads").toString());
+    }
+
+    private static Path generateKeyStore(Path directory) throws IOException, InterruptedException {
+        Path path = directory.resolve("server.p12");
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "server", "-keyalg", "EC", "-groupname", "secp256r1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-validity", "2",
+                "-storetype", "PKCS12", "-keystore", path.toString(), "-storepass", PASSWORD, "-keypass", PASSWORD)
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(keytool.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(keytool.waitFor(30, TimeUnit.SECONDS), "keytool did not finish");
+        assertEquals(0, keytool.exitValue(), output);
+        return path;
+    }
+
+    // trusts the server's own certificate, and nothing else
+    private static SSLContext clientContext() throws Exception {
+        KeyStore trusted = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStore)) {
+            trusted.load(in, PASSWORD.toCharArray());
+        }
+        TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(trusted);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trust.getTrustManagers(), null);
+        return context;
+    }
+
+    private static SSLSocket connect(SSLContext context, int port, String... applicationProtocols) throws IOException {
+        SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", port);
+        socket.setSoTimeout(5000);
+        var parameters = socket.getSSLParameters();
+        parameters.setApplicationProtocols(applicationProtocols);
+        socket.setSSLParameters(parameters);
+        return socket;
+    }
+
+    private static String get(SSLContext context, int port, String applicationProtocol) throws IOException {
+        try (SSLSocket socket = connect(context, port, applicationProtocol)) {
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}